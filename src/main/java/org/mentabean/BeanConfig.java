@@ -17,15 +17,21 @@
  */
 package org.mentabean;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.mentabean.event.TriggerDispatcher;
 import org.mentabean.event.TriggerListener;
+import org.mentabean.jdbc.EntityCache;
 import org.mentabean.type.AutoIncrementType;
 import org.mentabean.type.SequenceType;
 import org.mentabean.util.PropertiesProxy;
+import org.mentabean.util.Property;
+import org.mentabean.util.PropertyAccessors;
 
 /**
  * A class representing a bean configuration, like table name, primary keys and fields in the database.
@@ -38,6 +44,10 @@ public class BeanConfig {
 
 	private final Map<String, DBField> pkList = new LinkedHashMap<String, DBField>();
 	
+	private DBField[] fieldArray = new DBField[0];
+	
+	private final Map<String, Integer> fieldIndexes = new HashMap<String, Integer>();
+	
 	private final Map<String, Class<? extends Object>> abstractInstances = new LinkedHashMap<String, Class<? extends Object>>();
 	
 	private final Class<? extends Object> beanClass;
@@ -51,6 +61,31 @@ public class BeanConfig {
 	private DBField autoincrement = null;
 	
 	private TriggerDispatcher dispatcher = new TriggerDispatcher();
+	
+	private boolean dirtyTracking = false;
+	
+	private EntityCache cache = null;
+	
+	private final Map<String, Boolean> lazyProperties = new HashMap<String, Boolean>();
+	
+	// compiled by freeze()...
+	private volatile String selectColumns = null;
+
+	private static final int MAX_CACHED_QUERIES = 512;
+
+	/* the SQL of the queries by their shape, see getCachedQuery (the least recently used is dropped when full) */
+	private final Map<Object, String> queries = Collections.synchronizedMap(new LinkedHashMap<Object, String>(16, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Object, String> eldest) {
+			return size() > MAX_CACHED_QUERIES;
+		}
+	});
+
+	/* compiled by the session, see getCompiled */
+	private final Map<Object, Object> compiled = new ConcurrentHashMap<Object, Object>();
 
 	/**
 	 * Creates a configuration for a bean represented by the given class.
@@ -97,6 +132,8 @@ public class BeanConfig {
 	 */
 	public BeanConfig addSequenceName(String seqNameInDb) {
 		
+		checkNotFrozen();
+		
 		if (sequence == null) {
 			throw new IllegalStateException("There is no sequence field defined!");
 		}
@@ -132,8 +169,11 @@ public class BeanConfig {
 			return remove((Object) null);
 		}
 		
+		checkNotFrozen();
+		
 		fieldList.remove(name);
 		pkList.remove(name);
+		reindex();
 		return this;
 	}
 	
@@ -143,6 +183,8 @@ public class BeanConfig {
 	
 	private BeanConfig addField(final String name, final String dbName, final DBType<? extends Object> type, final boolean isPK) {
 
+		checkNotFrozen();
+
 		if (!isPK) {
 
 			if (type instanceof SequenceType) {
@@ -160,6 +202,8 @@ public class BeanConfig {
 
 		fieldList.put(name, f);
 		
+		reindex();
+		
 		if (isPK) {
 
 			pkList.remove(name); // just in case we are re-adding it...
@@ -187,10 +231,51 @@ public class BeanConfig {
 		return this;
 	}
 	
+	private void reindex() {
+		
+		fieldArray = fieldList.values().toArray(new DBField[fieldList.size()]);
+		
+		fieldIndexes.clear();
+		
+		for (int i = 0; i < fieldArray.length; i++) {
+			fieldIndexes.put(fieldArray[i].getName(), i);
+		}
+		
+		if (cache != null) {
+			cache.clear(); // cached rows are aligned to the old index...
+		}
+	}
+	
 	public DBField getField(String name) {
 		
 		return fieldList.get(name);
 	}
+	
+	/**
+	 * Return the position of the field in this bean config, which is the same order returned by {@link #fields()}.
+	 * 
+	 * @param name
+	 *            The bean property name
+	 * @return The index of the field or -1 if there is no field for this property
+	 */
+	public int getFieldIndex(String name) {
+		
+		Integer index = fieldIndexes.get(name);
+		
+		return index == null ? -1 : index;
+	}
+	
+	/**
+	 * Return the field at the given position.
+	 * 
+	 * @param index
+	 *            The index of the field, as returned by {@link #getFieldIndex(String)}
+	 * @return The field at this position
+	 */
+	public DBField getField(int index) {
+		
+		return fieldArray[index];
+	}
 
 	/**
 	 * Return an auto-increment field, if one was configured for this bean.
@@ -238,6 +323,18 @@ public class BeanConfig {
 		
 		return field(PropertiesProxy.getPropertyName(), type);
 	}
+	
+	/**
+	 * Same as field(String, DBType) but through a getter method reference, ex: <code>field(Part::getName, DBTypes.STRING)</code>
+	 * 
+	 * @param property
+	 * @param type
+	 * @return This BeanConfig (Fluent API)
+	 */
+	public <T> BeanConfig field(Property<T, ?> property, final DBType<? extends Object> type) {
+		
+		return field(PropertiesProxy.getPropertyName(property), type);
+	}
 
 	/**
 	 * Add a database field for the given property with the given database type.
@@ -263,6 +360,11 @@ public class BeanConfig {
 		
 		return field(PropertiesProxy.getPropertyName(), dbName, type);
 	}
+	
+	public <T> BeanConfig field(Property<T, ?> property, String dbName, final DBType<? extends Object> type) {
+		
+		return field(PropertiesProxy.getPropertyName(property), dbName, type);
+	}
 
 	/**
 	 * Add a bean property that is the primary key in the database. The column name is the same as the property bean name. If they are different use the other pk method. All beans must have a primary key and you can call this method multiple times to support composite primary keys.
@@ -286,6 +388,18 @@ public class BeanConfig {
 		
 		return pk(PropertiesProxy.getPropertyName(), type);
 	}
+	
+	/**
+	 * Same as pk(String, DBType) but through a getter method reference, ex: <code>pk(Part::getId, DBTypes.AUTOINCREMENT)</code>
+	 * 
+	 * @param property
+	 * @param type
+	 * @return This BeanConfig (Fluent API)
+	 */
+	public <T> BeanConfig pk(Property<T, ?> property, final DBType<? extends Object> type) {
+		
+		return pk(PropertiesProxy.getPropertyName(property), type);
+	}
 
 	/**
 	 * Add a property that is the primary key in the database. All beans must have a primary key and you can call this method multiple times to support composite primary keys.
@@ -311,6 +425,11 @@ public class BeanConfig {
 		
 		return pk(PropertiesProxy.getPropertyName(), dbName, type);
 	}
+	
+	public <T> BeanConfig pk(Property<T, ?> property, String dbName, final DBType<? extends Object> type) {
+		
+		return pk(PropertiesProxy.getPropertyName(property), dbName, type);
+	}
 
 	/**
 	 * Return the number of fields configured for this bean. It includes the PK.
@@ -387,6 +506,125 @@ public class BeanConfig {
 		return dispatcher;
 	}
 	
+	/**
+	 * Turn on or off dirty tracking through the setters. When on, the beans created by the session for this config (loadList, loadUnique) are instances of a generated subclass
+	 * that records which setters were called, so a dynamic update only sends those columns without keeping a snapshot of the loaded values. Only the values of
+	 * the nested properties (like engine.id) are kept, to find out if the nested bean was modified.
+	 * 
+	 * NOTE: The bean class and its setters must not be final.
+	 * 
+	 * @param flag
+	 * @return this
+	 */
+	public BeanConfig dirtyTracking(boolean flag) {
+		
+		checkNotFrozen();
+		
+		this.dirtyTracking = flag;
+		
+		return this;
+	}
+	
+	public boolean isDirtyTracking() {
+		return dirtyTracking;
+	}
+	
+	/**
+	 * Turn on the second-level cache for this bean, without expiration. Loads by primary key (load, loadUnique) are then served from the cache, shared by
+	 * all sessions, and the session update/delete operations evict the affected rows. In a transaction they are evicted again by the commit (or rollback) of
+	 * the session (see BeanSession.commit()), so commit through it. The writes not done by a session of this BeanManager are not seen by the cache.
+	 * 
+	 * @param maxSize
+	 *            the maximum number of rows to keep
+	 * @return this
+	 */
+	public BeanConfig cache(int maxSize) {
+		
+		return cache(maxSize, 0);
+	}
+	
+	/**
+	 * Turn on the second-level cache for this bean.
+	 * 
+	 * @param maxSize
+	 *            the maximum number of rows to keep
+	 * @param ttl
+	 *            the time-to-live of a row in milliseconds, zero for none
+	 * @return this
+	 * @see #cache(int)
+	 */
+	public BeanConfig cache(int maxSize, long ttl) {
+		
+		checkNotFrozen();
+		
+		this.cache = new EntityCache(maxSize, ttl);
+		
+		return this;
+	}
+	
+	/**
+	 * Return the second-level cache for this bean or null if not cached.
+	 * 
+	 * @return the cache or null
+	 */
+	public EntityCache getCache() {
+		return cache;
+	}
+	
+	/**
+	 * Configures a nested bean property to be lazy loaded. Instead of a bean with only its id, the session injects a proxy that loads the whole bean from the
+	 * database the first time a method other than the PK getters and setters is called on it.
+	 * 
+	 * NOTE: The proxy loads through the session that created it, so the session must still be open. The nested bean class must not be final.
+	 * 
+	 * @param property - The nested bean property name
+	 * @param batch - If true the proxies of the same property created by one loadList are all loaded together (with IN queries) when the first one is touched
+	 * @return this
+	 */
+	public BeanConfig lazy(String property, boolean batch) {
+		
+		checkNotFrozen();
+		
+		lazyProperties.put(property, batch);
+		
+		return this;
+	}
+	
+	public BeanConfig lazy(String property) {
+		
+		return lazy(property, false);
+	}
+	
+	/**
+	 * Same as lazy(String, boolean) but through the proxy, ex: <code>lazy(post.getUser(), true)</code>
+	 * 
+	 * @param property - The nested bean property (through proxy)
+	 * @param batch
+	 * @return this
+	 * @see #lazy(String, boolean)
+	 */
+	public BeanConfig lazy(Object property, boolean batch) {
+		
+		return lazy(PropertiesProxy.getPropertyName(), batch);
+	}
+	
+	public BeanConfig lazy(Object property) {
+		
+		return lazy(PropertiesProxy.getPropertyName(), false);
+	}
+	
+	public boolean isLazy(String property) {
+		
+		return lazyProperties.containsKey(property);
+	}
+	
+	public boolean isLazyBatch(String property) {
+		
+		Boolean batch = lazyProperties.get(property);
+		
+		return batch != null && batch;
+	}
+	
 	/**
 	 * Configures a class that should be used instead of property type to create instances
 	 * through {@link Class#newInstance()} method. It's useful when working with abstract objects
@@ -400,6 +638,8 @@ public class BeanConfig {
 			return abstractInstance((Object) abstractProperty, clazz);
 		}
 		
+		checkNotFrozen();
+		
 		abstractInstances.put(abstractProperty, clazz);
 		
 		return this;
@@ -424,4 +664,110 @@ public class BeanConfig {
 		return abstractInstances.get(key);
 	}
 	
+	/**
+	 * Make this configuration read-only, so it can be shared by any number of threads without locking, finding the selected columns and the accessors of
+	 * the bean now. Called by {@link BeanManager#freeze()}.
+	 */
+	void freeze() {
+		
+		if (selectColumns != null) {
+			return;
+		}
+		
+		StringBuilder sb = new StringBuilder(32 * fieldArray.length);
+		
+		for (DBField f : fieldArray) {
+			if (sb.length() > 0) {
+				sb.append(',');
+			}
+			sb.append(f.getDbName());
+		}
+		
+		PropertyAccessors.of(beanClass); // find the getters and setters now...
+		
+		selectColumns = sb.toString(); // last, it publishes the frozen state...
+	}
+	
+	public boolean isFrozen() {
+		
+		return selectColumns != null;
+	}
+	
+	/**
+	 * Return the columns of all fields separated by comma, as selected when loading the whole bean, or null if this configuration is not frozen.
+	 * 
+	 * @return the columns or null
+	 */
+	public String getSelectColumns() {
+		
+		return selectColumns;
+	}
+	
+	/**
+	 * Return the SQL generated for a query of this bean with the given shape, like the properties used in the WHERE clause, or null if not generated
+	 * yet. The cache is cleared when this configuration changes.
+	 * 
+	 * @param shape the key of the query, with equals and hashCode
+	 * @return the SQL or null
+	 */
+	public String getCachedQuery(Object shape) {
+		
+		return queries.get(shape);
+	}
+	
+	/**
+	 * Keep the SQL generated for a query of this bean with the given shape. There is a maximum number of shapes by bean, when it is reached the least
+	 * recently used one is dropped.
+	 * 
+	 * @param shape the key of the query, with equals and hashCode (must not change)
+	 * @param sql the SQL
+	 */
+	public void cacheQuery(Object shape, String sql) {
+		
+		queries.put(shape, sql);
+	}
+	
+	/**
+	 * Return an object compiled by the session for this bean, like the accessors used to compare two instances, or null if not compiled yet. It is
+	 * discarded when this configuration changes.
+	 * 
+	 * @param key the key of the compiled object, usually its class
+	 * @return the compiled object or null
+	 */
+	public Object getCompiled(Object key) {
+		
+		return compiled.get(key);
+	}
+	
+	/**
+	 * Keep an object compiled by the session for this bean.
+	 * 
+	 * @param key the key of the compiled object, usually its class
+	 * @param value the compiled object
+	 */
+	public void putCompiled(Object key, Object value) {
+		
+		compiled.put(key, value);
+	}
+	
+	/**
+	 * The number of query shapes whose SQL is kept, see cacheQuery.
+	 * 
+	 * @return the number of queries cached
+	 */
+	public int getCachedQueryCount() {
+		
+		return queries.size();
+	}
+	
+	private void checkNotFrozen() {
+		
+		if (selectColumns != null) {
+			throw new IllegalStateException("Cannot change a frozen bean configuration: " + this);
+		}
+		
+		queries.clear(); // it will change...
+		compiled.clear();
+	}
+	
 }
@@ -17,12 +17,15 @@
  */
 package org.mentabean;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
 import org.mentabean.util.DefaultProxy;
+import org.mentabean.util.DirtyTracked;
+import org.mentabean.util.LazyLoaded;
 import org.mentabean.util.PropertiesProxy;
 
 /**
@@ -34,6 +37,9 @@ public class BeanManager {
 
 	private final Map<Class<? extends Object>, BeanConfig> beans = new HashMap<Class<? extends Object>, BeanConfig>();
 	
+	// set by freeze()...
+	private volatile Registry registry = null;
+	
 	public BeanManager(PropertiesProxy proxy) {
 		
 		PropertiesProxy.INSTANCE = proxy == null ? new DefaultProxy() : proxy;			
@@ -51,6 +57,10 @@ public class BeanManager {
 	 * @return The BeanConfig added (Fluent API)
 	 */
 	public BeanConfig bean(final BeanConfig bc) {
+		
+		if (registry != null) {
+			throw new IllegalStateException("Cannot add a configuration to a frozen BeanManager ("+bc.getBeanClass()+")");
+		}
 
 		if (beans.containsKey(bc.getBeanClass())) {
 			throw new IllegalStateException("A configuration was already added for this bean ("+bc.getBeanClass()+")");
@@ -105,8 +115,31 @@ public class BeanManager {
 	 * @return The bean configuration for this bean or null if it was not defined
 	 */
 	public BeanConfig getBeanConfig(final Class<? extends Object> beanClass) {
+		
+		final Registry r = registry;
+		
+		if (r != null) {
+			return r.configs.get(beanClass);
+		}
 
-		return beans.get(beanClass);
+		return lookup(beans, beanClass);
+	}
+	
+	/**
+	 * The configuration of the bean class, or of its superclass when it is a tracked bean or a lazy proxy generated by the session. The same before and
+	 * after the manager is frozen.
+	 */
+	private static BeanConfig lookup(final Map<Class<? extends Object>, BeanConfig> beans, final Class<?> beanClass) {
+		
+		BeanConfig bc = beans.get(beanClass);
+		
+		if (bc == null && (DirtyTracked.class.isAssignableFrom(beanClass) || LazyLoaded.class.isAssignableFrom(beanClass))) {
+			
+			// a tracked bean or lazy proxy generated by the session...
+			bc = beans.get(beanClass.getSuperclass());
+		}
+		
+		return bc;
 	}
 
 	public Set<BeanConfig> getBeanConfigs() {
@@ -114,4 +147,57 @@ public class BeanManager {
 		all.addAll(beans.values());
 		return all;
 	}
+	
+	/**
+	 * Make this manager and its configurations read-only. After that the configurations are found without any locking (the same way as before, see
+	 * {@link #getBeanConfig(Class)}), so the manager can be shared by any number of threads and sessions.
+	 * 
+	 * Only what does not depend on the session is computed now: the columns selected to load a whole bean and the getters and setters of the beans. The SQL
+	 * of the statements depends on the dialect of the session, so it is still generated the first time each shape is used and then cached in the
+	 * configuration (see {@link BeanConfig#getCachedQuery(Object)}), like the other plans compiled by the sessions.
+	 * 
+	 * Call it once, after all the beans were configured and before the manager is shared. Adding or changing a configuration afterwards throws an
+	 * IllegalStateException.
+	 * 
+	 * @return this manager
+	 */
+	public synchronized BeanManager freeze() {
+		
+		if (registry == null) {
+			
+			for (BeanConfig bc : beans.values()) {
+				bc.freeze();
+			}
+			
+			registry = new Registry(beans);
+		}
+		
+		return this;
+	}
+	
+	public boolean isFrozen() {
+		return registry != null;
+	}
+	
+	/**
+	 * The immutable configurations of a frozen manager.
+	 */
+	private static class Registry {
+		
+		private final ClassValue<BeanConfig> configs;
+		
+		Registry(Map<Class<? extends Object>, BeanConfig> beans) {
+			
+			final Map<Class<? extends Object>, BeanConfig> map = Collections.unmodifiableMap(new HashMap<Class<? extends Object>, BeanConfig>(beans));
+			
+			this.configs = new ClassValue<BeanConfig>() {
+				
+				@Override
+				protected BeanConfig computeValue(Class<?> type) {
+					
+					return lookup(map, type);
+				}
+			};
+		}
+	}
 }
\ No newline at end of file
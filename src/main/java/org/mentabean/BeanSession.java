@@ -23,7 +23,10 @@ import java.util.List;
 
 import org.mentabean.event.TriggerListener;
 import org.mentabean.jdbc.QueryBuilder;
+import org.mentabean.jdbc.QueryOptions;
+import org.mentabean.jdbc.QueryPlan;
 import org.mentabean.sql.TableAlias;
+import org.mentabean.util.ColumnarResult;
 import org.mentabean.util.Limit;
 import org.mentabean.util.OrderBy;
 
@@ -90,6 +93,30 @@ public interface BeanSession {
 	 */
 	public <E> boolean updateDiff(E newBean, E oldBean);
 
+	/**
+	 * Detach the bean from this session, in other words, forget the values it had when it was loaded or inserted. A later update(bean) will behave as if the bean had never been loaded.
+	 * 
+	 * @param bean
+	 *            The bean to detach
+	 */
+	public void detach(Object bean);
+
+	/**
+	 * Detach all beans from this session.
+	 */
+	public void clearSnapshots();
+
+	/**
+	 * Commit the transaction of the connection. The rows and results written in it are evicted again from the caches shared with other sessions, which may
+	 * have cached the old values before the commit, so commit through the session when using the second-level cache or the query cache.
+	 */
+	public void commit();
+
+	/**
+	 * Roll back the transaction of the connection, evicting again from the shared caches the rows and results written in it.
+	 */
+	public void rollback();
+
 	/**
 	 * Insert the bean in the database.
 	 * 
@@ -152,6 +179,30 @@ public interface BeanSession {
 	 */
 	public int countList(Object bean);
 
+	/**
+	 * Same as countList(bean) but executing the query with the given options.
+	 * 
+	 * @param bean
+	 *            The bean holding the properties used by the list query.
+	 * @param options
+	 *            The options of the statement, or null for the ones of the session.
+	 * @return the number of beans found in the database
+	 */
+	public int countList(Object bean, QueryOptions options);
+
+	/**
+	 * Return the execution plan of the query of loadList(bean, orderBy, limit), with the same values, without loading anything.
+	 * 
+	 * @param bean
+	 *            The bean holding the properties used by the list query.
+	 * @param orderBy
+	 *            The orderBy SQL clause (can be null).
+	 * @param limit
+	 *            The max number of beans returned in the list (can be null).
+	 * @return the plan returned by the database
+	 */
+	public QueryPlan explainList(Object bean, OrderBy orderBy, Limit limit);
+
 	/**
 	 * Load a list of beans based on the properties present in the bean passed. For example, if you want to load all users with lastName equal to 'saoj' you would instantiate a bean and set its lastName property to 'saoj' before passing it as an argument to this method.
 	 * 
@@ -212,6 +263,22 @@ public interface BeanSession {
 	 */
 	public <E> List<E> loadList(E bean, OrderBy orderBy, Limit limit);
 
+	/**
+	 * Same as loadList(bean, orderBy, limit) but executing the query with the given options (fetch size, timeout...).
+	 * 
+	 * @param <E>
+	 * @param bean
+	 *            The bean holding the properties used by the list query.
+	 * @param orderBy
+	 *            The orderBy SQL clause.
+	 * @param limit
+	 *            The max number of beans returned in the list.
+	 * @param options
+	 *            The options of the statement, or null for the ones of the session.
+	 * @return A list of beans the match the properties in the given bean. Or an empty list if nothing was found.
+	 */
+	public <E> List<E> loadList(E bean, OrderBy orderBy, Limit limit, QueryOptions options);
+
 	public <E> List<E> loadList(E bean, OrderBy orderBy, Limit limit, Object... properties);
 
 	public <E> List<E> loadListMinus(E bean, OrderBy orderBy, Limit limit, Object... minus);
@@ -234,6 +301,49 @@ public interface BeanSession {
 	
 	public <E> E loadUniqueMinus(E bean, Object... minus);
 
+	/**
+	 * Same as loadList(bean, properties) but the values are returned by column in primitive arrays, without creating a bean per row. Useful for analytic queries over many
+	 * rows.
+	 * 
+	 * @param bean
+	 *            The bean holding the properties used by the list query.
+	 * @param properties
+	 *            The properties to return (all of them if none is passed). The PK is NOT included unless it is passed.
+	 * @return The columns of the properties, keyed by property name.
+	 */
+	public ColumnarResult loadColumns(Object bean, Object... properties);
+
+	public ColumnarResult loadColumns(Object bean, OrderBy orderBy, Limit limit, Object... properties);
+
+	/**
+	 * Same as loadColumns(bean, orderBy, limit, properties) with the options of the statement.
+	 * 
+	 * @param bean
+	 *            The bean holding the properties used by the list query.
+	 * @param orderBy
+	 *            The orderBy SQL clause.
+	 * @param limit
+	 *            The max number of rows returned.
+	 * @param options
+	 *            The options of the statement, or null for the ones of the session.
+	 * @param properties
+	 *            The properties to return (all of them if none is passed). The PK is NOT included unless it is passed.
+	 * @return The columns of the properties, keyed by property name.
+	 */
+	public ColumnarResult loadColumns(Object bean, OrderBy orderBy, Limit limit, QueryOptions options, Object... properties);
+
+	/**
+	 * Load the nested beans of the given properties for all the beans in the list at once, with one query (or a few for many ids) per property instead of one
+	 * load per bean. For example, <code>session.fetch(posts, post.getUser())</code> replaces the user of each post, which only has its id, by the loaded user.
+	 * 
+	 * @param beans
+	 *            The beans holding the nested beans, usually returned by loadList.
+	 * @param properties
+	 *            The nested bean properties to fetch.
+	 * @return The same list
+	 */
+	public <E> List<E> fetch(List<E> beans, Object... properties);
+
 	public String buildSelect(final Class<? extends Object> beanClass);
 
 	public String buildSelect(final Class<? extends Object> beanClass, Object... properties);
@@ -17,16 +17,20 @@
  */
 package org.mentabean;
 
+import java.io.InputStream;
+import java.io.Reader;
 import java.math.BigDecimal;
 import java.util.Date;
 
 import org.mentabean.type.AutoIncrementType;
 import org.mentabean.type.AutoTimestampType;
 import org.mentabean.type.BigDecimalType;
+import org.mentabean.type.BlobStreamType;
 import org.mentabean.type.BooleanIntType;
 import org.mentabean.type.BooleanStringType;
 import org.mentabean.type.BooleanType;
 import org.mentabean.type.ByteArrayType;
+import org.mentabean.type.ClobStreamType;
 import org.mentabean.type.DateTimeJodaType;
 import org.mentabean.type.DateType;
 import org.mentabean.type.DoubleType;
@@ -69,6 +73,8 @@ public class DBTypes {
 	public static final EnumValueTypeFactory ENUMVALUE = EnumValueTypeFactory.getInstance();
 	public static final EnumIdTypeFactory ENUMID = EnumIdTypeFactory.getInstance();
 	public static final ByteArrayType BYTE_ARRAY = new ByteArrayType();
+	public static final BlobStreamType BLOB_STREAM = new BlobStreamType();
+	public static final ClobStreamType CLOB_STREAM = new ClobStreamType();
 	public static final GenericType GENERIC = new GenericType();
 	public static final DateTimeJodaType JODA_DATETIME = new DateTimeJodaType();
 	public static final LocalDateJodaType JODA_LOCALDATE = new LocalDateJodaType();
@@ -98,6 +104,10 @@ public class DBTypes {
 			return ENUMVALUE.from((Class<? extends Enum<?>>) klass);
 		} else if (klass.equals(byte[].class)) {
 			return BYTE_ARRAY;
+		} else if (klass.equals(InputStream.class)) {
+			return BLOB_STREAM;
+		} else if (klass.equals(Reader.class)) {
+			return CLOB_STREAM;
 		}
 		return GENERIC;
 	}
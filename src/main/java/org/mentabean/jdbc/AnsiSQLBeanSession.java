@@ -17,6 +17,7 @@
  */
 package org.mentabean.jdbc;
 
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.sql.Connection;
@@ -24,11 +25,17 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.IdentityHashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 
@@ -43,16 +50,21 @@ import org.mentabean.event.TriggerDispatcher.Type;
 import org.mentabean.event.TriggerEvent;
 import org.mentabean.event.TriggerListener;
 import org.mentabean.sql.TableAlias;
+import org.mentabean.sql.param.ParamValues;
 import org.mentabean.type.AutoIncrementType;
 import org.mentabean.type.AutoTimestampType;
 import org.mentabean.type.NowOnInsertAndUpdateTimestampType;
 import org.mentabean.type.NowOnInsertTimestampType;
 import org.mentabean.type.NowOnUpdateTimestampType;
 import org.mentabean.type.SizedType;
+import org.mentabean.util.ColumnarResult;
+import org.mentabean.util.DirtyTracking;
 import org.mentabean.util.InjectionUtils;
 import org.mentabean.util.Limit;
 import org.mentabean.util.OrderBy;
 import org.mentabean.util.PropertiesProxy;
+import org.mentabean.util.PropertyAccessors;
+import org.mentabean.util.Property;
 import org.mentabean.util.SQLUtils;
 
 /**
@@ -67,26 +79,588 @@ public class AnsiSQLBeanSession implements BeanSession {
 	
 	protected static boolean DEBUG_NATIVE = false;
 
-	/* The loaded map will be cleared when the session dies */
-	protected IdentityHashMap<Object, Map<String, Value>> loaded = new IdentityHashMap<Object, Map<String, Value>>();
+	/* The key evicting all the rows of an entity cache */
+	private static final Object ALL_ROWS = new Object();
+
+	/* Marks a column of a snapshot that was not loaded, so it cannot be considered dirty */
+	protected static final Object NOT_LOADED = new Object();
+
+	/**
+	 * The maximum number of ids in the IN clause of a fetch query.
+	 */
+	protected static final int FETCH_BATCH_SIZE = 500;
+
+	/* The snapshots of the beans attached to this session (loaded or inserted), used by the dynamic update. Each snapshot is aligned to the BeanConfig field index */
+	protected SnapshotStore<Object[]> loaded = new WeakSnapshotStore<Object[]>();
+
+	protected QueryCache queryCache = null;
+
+	/* The rows evicted from the entity caches by the writes of the current transaction, evicted again when it ends */
+	private final Map<EntityCache, Set<Object>> evicted = new HashMap<EntityCache, Set<Object>>();
+
+	/* The tables written by the current transaction, invalidated again in the query cache when it ends */
+	private final Set<String> invalidated = new HashSet<String>();
+
+	protected QueryOptions queryOptions = null;
+
+	protected long slowQueryThreshold = 0;
+
+	protected Map<Object, WeakReference<Object>> identityMap = null;
+
+	private Map<Object, List<LazyLoading.Handler>> lazySiblings = null;
 
 	protected Connection conn;
 
-	protected final BeanManager beanManager;
-	
-	protected final TriggerDispatcher dispatcher = new TriggerDispatcher();
+	protected final BeanManager beanManager;
+	
+	protected final TriggerDispatcher dispatcher = new TriggerDispatcher();
+
+	/**
+	 * Creates a JdbcBeanSession with a BeanManager and a Connection.
+	 * 
+	 * @param beanManager
+	 *            The bean manager
+	 * @param conn
+	 *            The database connection
+	 */
+	public AnsiSQLBeanSession(final BeanManager beanManager, final Connection conn) {
+		this.beanManager = beanManager;
+		this.conn = conn;
+	}
+
+	/**
+	 * Replace the store holding the snapshots of the attached beans. The beans currently attached are detached.
+	 * 
+	 * @param store
+	 *            The snapshot store, for example <code>new BoundedSnapshotStore&lt;Object[]&gt;(10000)</code>
+	 */
+	public void setSnapshotStore(final SnapshotStore<Object[]> store) {
+
+		if (store == null) {
+			throw new IllegalArgumentException("store cannot be null!");
+		}
+
+		this.loaded.clear();
+		this.loaded = store;
+	}
+
+	/**
+	 * Turn on the cache for the results of loadList and of the QueryBuilder queries marked as cached. The writes of this session invalidate the results that
+	 * read from the same tables.
+	 * 
+	 * @param cache
+	 *            the cache or null to turn it off
+	 */
+	public void setQueryCache(final QueryCache cache) {
+
+		this.queryCache = cache;
+	}
+
+	public QueryCache getQueryCache() {
+
+		return queryCache;
+	}
+
+	/**
+	 * Set the options used by the queries of this session (loadList, countList and the QueryBuilder queries). The options given to a query take
+	 * precedence over these ones. Their statements cannot be cancelled with {@link QueryOptions#cancel()}, only the ones of options given to a query.
+	 * 
+	 * @param options
+	 *            the options or null for the driver defaults
+	 */
+	public void setQueryOptions(final QueryOptions options) {
+
+		this.queryOptions = options;
+	}
+
+	public QueryOptions getQueryOptions() {
+
+		return queryOptions;
+	}
+
+	/**
+	 * Log the plan of the queries slower than the given time, along with their SQL. The plan is captured with {@link #explain(String, DBType[], Object[])}
+	 * right after the slow query is executed, so it costs only for the slow ones. Only loadList, countList, the QueryBuilder queries and the compiled ones
+	 * are checked: the queries of {@link QueryBuilder.Query#iterate(int)} and the results returned from the {@link #setQueryCache(QueryCache) query cache}
+	 * are not.
+	 * 
+	 * @param millis
+	 *            the time a query must take to be logged or zero to turn it off
+	 */
+	public void setSlowQueryThreshold(final long millis) {
+
+		if (millis < 0) {
+			throw new IllegalArgumentException("threshold cannot be negative: " + millis);
+		}
+
+		this.slowQueryThreshold = millis;
+	}
+
+	public long getSlowQueryThreshold() {
+
+		return slowQueryThreshold;
+	}
+
+	/**
+	 * Each dialect can override this to return its command to explain a query, or null if it cannot return the plan as a result set.
+	 * 
+	 * @return the command, prefixed to the query
+	 */
+	protected String getExplainCommand() {
+
+		return "EXPLAIN ";
+	}
+
+	/**
+	 * Return the execution plan of a query, with the same parameters it is executed with.
+	 * 
+	 * @param sql
+	 *            the query
+	 * @param types
+	 *            the types to bind the parameters (or nulls)
+	 * @param params
+	 *            the parameters
+	 * @return the plan returned by the database
+	 * @see #getExplainCommand()
+	 */
+	public QueryPlan explain(final String sql, final DBType<?>[] types, final Object[] params) {
+
+		final String command = getExplainCommand();
+
+		if (command == null) {
+			throw new BeanException("Explain is not supported by " + getClass().getSimpleName());
+		}
+
+		PreparedStatement stmt = null;
+
+		ResultSet rset = null;
+
+		try {
+
+			stmt = conn.prepareStatement(command + sql);
+
+			SQLUtils.fillStatement(stmt, types, params);
+
+			rset = stmt.executeQuery();
+
+			return new QueryPlan(sql, params, rset);
+
+		} catch (SQLException e) {
+
+			throw new BeanException("Unable to explain query: " + sql, e);
+
+		} finally {
+
+			close(stmt, rset);
+		}
+	}
+
+	@Override
+	public QueryPlan explainList(final Object bean, final OrderBy orderBy, final Limit limit) {
+
+		final BeanConfig bc = getConfigFor(bean.getClass());
+
+		if (bc == null) {
+			throw new BeanException("Cannot find bean config: " + bean.getClass());
+		}
+
+		final List<Value> values = new LinkedList<Value>();
+
+		final String sql = buildListQuery(bc, bean, orderBy, limit, null, null, values);
+
+		return explain(sql, typesOf(values), valuesOf(values));
+	}
+
+	/**
+	 * Log the query and its plan if it took longer than the {@link #setSlowQueryThreshold(long) threshold}.
+	 * 
+	 * @param sql
+	 * @param start
+	 *            when the query started, from {@link System#nanoTime()}
+	 * @param types
+	 * @param params
+	 */
+	protected void checkSlowQuery(final String sql, final long start, final DBType<?>[] types, final Object[] params) {
+
+		final long threshold = slowQueryThreshold;
+
+		if (threshold <= 0) {
+			return;
+		}
+
+		final long millis = (System.nanoTime() - start) / 1000000L;
+
+		if (millis < threshold) {
+			return;
+		}
+
+		String plan;
+
+		try {
+
+			plan = explain(sql, types, params).getText();
+
+		} catch (BeanException e) {
+
+			plan = "(no plan: " + e.getMessage() + ")";
+		}
+
+		System.out.println("SLOW QUERY (" + millis + "ms): " + sql + "\n" + plan);
+	}
+
+	private static DBType<?>[] typesOf(final List<Value> values) {
+
+		final DBType<?>[] types = new DBType<?>[values.size()];
+
+		int i = 0;
+
+		for (Value v : values) {
+			types[i++] = v.field.getType();
+		}
+
+		return types;
+	}
+
+	private static Object[] valuesOf(final List<Value> values) {
+
+		final Object[] array = new Object[values.size()];
+
+		int i = 0;
+
+		for (Value v : values) {
+			array[i++] = v.value;
+		}
+
+		return array;
+	}
+
+	/**
+	 * Prepare a statement with the options of the query, or of the session if null.
+	 * 
+	 * @param sql
+	 * @param options
+	 * @return the statement
+	 * @throws SQLException
+	 */
+	protected PreparedStatement prepareStatement(final String sql, final QueryOptions options) throws SQLException {
+
+		final QueryOptions o = options != null ? options : queryOptions;
+
+		if (o == null) {
+			return conn.prepareStatement(sql);
+		}
+
+		// only the statements of the options given to the query can be cancelled, the ones of the session are shared by all of them...
+		return o.prepare(conn, sql, queryOptions, options != null);
+	}
+
+	/**
+	 * Return the query cache for a query with these options, or null if it should not be cached (ex: it has a maximum number of rows, not part of the
+	 * cache key).
+	 * 
+	 * @param options
+	 *            the options of the query, or null
+	 * @return the query cache or null
+	 */
+	QueryCache getQueryCache(final QueryOptions options) {
+
+		if (queryCache == null) {
+			return null;
+		}
+
+		if ((options != null && options.getMaxRows() > 0) || (queryOptions != null && queryOptions.getMaxRows() > 0)) {
+			return null;
+		}
+
+		return queryCache;
+	}
+
+	/**
+	 * Return the number of beans currently attached to this session.
+	 * 
+	 * @return the number of snapshots
+	 */
+	public int getSnapshotCount() {
+
+		return loaded.size();
+	}
+
+	/**
+	 * Return an estimate, in bytes, of the memory used by the snapshots of the beans currently attached to this session. The values themselves are not counted.
+	 * 
+	 * @return the estimated number of bytes
+	 */
+	public long getSnapshotBytes() {
+
+		long total = 0;
+
+		for (Object[] snapshot : loaded.snapshots()) {
+			total += estimateSnapshotBytes(snapshot);
+		}
+
+		return total;
+	}
+
+	protected long estimateSnapshotBytes(Object[] snapshot) {
+
+		// array header + one reference per column, aligned to 8 bytes...
+		return (16 + 4L * snapshot.length + 7) & ~7L;
+	}
+
+	/**
+	 * Create an empty snapshot for a bean, with all columns marked as not loaded.
+	 * 
+	 * @param bc
+	 * @return the snapshot
+	 */
+	protected static Object[] newSnapshot(final BeanConfig bc) {
+
+		final Object[] snapshot = new Object[bc.getNumberOfFields()];
+
+		Arrays.fill(snapshot, NOT_LOADED);
+
+		return snapshot;
+	}
+
+	/**
+	 * Attach a bean to this session after it was loaded or inserted. A tracked bean (see {@link BeanConfig#dirtyTracking(boolean)}) records its own modifications, so
+	 * its dirty flags are reset and only the values of its nested properties are kept, as their setters are not called on the bean.
+	 * 
+	 * @param bean
+	 * @param snapshot
+	 */
+	protected void attach(final Object bean, final Object[] snapshot) {
+
+		if (DirtyTracking.isTracked(bean)) {
+
+			DirtyTracking.clear(bean);
+
+			final int[] nested = DirtyTracking.getNestedFields(getConfigFor(bean.getClass()));
+
+			if (nested.length > 0 && snapshot != null) {
+
+				final Object[] values = new Object[snapshot.length];
+
+				Arrays.fill(values, NOT_LOADED);
+
+				for (int i : nested) {
+					values[i] = snapshot[i];
+				}
+
+				loaded.put(bean, values);
+
+			} else {
+
+				loaded.remove(bean);
+			}
+
+		} else {
+
+			loaded.put(bean, snapshot);
+		}
+
+		if (identityMap != null) {
+			mapIdentity(bean);
+		}
+	}
+
+	/**
+	 * Return the snapshot of an attached bean, or null if the bean is not attached or its snapshot no longer matches the bean config.
+	 * 
+	 * @param bean
+	 * @param bc
+	 * @return the snapshot
+	 */
+	protected Object[] getSnapshot(final Object bean, final BeanConfig bc) {
+
+		final Object[] snapshot = loaded.get(bean);
+
+		if (snapshot != null && snapshot.length != bc.getNumberOfFields()) {
+			return null;
+		}
+
+		return snapshot;
+	}
+
+	/**
+	 * Return the snapshot of an attached bean if all its columns were loaded, or null otherwise.
+	 * 
+	 * @param bean
+	 * @param bc
+	 * @return the full snapshot or null
+	 */
+	protected Object[] getFullSnapshot(final Object bean, final BeanConfig bc) {
+
+		final Object[] snapshot = getSnapshot(bean, bc);
+
+		if (snapshot == null) {
+			return null;
+		}
+
+		for (Object value : snapshot) {
+			if (value == NOT_LOADED) {
+				return null;
+			}
+		}
+
+		return snapshot;
+	}
+
+	@Override
+	public void detach(final Object bean) {
+
+		loaded.remove(bean);
+
+		if (identityMap != null) {
+
+			final BeanConfig bc = getConfigFor(bean.getClass());
+
+			final Object key = bc != null ? identityKey(bc, bean) : null;
+
+			if (key != null && findIdentity(key) == bean) {
+				identityMap.remove(key);
+			}
+		}
+	}
+
+	@Override
+	public void clearSnapshots() {
+
+		loaded.clear();
+
+		if (identityMap != null) {
+			identityMap.clear();
+		}
+	}
+
+	/**
+	 * Turn on or off the identity map of this session. When on, the session keeps one instance per primary key: loadUnique by primary key returns the instance
+	 * already loaded, loadList returns it in place of a new bean and load fills the bean from it, all without going to the database as long as the instance was
+	 * fully loaded (all columns) and is still attached.
+	 * 
+	 * The instances are weakly referenced. Beans with dirty tracking keep no snapshot, so they are always loaded from the database.
+	 * 
+	 * @param flag
+	 */
+	public void setIdentityMap(final boolean flag) {
+
+		if (!flag) {
+			identityMap = null;
+		} else if (identityMap == null) {
+			identityMap = new HashMap<Object, WeakReference<Object>>();
+		}
+	}
+
+	public boolean isIdentityMap() {
+
+		return identityMap != null;
+	}
+
+	/**
+	 * Return the key of the identity map for these primary key values.
+	 * 
+	 * @param bc
+	 * @param pks
+	 *            the values of all the primary keys
+	 * @return the key
+	 */
+	protected Object identityKey(final BeanConfig bc, final List<Value> pks) {
+
+		final List<Object> key = new ArrayList<Object>(pks.size() + 1);
+
+		key.add(bc);
+
+		for (Value v : pks) {
+			key.add(v.value);
+		}
+
+		return key;
+	}
+
+	/**
+	 * Return the key of the identity map for this bean, or null if its primary key is not set.
+	 * 
+	 * @param bc
+	 * @param bean
+	 * @return the key or null
+	 */
+	protected Object identityKey(final BeanConfig bc, final Object bean) {
+
+		final List<Object> key = new ArrayList<Object>(bc.getNumberOfPKs() + 1);
+
+		key.add(bc);
+
+		final Iterator<DBField> iter = bc.pks();
+
+		while (iter.hasNext()) {
+
+			final Object value = getValueFromBean(bean, iter.next().getName());
+
+			if (value == null) {
+				return null;
+			}
+
+			key.add(value);
+		}
+
+		return key.size() > 1 ? key : null;
+	}
+
+	protected Object findIdentity(final Object key) {
+
+		final WeakReference<Object> ref = identityMap.get(key);
+
+		if (ref == null) {
+			return null;
+		}
+
+		final Object bean = ref.get();
+
+		if (bean == null) {
+			identityMap.remove(key);
+		}
+
+		return bean;
+	}
 
 	/**
-	 * Creates a JdbcBeanSession with a BeanManager and a Connection.
+	 * Put a bean in the identity map, unless another instance with the same primary key is already there fully loaded.
 	 * 
-	 * @param beanManager
-	 *            The bean manager
-	 * @param conn
-	 *            The database connection
+	 * @param bean
 	 */
-	public AnsiSQLBeanSession(final BeanManager beanManager, final Connection conn) {
-		this.beanManager = beanManager;
-		this.conn = conn;
+	private void mapIdentity(final Object bean) {
+
+		final BeanConfig bc = getConfigFor(bean.getClass());
+
+		final Object key = bc != null ? identityKey(bc, bean) : null;
+
+		if (key == null) {
+			return;
+		}
+
+		final Object current = findIdentity(key);
+
+		if (current == null || (current != bean && getFullSnapshot(current, bc) == null)) {
+			identityMap.put(key, new WeakReference<Object>(bean));
+		}
+	}
+
+	/**
+	 * Remove a deleted bean from the identity map. When its primary key is not set (ex: deleteAll) the whole map is cleared.
+	 * 
+	 * @param bean
+	 */
+	private void unmapIdentity(final Object bean) {
+
+		final BeanConfig bc = getConfigFor(bean.getClass());
+
+		final Object key = bc != null ? identityKey(bc, bean) : null;
+
+		if (key == null) {
+			identityMap.clear();
+		} else {
+			identityMap.remove(key);
+		}
 	}
 
 	/**
@@ -148,6 +722,8 @@ public class AnsiSQLBeanSession implements BeanSession {
     		for(Object o : names) {
     			if (o instanceof String) {
     				PropertiesProxy.addPropertyName((String) o);
+    			} else if (o instanceof Property) {
+    				PropertiesProxy.addPropertyName(PropertiesProxy.getPropertyName((Property<?, ?>) o));
     			}
     		}
 		}
@@ -189,7 +765,7 @@ public class AnsiSQLBeanSession implements BeanSession {
 		}
 
 		if (m == null) {
-			m = InjectionUtils.findMethodToGet(bean.getClass(), fieldName);
+			m = PropertyAccessors.of(bean.getClass()).getter(fieldName);
 		}
 
 		if (m == null) {
@@ -251,6 +827,8 @@ public class AnsiSQLBeanSession implements BeanSession {
 			throw new BeanException("Cannot find bean config: " + bean.getClass());
 		}
 
+		LazyLoading.setLoaded(bean); // a lazy proxy loaded explicitly...
+
 		if (bc.getNumberOfFields() == 0) {
 			throw new BeanException("BeanConfig has zero fields: " + bc);
 		}
@@ -326,6 +904,48 @@ public class AnsiSQLBeanSession implements BeanSession {
 			throw new BeanException("Bean is empty: " + bean + " / " + bc);
 		}
 
+		if (identityMap != null) {
+
+			final Object mapped = findIdentity(identityKey(bc, values));
+
+			final Object[] known = mapped != null ? getFullSnapshot(mapped, bc) : null;
+
+			if (known != null) {
+
+				if (DEBUG) {
+					System.out.println("LOAD FROM SESSION: " + bc.getBeanClass().getSimpleName() + " " + cacheKey(values));
+				}
+
+				// a copy, as the values are already in the other instance...
+				loadFromValues(bean, bc, EntityCache.copy(known), properties, minus);
+
+				return true;
+			}
+		}
+
+		final EntityCache cache = bc.getCache();
+
+		final Object cacheKey = cache != null ? cacheKey(values) : null;
+
+		// taken before the select, so a row evicted meanwhile is not put back...
+		final long stamp = cache != null ? cache.stamp(cacheKey) : 0;
+
+		if (cache != null) {
+
+			final Object[] cached = cache.get(cacheKey);
+
+			if (cached != null && cached.length == bc.getNumberOfFields()) {
+
+				if (DEBUG) {
+					System.out.println("LOAD FROM CACHE: " + bc.getBeanClass().getSimpleName() + " " + cacheKey);
+				}
+
+				loadFromValues(bean, bc, cached, properties, minus);
+
+				return true;
+			}
+		}
+
 		if (conn == null) {
 			throw new BeanException("Connection is null!");
 		}
@@ -362,15 +982,15 @@ public class AnsiSQLBeanSession implements BeanSession {
 
 			index = 0;
 
-			final Map<String, Value> fieldsLoaded = new HashMap<String, Value>();
+			final Object[] snapshot = newSnapshot(bc);
 
 			if (rset.next()) {
 
-				iter = bc.fields();
+				final int size = bc.getNumberOfFields();
 
-				while (iter.hasNext()) {
+				for (int i = 0; i < size; i++) {
 
-					final DBField f = iter.next();
+					final DBField f = bc.getField(i);
 
 					final String fieldName = f.getName();
 					
@@ -391,7 +1011,7 @@ public class AnsiSQLBeanSession implements BeanSession {
 
 					injectValue(bean, fieldName, value, type.getTypeClass());
 
-					fieldsLoaded.put(fieldName, new Value(f, value));
+					snapshot[i] = value;
 				}
 
 			} else {
@@ -402,7 +1022,12 @@ public class AnsiSQLBeanSession implements BeanSession {
 				throw new BeanException("Load returned more than one row!");
 			}
 
-			loaded.put(bean, fieldsLoaded);
+			// not the rows written by this session before the commit...
+			if (cache != null && properties == null && minus == null && !evicted.containsKey(cache)) {
+				cache.put(cacheKey, snapshot, stamp);
+			}
+
+			attach(bean, snapshot);
 
 			return true;
 
@@ -416,6 +1041,239 @@ public class AnsiSQLBeanSession implements BeanSession {
 		}
 	}
 	
+	/**
+	 * Populate and attach a bean from the column values of a row already known (cached or loaded before), without going to the database.
+	 * 
+	 * @param bean
+	 * @param bc
+	 * @param row
+	 *            the column values aligned to the field index
+	 * @param properties
+	 * @param minus
+	 */
+	private void loadFromValues(final Object bean, final BeanConfig bc, final Object[] row, final String[] properties, final String[] minus) {
+
+		final Object[] snapshot = newSnapshot(bc);
+
+		for (int i = 0; i < row.length; i++) {
+
+			final DBField f = bc.getField(i);
+
+			if (!isSelected(bc, f, properties, minus, true)) {
+				continue;
+			}
+
+			injectValue(bean, f.getName(), row[i], f.getType().getTypeClass());
+
+			snapshot[i] = row[i];
+		}
+
+		attach(bean, snapshot);
+	}
+
+	/**
+	 * Return the key of the second-level cache for these primary key values.
+	 * 
+	 * @param pks
+	 *            the values of all the primary keys
+	 * @return the key
+	 */
+	protected Object cacheKey(final List<Value> pks) {
+
+		if (pks.size() == 1) {
+			return pks.get(0).value;
+		}
+
+		final Object[] key = new Object[pks.size()];
+
+		int index = 0;
+
+		for (Value v : pks) {
+			key[index++] = v.value;
+		}
+
+		return Arrays.asList(key);
+	}
+
+	/**
+	 * Evict the row of this bean from the second-level cache of its BeanConfig, if any. When the primary key is null or not set (see isSet, ex: deleteAll)
+	 * the whole cache is cleared.
+	 * 
+	 * @param bean
+	 */
+	protected void evict(final Object bean) {
+
+		final BeanConfig bc = getConfigFor(bean.getClass());
+
+		if (bc == null || bc.getCache() == null) {
+			return;
+		}
+
+		final List<Value> pks = new ArrayList<Value>(bc.getNumberOfPKs());
+
+		final Iterator<DBField> iter = bc.pks();
+
+		Object key = ALL_ROWS;
+
+		while (iter.hasNext()) {
+
+			final DBField f = iter.next();
+
+			final Method m = findMethodToGet(bean, f.getName());
+
+			final Object value = getValueFromBean(bean, f.getName(), m);
+
+			if (value == null || (m != null && !isSet(value, m.getReturnType()))) {
+				break;
+			}
+
+			pks.add(new Value(f, value));
+		}
+
+		if (pks.size() == bc.getNumberOfPKs()) {
+			key = cacheKey(pks);
+		}
+
+		evict(bc.getCache(), key);
+
+		if (inTransaction()) {
+
+			Set<Object> keys = evicted.get(bc.getCache());
+
+			if (keys == null) {
+				keys = new HashSet<Object>();
+				evicted.put(bc.getCache(), keys);
+			}
+
+			keys.add(key);
+		}
+	}
+
+	private static void evict(final EntityCache cache, final Object key) {
+
+		if (key == ALL_ROWS) {
+			cache.clear();
+		} else {
+			cache.remove(key);
+		}
+	}
+
+	/**
+	 * Whether the connection is in a transaction, in other words, not in auto commit.
+	 */
+	private boolean inTransaction() {
+
+		try {
+
+			return conn != null && !conn.getAutoCommit();
+
+		} catch (SQLException e) {
+
+			throw new BeanException(e);
+		}
+	}
+
+	@Override
+	public void commit() {
+
+		try {
+
+			conn.commit();
+
+		} catch (SQLException e) {
+
+			throw new BeanException(e);
+
+		} finally {
+
+			endTransaction();
+		}
+	}
+
+	@Override
+	public void rollback() {
+
+		try {
+
+			conn.rollback();
+
+		} catch (SQLException e) {
+
+			throw new BeanException(e);
+
+		} finally {
+
+			endTransaction();
+		}
+	}
+
+	/**
+	 * Evict again the rows written in the transaction, as another session may have cached their old values before the commit (or this one its new values
+	 * before the rollback). The same for the query results that read the tables written.
+	 */
+	protected void endTransaction() {
+
+		for (Map.Entry<EntityCache, Set<Object>> e : evicted.entrySet()) {
+			for (Object key : e.getValue()) {
+				evict(e.getKey(), key);
+			}
+		}
+
+		evicted.clear();
+
+		if (queryCache != null) {
+			for (String table : invalidated) {
+				queryCache.invalidate(table);
+			}
+		}
+
+		invalidated.clear();
+	}
+
+	/**
+	 * Invalidate the cached query results that read from the table of this bean, if the session has a query cache.
+	 * 
+	 * @param bean
+	 */
+	protected void invalidate(final Object bean) {
+
+		if (queryCache == null) {
+			return;
+		}
+
+		final BeanConfig bc = getConfigFor(bean.getClass());
+
+		if (bc != null) {
+
+			queryCache.invalidate(bc.getTableName());
+
+			if (inTransaction()) {
+				invalidated.add(bc.getTableName().toLowerCase(Locale.ENGLISH));
+			}
+		}
+	}
+
+	/**
+	 * Cache the rows of a query in the query cache, unless the current transaction wrote to one of the tables it read, as it may not be committed yet.
+	 * 
+	 * @param sql
+	 * @param params
+	 * @param rows
+	 *            the values of each row
+	 * @param tables
+	 *            the tables read by the query
+	 */
+	void cacheResult(final String sql, final List<Object> params, final List<Object[]> rows, final Collection<String> tables) {
+
+		for (String table : tables) {
+			if (invalidated.contains(table.toLowerCase(Locale.ENGLISH))) {
+				return;
+			}
+		}
+
+		queryCache.put(sql, params, rows, tables);
+	}
+
 	private Object getDeepestBean(Object target, String name, boolean create) {
 		
 		int index;
@@ -455,21 +1313,76 @@ public class AnsiSQLBeanSession implements BeanSession {
 				throw new BeanException("Cannot find property type: " + target.getClass() + " " + name);
 			}
 			
-			try {
-				
-				value = beanClass.newInstance();
-				
-			} catch(Exception e) {
-				
-				value = getAbstractValue(target.getClass(), name);
-			}
+			final BeanConfig targetConfig = getConfigFor(target.getClass());
+			
+			if (targetConfig != null && targetConfig.isLazy(name)) {
+				
+				value = newLazyInstance(targetConfig, name, beanClass);
+				
+			} else {
+			
+    			try {
+    				
+    				value = beanClass.newInstance();
+    				
+    			} catch(Exception e) {
+    				
+    				value = getAbstractValue(target.getClass(), name);
+    			}
+			}
+			
+			// don't forget to inject in the target so next time it is there...
+			
+			injectValue(target, name, value, beanClass);
+		}
+		
+		return value;
+	}
+	
+	private Object newLazyInstance(final BeanConfig targetConfig, final String name, final Class<?> beanClass) {
+		
+		final BeanConfig bc = getConfigFor(beanClass);
+		
+		if (bc == null) {
+			throw new BeanException("Cannot find bean config for lazy property: " + targetConfig.getBeanClass() + " " + name);
+		}
+		
+		List<LazyLoading.Handler> siblings = null;
+		
+		if (lazySiblings != null && targetConfig.isLazyBatch(name)) {
+			
+			final Object key = Arrays.asList(targetConfig, name);
 			
-			// don't forget to inject in the target so next time it is there...
+			siblings = lazySiblings.get(key);
 			
-			injectValue(target, name, value, beanClass);
+			if (siblings == null) {
+				siblings = new ArrayList<LazyLoading.Handler>();
+				lazySiblings.put(key, siblings);
+			}
 		}
 		
-		return value;
+		return LazyLoading.newInstance(this, bc, siblings);
+	}
+	
+	/**
+	 * Start grouping the lazy proxies created from now on, so the ones of the same property are loaded together. Called when populating a list.
+	 * 
+	 * @return false if already grouping, so it should not be ended by the caller
+	 */
+	protected boolean beginLazyBatch() {
+		
+		if (lazySiblings != null) {
+			return false;
+		}
+		
+		lazySiblings = new HashMap<Object, List<LazyLoading.Handler>>();
+		
+		return true;
+	}
+	
+	protected void endLazyBatch() {
+		
+		lazySiblings = null;
 	}
 	
 	private Object getAbstractValue(Class<? extends Object> clazz, String name) {
@@ -525,7 +1438,7 @@ public class AnsiSQLBeanSession implements BeanSession {
 			
 		}
 
-		final Method m = InjectionUtils.findMethodToInject(bean.getClass(), fieldName, value == null ? valueType : value.getClass());
+		final Method m = PropertyAccessors.of(bean.getClass()).setter(fieldName, value == null ? valueType : value.getClass());
 
 		if (m == null) {
 
@@ -685,6 +1598,10 @@ public class AnsiSQLBeanSession implements BeanSession {
 		if (bc == null) {
 			return null;
 		}
+		
+		if (tablePrefix == null && properties == null && minus == null && bc.isFrozen()) {
+			return bc.getSelectColumns();
+		}
 
 		final StringBuilder sb = new StringBuilder(32 * bc.getNumberOfFields());
 
@@ -735,6 +1652,349 @@ public class AnsiSQLBeanSession implements BeanSession {
 
 	}
 
+	@Override
+	public <E> List<E> fetch(final List<E> beans, final Object... properties) {
+
+		final String[] names = getProperties(properties);
+
+		if (names == null) {
+			throw new BeanException("No property to fetch!");
+		}
+
+		for (String name : names) {
+			fetchImpl(beans, name);
+		}
+
+		return beans;
+	}
+
+	/**
+	 * Load the nested bean of this property for all the beans with chunked IN queries and inject them.
+	 * 
+	 * @param beans
+	 * @param property
+	 *            the nested bean property, maybe a chain like "post.user"
+	 */
+	protected void fetchImpl(final List<?> beans, final String property) {
+
+		final int dot = property.lastIndexOf('.');
+
+		final String[] chain = dot > 0 ? property.substring(0, dot).split("\\.") : new String[0];
+
+		final String name = dot > 0 ? property.substring(dot + 1) : property;
+
+		// the beans holding the property by the id of the nested bean...
+		final Map<Object, List<Object>> owners = new LinkedHashMap<Object, List<Object>>();
+
+		BeanConfig bc = null;
+
+		DBField pk = null;
+
+		for (Object bean : beans) {
+
+			Object owner = bean;
+
+			for (int i = 0; i < chain.length && owner != null; i++) {
+				owner = getValueFromBean(owner, chain[i]);
+			}
+
+			final Object nested = owner != null ? getValueFromBean(owner, name) : null;
+
+			if (nested == null) {
+				continue;
+			}
+
+			if (bc == null) {
+
+				bc = getConfigFor(nested.getClass());
+
+				if (bc == null) {
+					throw new BeanException("Cannot find bean config: " + nested.getClass());
+				}
+
+				if (bc.getNumberOfPKs() != 1) {
+					throw new BeanException("Cannot fetch a bean that does not have one PK: " + bc);
+				}
+
+				pk = bc.pks().next();
+			}
+
+			final Object id = getValueFromBean(nested, pk.getName());
+
+			if (id == null) {
+				continue;
+			}
+
+			List<Object> list = owners.get(id);
+
+			if (list == null) {
+				list = new ArrayList<Object>(2);
+				owners.put(id, list);
+			}
+
+			list.add(owner);
+		}
+
+		if (owners.isEmpty()) {
+			return;
+		}
+
+		final List<Object> ids = new ArrayList<Object>(owners.size());
+
+		for (Object id : owners.keySet()) {
+
+			final Object mapped = identityMap != null ? findIdentity(identityKey(bc, Collections.singletonList(new Value(pk, id)))) : null;
+
+			if (mapped != null && getFullSnapshot(mapped, bc) != null) {
+				injectFetched(owners.get(id), name, mapped);
+			} else {
+				ids.add(id);
+			}
+		}
+
+		final Map<Object, Object[]> rows = selectByIds(bc, pk, ids);
+
+		for (Object id : ids) {
+
+			final Object[] row = rows.get(idKey(id));
+
+			if (row == null) {
+				continue;
+			}
+
+			try {
+
+				final Object item = bc.isDirtyTracking() ? DirtyTracking.newInstance(bc) : bc.getBeanClass().newInstance();
+
+				loadFromValues(item, bc, row, null, null);
+
+				injectFetched(owners.get(id), name, item);
+
+			} catch (BeanException e) {
+
+				throw e;
+
+			} catch (Exception e) {
+
+				throw new BeanException(e);
+			}
+		}
+	}
+
+	/**
+	 * Load the beans by their PK with chunked IN queries, populating and attaching the given instances. Used by the lazy proxies of a list to load all of
+	 * them at once.
+	 * 
+	 * @param bc
+	 * @param beans
+	 * @return the beans not found in the database
+	 */
+	protected List<Object> loadAll(final BeanConfig bc, final List<?> beans) {
+
+		if (bc.getNumberOfPKs() != 1) {
+			throw new BeanException("Cannot load in batch a bean that does not have one PK: " + bc);
+		}
+
+		final DBField pk = bc.pks().next();
+
+		final List<Object> ids = new ArrayList<Object>(beans.size());
+
+		for (Object bean : beans) {
+
+			final Object id = getValueFromBean(bean, pk.getName());
+
+			if (id != null) {
+				ids.add(id);
+			}
+		}
+
+		final Map<Object, Object[]> rows = selectByIds(bc, pk, ids);
+
+		final List<Object> missing = new ArrayList<Object>();
+
+		for (Object bean : beans) {
+
+			final Object id = getValueFromBean(bean, pk.getName());
+
+			final Object[] row = id != null ? rows.get(idKey(id)) : null;
+
+			if (row != null) {
+				loadFromValues(bean, bc, row, null, null);
+			} else {
+				missing.add(bean);
+			}
+		}
+
+		return missing;
+	}
+
+	/**
+	 * Normalize an id so the value from the bean and the value from the database are equal.
+	 */
+	private static Object idKey(final Object id) {
+
+		if (id instanceof Integer || id instanceof Long || id instanceof Short || id instanceof Byte) {
+			return ((Number) id).longValue();
+		}
+
+		return id;
+	}
+
+	/**
+	 * Select the rows with these PKs. More than {@link #FETCH_BATCH_SIZE} ids are bound as a single array when the database supports it (see
+	 * {@link #getArrayInCondition(String, String)}), otherwise they are selected in chunks of {@link #FETCH_BATCH_SIZE}. The IN list of a chunk is padded
+	 * (see {@link ParamValues#paddedSize(int)}) so the number of different statements stays small.
+	 * 
+	 * @param bc
+	 * @param pk
+	 * @param ids
+	 * @return the column values aligned to the field index, by id (see idKey)
+	 */
+	private Map<Object, Object[]> selectByIds(final BeanConfig bc, final DBField pk, final List<Object> ids) {
+
+		final Map<Object, Object[]> rows = new HashMap<Object, Object[]>(ids.size() * 2);
+
+		final String select = buildSelectImpl(bc.getBeanClass(), null, null, null, true, false);
+
+		final int pkIndex = bc.getFieldIndex(pk.getName());
+
+		final String elementType = ids.size() > FETCH_BATCH_SIZE ? getArrayElementType(pk.getType()) : null;
+
+		final String arrayCondition = elementType != null ? getArrayInCondition(pk.getDbName(), elementType) : null;
+
+		final int chunkSize = arrayCondition != null ? ids.size() : FETCH_BATCH_SIZE;
+
+		for (int from = 0; from < ids.size(); from += chunkSize) {
+
+			final List<Object> chunk = ids.subList(from, Math.min(ids.size(), from + chunkSize));
+
+			final int params = arrayCondition != null ? 1 : Math.min(ParamValues.paddedSize(chunk.size()), FETCH_BATCH_SIZE);
+
+			final StringBuilder sb = new StringBuilder(64 + select.length() + 2 * params);
+
+			sb.append("SELECT ").append(select).append(" FROM ").append(bc.getTableName());
+
+			sb.append(" WHERE ");
+
+			if (arrayCondition != null) {
+
+				sb.append(arrayCondition);
+
+			} else {
+
+				sb.append(pk.getDbName()).append(" IN (");
+
+				for (int i = 0; i < params; i++) {
+					sb.append(i > 0 ? ",?" : "?");
+				}
+
+				sb.append(")");
+			}
+
+			PreparedStatement stmt = null;
+
+			ResultSet rset = null;
+
+			try {
+
+				if (DEBUG) {
+					System.out.println("FETCH SQL: " + sb.toString());
+				}
+
+				stmt = conn.prepareStatement(sb.toString());
+
+				if (arrayCondition != null) {
+
+					bindArray(stmt, 1, elementType, chunk.toArray());
+
+				} else {
+
+					for (int i = 0; i < params; i++) {
+						// padding with the last id...
+						pk.getType().bindToStmt(stmt, i + 1, chunk.get(Math.min(i, chunk.size() - 1)));
+					}
+				}
+
+				rset = stmt.executeQuery();
+
+				if (DEBUG_NATIVE) {
+					System.out.println("FETCH SQL (NATIVE): " + stmt);
+				}
+
+				final int size = bc.getNumberOfFields();
+
+				while (rset.next()) {
+
+					final Object[] row = new Object[size];
+
+					for (int i = 0; i < size; i++) {
+						row[i] = bc.getField(i).getType().getFromResultSet(rset, i + 1);
+					}
+
+					rows.put(idKey(row[pkIndex]), row);
+				}
+
+			} catch (Exception e) {
+
+				throw new BeanException(e);
+
+			} finally {
+
+				close(stmt, rset);
+			}
+		}
+
+		return rows;
+	}
+
+	private void injectFetched(final List<Object> owners, final String name, final Object nested) {
+
+		for (Object owner : owners) {
+
+			// setting the nested bean must not make a tracked owner dirty...
+			final BitSet dirty = DirtyTracking.getDirtyFields(owner);
+
+			final BitSet before = dirty != null ? (BitSet) dirty.clone() : null;
+
+			injectValue(owner, name, nested, nested.getClass());
+
+			if (dirty != null) {
+				dirty.clear();
+				dirty.or(before);
+			}
+		}
+	}
+
+	/**
+	 * Check whether a field should be selected (or populated) according to the properties and minus filters.
+	 * 
+	 * @param bc
+	 * @param field
+	 * @param properties
+	 *            only these properties, or null for all
+	 * @param minus
+	 *            all but these properties, or null for none
+	 * @param includePK
+	 *            whether the PK is always included regardless of the filters
+	 * @return true if the field is selected
+	 */
+	protected boolean isSelected(final BeanConfig bc, final DBField field, final String[] properties, final String[] minus, final boolean includePK) {
+
+		if (field.isPK() && includePK) {
+			return true;
+		}
+
+		if (properties != null && !checkArray(field.getName(), properties, bc)) {
+			return false;
+		}
+
+		if (minus != null && checkArray(field.getName(), minus, bc)) {
+			return false;
+		}
+
+		return true;
+	}
+
 	private boolean checkArray(final String value, final String[] array, final BeanConfig bc) {
 
 		String column = propertyToColumn(bc, value);
@@ -884,7 +2144,7 @@ public class AnsiSQLBeanSession implements BeanSession {
 	@Override
 	public <E> List<E> loadListMinus(final E bean, final OrderBy orderBy, final Limit limit, final Object... minus) {
 		
-		return loadListImpl(bean, orderBy, limit, null, getProperties(minus));
+		return loadListImpl(bean, orderBy, limit, null, getProperties(minus), null);
 	}
 
 	private <E> E checkUnique(final List<E> list) {
@@ -901,48 +2161,93 @@ public class AnsiSQLBeanSession implements BeanSession {
 	@Override
 	public <E> List<E> loadList(final E bean, final OrderBy orderBy, final Limit limit) {
 
-		return loadListImpl(bean, orderBy, limit, null, null);
+		return loadListImpl(bean, orderBy, limit, null, null, null);
+	}
+
+	@Override
+	public <E> List<E> loadList(final E bean, final OrderBy orderBy, final Limit limit, final QueryOptions options) {
+
+		return loadListImpl(bean, orderBy, limit, null, null, options);
 	}
 
 	@Override
 	public <E> List<E> loadList(final E bean, final OrderBy orderBy, final Limit limit, Object... properties) {
 		
-		return loadListImpl(bean, orderBy, limit, getProperties(properties), null);
+		return loadListImpl(bean, orderBy, limit, getProperties(properties), null, null);
 	}
 
 	private <E> StringBuilder prepareListQuery(StringBuilder sb, BeanConfig bc, E bean, OrderBy orderBy, Limit limit, List<Value> values) {
 
-		sb.append(" FROM ").append(bc.getTableName()).append(" ");
+		return appendListQuery(sb, bc, listValues(bc, bean, values), orderBy, limit);
+	}
 
-		Iterator<DBField> iter = bc.fields();
+	/**
+	 * Find the properties of the bean used by a list query, the ones set (see isSet), adding their values to <code>values</code>. The getters are the
+	 * ones compiled for the bean config (see BeanDiffer), so only the fields whose getters cannot be found from the declared types are looked up here.
+	 * 
+	 * @return the indexes of the fields set
+	 */
+	private BitSet listValues(final BeanConfig bc, final Object bean, final List<Value> values) {
 
-		int count = 0;
+		final BeanDiffer getters = BeanDiffer.of(bc);
 
-		while (iter.hasNext()) {
+		final int size = getters.size();
 
-			final DBField field = iter.next();
+		final BitSet set = new BitSet(size);
 
-			final String dbField = field.getDbName();
+		for (int index = 0; index < size; index++) {
 
-			final Method m = findMethodToGet(bean, field.getName());
-			
-			boolean isNestedProperty = field.getName().contains(".");
+			final DBField field = getters.field(index);
+
+			final Class<? extends Object> returnType;
+
+			final Object value;
+
+			if (getters.hasGetters(index)) {
+
+				returnType = getters.getter(this, bean, index).getReturnType();
+
+				value = getters.read(this, bean, index); // null if a nested bean is null...
+
+			} else {
+
+				final Method m = findMethodToGet(bean, field.getName());
+
+				if (m == null) {
+					if (!field.getName().contains(".")) {
+						throw new BeanException("Cannot find method to get field from bean: " + field.getName());
+					} else {
+						continue; // nested property not set!
+					}
+				}
+
+				returnType = m.getReturnType();
+
+				value = getValueFromBean(bean, field.getName(), m);
+			}
+
+			if (!isSet(value, returnType)) {
+				continue;
+			}
+
+			set.set(index);
+
+			values.add(new Value(field, value));
+		}
+
+		return set;
+	}
 
-			if (m == null) {
-				if (!isNestedProperty) {
-					throw new BeanException("Cannot find method to get field from bean: " + field.getName());
-				} else {
-					continue; // nested property not set!
-				}
-			}
+	/**
+	 * Append the FROM, WHERE (by the fields set), ORDER BY and limit of a list query.
+	 */
+	private StringBuilder appendListQuery(StringBuilder sb, final BeanConfig bc, final BitSet set, final OrderBy orderBy, final Limit limit) {
 
-			final Class<? extends Object> returnType = m.getReturnType();
+		sb.append(" FROM ").append(bc.getTableName()).append(" ");
 
-			final Object value = getValueFromBean(bean, field.getName(), m);
+		int count = 0;
 
-			if (!isSet(value, returnType)) {
-				continue;
-			}
+		for (int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1)) {
 
 			if (count++ > 0) {
 				sb.append(" AND ");
@@ -950,9 +2255,7 @@ public class AnsiSQLBeanSession implements BeanSession {
 				sb.append(" WHERE ");
 			}
 
-			sb.append(dbField).append("=?");
-
-			values.add(new Value(field, value));
+			sb.append(bc.getField(i).getDbName()).append("=?");
 		}
 
 		sb.append(buildOrderBy(orderBy, bc));
@@ -1038,10 +2341,15 @@ public class AnsiSQLBeanSession implements BeanSession {
 
 	@Override
 	public int countList(Object bean) {
-		return countListImpl(bean, null, null);
+		return countListImpl(bean, null, null, null);
+	}
+
+	@Override
+	public int countList(Object bean, QueryOptions options) {
+		return countListImpl(bean, null, null, options);
 	}
 
-	private int countListImpl(final Object bean, final OrderBy orderBy, final Limit limit) {
+	private int countListImpl(final Object bean, final OrderBy orderBy, final Limit limit, final QueryOptions options) {
 
 		if (limit != null && limit.intValue() == 0) {
 			return 0;
@@ -1053,13 +2361,26 @@ public class AnsiSQLBeanSession implements BeanSession {
 			throw new BeanException("Cannot find bean config: " + bean.getClass());
 		}
 
-		StringBuilder sb = new StringBuilder(32 * bc.getNumberOfFields());
+		final List<Value> values = new LinkedList<Value>();
 
-		sb.append("SELECT count(1)");
+		final BitSet set = listValues(bc, bean, values);
 
-		final List<Value> values = new LinkedList<Value>();
+		final Object shape = listShape("COUNT", set, null, null, orderBy);
+
+		String cached = bc.getCachedQuery(shape);
+
+		if (cached == null) {
+
+			StringBuilder sb = new StringBuilder(32 * bc.getNumberOfFields());
+
+			sb.append("SELECT count(1)");
+
+			cached = appendListQuery(sb, bc, set, orderBy, null).toString();
 
-		sb = prepareListQuery(sb, bc, bean, orderBy, limit, values);
+			bc.cacheQuery(shape, cached);
+		}
+
+		final String sql = withLimit(cached, orderBy, limit);
 
 		PreparedStatement stmt = null;
 
@@ -1067,13 +2388,11 @@ public class AnsiSQLBeanSession implements BeanSession {
 
 		try {
 
-			final String sql = sb.toString();
-
 			if (DEBUG) {
 				System.out.println("COUNT LIST: " + sql);
 			}
 
-			stmt = conn.prepareStatement(sql);
+			stmt = prepareStatement(sql, options);
 
 			final Iterator<Value> iter2 = values.iterator();
 
@@ -1087,7 +2406,13 @@ public class AnsiSQLBeanSession implements BeanSession {
 
 			}
 
+			final long start = System.nanoTime();
+
 			rset = stmt.executeQuery();
+
+			if (slowQueryThreshold > 0) {
+				checkSlowQuery(sql, start, typesOf(values), valuesOf(values));
+			}
 			
 			if (DEBUG_NATIVE) {
 				System.out.println("COUNT LIST (NATIVE): "+stmt);
@@ -1107,18 +2432,64 @@ public class AnsiSQLBeanSession implements BeanSession {
 		}
 	}
 
-	private <E> List<E> loadListImpl(final E bean, final OrderBy orderBy, final Limit limit, final String[] properties, final String[] minus) {
+	/**
+	 * Build the query of loadList, adding the values of the bean properties used by the query to <code>values</code>. The SQL depends only on which
+	 * properties are set, so it is kept by the BeanConfig for each combination of them, projection and order. The limit is applied afterwards.
+	 */
+	private String buildListQuery(final BeanConfig bc, final Object bean, final OrderBy orderBy, final Limit limit, final String[] properties,
+			final String[] minus, final List<Value> values) {
+
+		return buildListQuery(bc, bean, orderBy, limit, properties, minus, true, values);
+	}
+
+	/**
+	 * Build the SQL of a list query, cached by its shape.
+	 * 
+	 * @param includePK
+	 *            whether the PKs are always selected (beans) or only when in the properties (columns)
+	 */
+	private String buildListQuery(final BeanConfig bc, final Object bean, final OrderBy orderBy, final Limit limit, final String[] properties,
+			final String[] minus, final boolean includePK, final List<Value> values) {
 
-		if (limit != null && limit.intValue() == 0) {
-			return new ArrayList<E>();
+		final BitSet set = listValues(bc, bean, values);
+
+		final Object shape = listShape(includePK ? "SELECT" : "COLUMNS", set, properties, minus, orderBy);
+
+		String sql = bc.getCachedQuery(shape);
+
+		if (sql == null) {
+
+			sql = appendListQuery(selectList(bc, properties, minus, includePK), bc, set, orderBy, null).toString();
+
+			bc.cacheQuery(shape, sql);
 		}
 
-		final BeanConfig bc = getConfigFor(bean.getClass());
+		return withLimit(sql, orderBy, limit);
+	}
 
-		if (bc == null) {
-			throw new BeanException("Cannot find bean config: " + bean.getClass());
+	/**
+	 * Apply the limit of the dialect (see handleLimit) to the SQL of a list query taken from the cache, so the value of the limit is not part of its shape.
+	 */
+	private String withLimit(final String sql, final OrderBy orderBy, final Limit limit) {
+
+		if (limit == null || limit.intValue() <= 0) {
+			return sql;
 		}
 
+		return handleLimit(new StringBuilder(sql), orderBy, limit).toString();
+	}
+
+	/**
+	 * The key of the SQL of a list query: everything it depends on besides the BeanConfig.
+	 */
+	private Object listShape(final String kind, final BitSet set, final String[] properties, final String[] minus, final OrderBy orderBy) {
+
+		return Arrays.asList(getClass(), kind, set, properties != null ? Arrays.asList(properties) : null, minus != null ? Arrays.asList(minus) : null,
+				orderBy != null && !orderBy.isEmpty() ? orderBy.toString() : null);
+	}
+
+	private StringBuilder selectList(final BeanConfig bc, final String[] properties, final String[] minus, final boolean includePK) {
+
 		StringBuilder sb = new StringBuilder(32 * bc.getNumberOfFields());
 
 		Iterator<DBField> iter = bc.fields();
@@ -1131,114 +2502,315 @@ public class AnsiSQLBeanSession implements BeanSession {
 
 			final DBField field = iter.next();
 
-			final String dbField = field.getDbName();
-
-			final String name = field.getName();
-
-			if (!field.isPK()) {
-			
-    			if (properties != null && !checkArray(name, properties, bc)) {
-    				continue;
-    			}
-    
-    			if (minus != null && checkArray(name, minus, bc)) {
-    				continue;
-    			}
+			if (!isSelected(bc, field, properties, minus, includePK)) {
+				continue;
 			}
 
 			if (count++ > 0) {
 				sb.append(",");
 			}
 
-			sb.append(dbField);
+			sb.append(field.getDbName());
+		}
+
+		return sb;
+	}
+
+	private <E> List<E> loadListImpl(final E bean, final OrderBy orderBy, final Limit limit, final String[] properties, final String[] minus, final QueryOptions options) {
+
+		if (limit != null && limit.intValue() == 0) {
+			return new ArrayList<E>();
+		}
+
+		final BeanConfig bc = getConfigFor(bean.getClass());
+
+		if (bc == null) {
+			throw new BeanException("Cannot find bean config: " + bean.getClass());
 		}
 
 		final List<Value> values = new LinkedList<Value>();
 
-		sb = prepareListQuery(sb, bc, bean, orderBy, limit, values);
+		final String sql = buildListQuery(bc, bean, orderBy, limit, properties, minus, values);
 
 		PreparedStatement stmt = null;
 
 		ResultSet rset = null;
 
-		try {
+		final QueryCache cache = getQueryCache(options);
 
-			final String sql = sb.toString();
-			
-			if (DEBUG) {
-				System.out.println("LOAD LIST: "+sql);
-			}
-			
-			stmt = conn.prepareStatement(sql);
+		List<Object> params = null;
 
-			final Iterator<Value> iter2 = values.iterator();
+		List<Object[]> rows = null;
 
-			int index = 0;
+		List<Object[]> read = null;
 
-			while (iter2.hasNext()) {
+		final boolean lazyBatch = beginLazyBatch();
 
-				final Value v = iter2.next();
+		try {
 
-				v.field.getType().bindToStmt(stmt, ++index, v.value);
+			if (cache != null) {
+
+				params = new ArrayList<Object>(values.size());
+
+				for (Value v : values) {
+					params.add(v.value);
+				}
 
+				rows = cache.get(sql, params);
 			}
 
-			rset = stmt.executeQuery();
+			if (rows != null) {
+
+				if (DEBUG) {
+					System.out.println("LOAD LIST FROM CACHE: " + sql);
+				}
+
+			} else {
 			
-			if (DEBUG_NATIVE) {
-				System.out.println("LOAD LIST (NATIVE): " + stmt);
+				if (DEBUG) {
+					System.out.println("LOAD LIST: "+sql);
+				}
+				
+				stmt = prepareStatement(sql, options);
+	
+				final Iterator<Value> iter2 = values.iterator();
+	
+				int index = 0;
+	
+				while (iter2.hasNext()) {
+	
+					final Value v = iter2.next();
+	
+					v.field.getType().bindToStmt(stmt, ++index, v.value);
+	
+				}
+	
+				final long start = System.nanoTime();
+
+				rset = stmt.executeQuery();
+
+				if (slowQueryThreshold > 0) {
+					checkSlowQuery(sql, start, typesOf(values), valuesOf(values));
+				}
+				
+				if (DEBUG_NATIVE) {
+					System.out.println("LOAD LIST (NATIVE): " + stmt);
+				}
+
+				if (cache != null) {
+					read = new ArrayList<Object[]>();
+				}
 			}
 
 			final List<E> results = new LinkedList<E>();
 
 			final Class<? extends Object> beanKlass = bean.getClass();
 
+			final Iterator<Object[]> cached = rows != null ? rows.iterator() : null;
+
+			final int size = bc.getNumberOfFields();
+
+			final boolean[] selected = new boolean[size];
+
+			for (int i = 0; i < size; i++) {
+				selected[i] = isSelected(bc, bc.getField(i), properties, minus, true);
+			}
+
 			int total = 0;
 
-			while (rset.next()) {
+			while (cached != null ? cached.hasNext() : rset.next()) {
 
-				iter = bc.fields();
+				// the values of the selected fields, aligned to the field index...
+				final Object[] row;
 
-				index = 0;
+				if (cached != null) {
 
-				final E item = (E) beanKlass.newInstance(); // not sure how to
-															// handle generics
-															// here...
+					row = cached.next();
 
-				while (iter.hasNext()) {
+				} else {
 
-					final DBField f = iter.next();
+					row = new Object[size];
 
-					final String fieldName = f.getName();
-					
-					if (!f.isPK()) {
+					int index = 0;
 
-    					if (properties != null && !checkArray(fieldName, properties, bc)) {
-    						continue;
-    					}
-    
-    					if (minus != null && checkArray(fieldName, minus, bc)) {
-    						continue;
-    					}
+					for (int i = 0; i < size; i++) {
+						if (selected[i]) {
+							row[i] = bc.getField(i).getType().getFromResultSet(rset, ++index);
+						}
 					}
 
-					final DBType type = f.getType();
+					if (read != null) {
+						read.add(row);
+					}
+				}
 
-					final Object value = type.getFromResultSet(rset, ++index);
+				// not sure how to handle generics here...
+				final E item = (E) (bc.isDirtyTracking() ? DirtyTracking.newInstance(bc) : beanKlass.newInstance());
+
+				final Object[] snapshot = identityMap != null ? newSnapshot(bc) : null;
+
+				for (int i = 0; i < size; i++) {
+
+					if (!selected[i]) {
+						continue;
+					}
+
+					final DBField f = bc.getField(i);
 
-					injectValue(item, fieldName, value, type.getTypeClass());
+					injectValue(item, f.getName(), row[i], f.getType().getTypeClass());
+
+					if (snapshot != null) {
+						snapshot[i] = row[i];
+					}
 				}
 
-				results.add(item);
+				DirtyTracking.clear(item);
+
+				if (snapshot != null) {
+
+					// return the instance already in this session, if fully loaded...
+					final Object key = identityKey(bc, item);
+
+					final Object mapped = key != null ? findIdentity(key) : null;
+
+					if (mapped != null && getFullSnapshot(mapped, bc) != null) {
+
+						results.add((E) mapped);
+
+					} else {
+
+						attach(item, snapshot);
+
+						results.add(item);
+					}
+
+				} else {
+
+					results.add(item);
+				}
 
 				total++;
 
 				if (limit != null && limit.intValue() > 0 && total == limit.intValue()) {
-					return results;
+					break;
+				}
+			}
+
+			if (read != null) {
+				cacheResult(sql, params, read, Collections.singleton(bc.getTableName()));
+			}
+
+			return results;
+
+		} catch (Exception e) {
+
+			throw new BeanException(e);
+
+		} finally {
+
+			if (lazyBatch) {
+				endLazyBatch();
+			}
+
+			close(stmt, rset);
+		}
+	}
+
+	@Override
+	public ColumnarResult loadColumns(final Object bean, Object... properties) {
+
+		return loadColumnsImpl(bean, null, null, getProperties(properties), null);
+	}
+
+	@Override
+	public ColumnarResult loadColumns(final Object bean, final OrderBy orderBy, final Limit limit, Object... properties) {
+
+		return loadColumnsImpl(bean, orderBy, limit, getProperties(properties), null);
+	}
+
+	@Override
+	public ColumnarResult loadColumns(final Object bean, final OrderBy orderBy, final Limit limit, final QueryOptions options, Object... properties) {
+
+		return loadColumnsImpl(bean, orderBy, limit, getProperties(properties), options);
+	}
+
+	private ColumnarResult loadColumnsImpl(final Object bean, final OrderBy orderBy, final Limit limit, final String[] properties, final QueryOptions options) {
+
+		final ColumnarResult result = new ColumnarResult();
+
+		if (limit != null && limit.intValue() == 0) {
+			return result;
+		}
+
+		final BeanConfig bc = getConfigFor(bean.getClass());
+
+		if (bc == null) {
+			throw new BeanException("Cannot find bean config: " + bean.getClass());
+		}
+
+		final Iterator<DBField> iter = bc.fields();
+
+		while (iter.hasNext()) {
+
+			final DBField field = iter.next();
+
+			// the same columns of the select, the PK only if asked for...
+			if (isSelected(bc, field, properties, null, false)) {
+				result.addColumn(field.getName(), field.getType());
+			}
+		}
+
+		final List<Value> values = new LinkedList<Value>();
+
+		final String sql = buildListQuery(bc, bean, orderBy, limit, properties, null, false, values);
+
+		PreparedStatement stmt = null;
+
+		ResultSet rset = null;
+
+		try {
+
+			if (DEBUG) {
+				System.out.println("LOAD COLUMNS: " + sql);
+			}
+
+			stmt = prepareStatement(sql, options);
+
+			final Iterator<Value> iter2 = values.iterator();
+
+			int index = 0;
+
+			while (iter2.hasNext()) {
+
+				final Value v = iter2.next();
+
+				v.field.getType().bindToStmt(stmt, ++index, v.value);
+			}
+
+			final long start = System.nanoTime();
+
+			rset = stmt.executeQuery();
+
+			if (slowQueryThreshold > 0) {
+				checkSlowQuery(sql, start, typesOf(values), valuesOf(values));
+			}
+
+			if (DEBUG_NATIVE) {
+				System.out.println("LOAD COLUMNS (NATIVE): " + stmt);
+			}
+
+			while (rset.next()) {
+
+				result.addRow(rset, 1);
+
+				if (limit != null && limit.intValue() > 0 && result.size() == limit.intValue()) {
+					break;
 				}
 			}
 
-			return results;
+			result.done();
+
+			return result;
 
 		} catch (Exception e) {
 
@@ -1316,14 +2888,16 @@ public class AnsiSQLBeanSession implements BeanSession {
 
 	private boolean update(final Object bean, final boolean dynUpdate, String[] nullProps) {
 
-		final Map<String, Value> fieldsLoaded = loaded.get(bean);
-
 		final BeanConfig bc = getConfigFor(bean.getClass());
 
 		if (bc == null) {
 			throw new BeanException("Cannot find bean config: " + bean.getClass());
 		}
 
+		final Object[] snapshot = getSnapshot(bean, bc);
+
+		final BitSet dirty = DirtyTracking.getDirtyFields(bean);
+
 		if (bc.getNumberOfFields() == 0) {
 			throw new BeanException("BeanConfig has zero fields: " + bc);
 		}
@@ -1338,10 +2912,14 @@ public class AnsiSQLBeanSession implements BeanSession {
 
 		final List<Value> values = new LinkedList<Value>();
 		
+		int fieldIndex = -1;
+		
 		while (iter.hasNext()) {
 
 			final DBField dbField = iter.next();
 
+			fieldIndex++;
+
 			if (dbField.isPK()) {
 				continue;
 			}
@@ -1364,6 +2942,10 @@ public class AnsiSQLBeanSession implements BeanSession {
 
 			if (!isNowOnUpdate) {
 				
+				if (dynUpdate && dirty != null && !dirty.get(fieldIndex) && (snapshot == null || snapshot[fieldIndex] == NOT_LOADED)) {
+					continue; // setter was not called since it was loaded...
+				}
+				
 				Method m = findMethodToGet(bean, fieldName);
 				
 				Object value = null;
@@ -1389,22 +2971,24 @@ public class AnsiSQLBeanSession implements BeanSession {
 
 					update = true;
 
-				} else if (fieldsLoaded != null) {
+				} else if (dirty != null && dirty.get(fieldIndex)) {
+
+					// this is a dynUpdate of a tracked bean and its setter was called...
+
+					update = true;
+
+				} else if (snapshot != null) {
 
 					// this is a dynUpdate, check if value is dirty, in other words,
 					// if it has changed since it was loaded...
 
-					final Value v = fieldsLoaded.get(fieldName);
+					final Object old = snapshot[fieldIndex];
 
-					if (v != null) {
-						if (value == null && v.value != null) {
-							update = true;
-						} else if (value != null && v.value == null) {
-							update = true;
-						} else if (value == null && v.value == null) {
-							update = false;
+					if (old != NOT_LOADED) {
+						if (value == null) {
+							update = old != null;
 						} else {
-							update = !value.equals(v.value);
+							update = !value.equals(old);
 						}
 					}
 
@@ -1465,15 +3049,24 @@ public class AnsiSQLBeanSession implements BeanSession {
 			return false;
 		}
 
+		return executeUpdate(bean, bc, sb, values, dirty, snapshot);
+	}
+
+	/**
+	 * Append the PKs of the bean to an UPDATE with its SET clause and values, execute it and update the dirty fields or the snapshot of the bean.
+	 */
+	private boolean executeUpdate(final Object bean, final BeanConfig bc, final StringBuilder sb, final List<Value> values, final BitSet dirty,
+			final Object[] snapshot) {
+
 		sb.append(" WHERE ");
 
 		if (!bc.hasPK()) {
 			throw new BeanException("Cannot update bean without a PK!");
 		}
 
-		iter = bc.pks();
+		final Iterator<DBField> iter = bc.pks();
 
-		count = 0;
+		int count = 0;
 
 		while (iter.hasNext()) {
 
@@ -1553,8 +3146,14 @@ public class AnsiSQLBeanSession implements BeanSession {
 				return false;
 			}
 
-			if (fieldsLoaded != null) {
+			if (dirty != null) {
+
+				dirty.clear();
+			}
+
+			if (snapshot != null) {
 
+				// a tracked bean keeps only its nested properties...
 				iter2 = values.iterator();
 
 				while (iter2.hasNext()) {
@@ -1565,10 +3164,10 @@ public class AnsiSQLBeanSession implements BeanSession {
 						continue;
 					}
 
-					final Value vv = fieldsLoaded.get(v.field.getName());
+					final int i = bc.getFieldIndex(v.field.getName());
 
-					if (vv != null) {
-						vv.value = v.value;
+					if (snapshot[i] != NOT_LOADED) {
+						snapshot[i] = v.value;
 					}
 				}
 			}
@@ -1596,7 +3195,7 @@ public class AnsiSQLBeanSession implements BeanSession {
 			Iterator<DBField> pks = bc.pks();
 			DBField pk = null;
 			Object value = null;
-			E basic = (E) bean.getClass().newInstance();
+			E basic = (E) bc.getBeanClass().newInstance();
 
 			while (pks.hasNext()) {
 				
@@ -1618,96 +3217,182 @@ public class AnsiSQLBeanSession implements BeanSession {
 	
 	@Override
 	public <E> boolean updateDiff(E newBean, E oldBean) {
-		
-		List<String> nullProps = new LinkedList<String>();
-		
-		E diff = compareDifferences(newBean, oldBean, nullProps);
-		
-		return diff == null ? false : update(diff, nullProps.toArray());
+
+		final BeanConfig bc = getConfigFor(newBean.getClass());
+
+		if (bc == null) {
+			throw new BeanException("Cannot find bean config: " + newBean.getClass());
+		}
+
+		final BeanDiffer differ = BeanDiffer.of(bc);
+
+		final Object[] values = new Object[differ.size()];
+
+		final Class<?>[] types = new Class<?>[differ.size()];
+
+		final BitSet nulls = new BitSet(differ.size());
+
+		final BitSet changed = differ.compare(this, newBean, oldBean, values, types, nulls);
+
+		if (changed.isEmpty() && nulls.isEmpty()) {
+			return false;
+		}
+
+		final StringBuilder sb = new StringBuilder(32 * bc.getNumberOfFields());
+
+		sb.append("UPDATE ").append(bc.getTableName()).append(" SET ");
+
+		final List<Value> list = new LinkedList<Value>();
+
+		int count = 0;
+
+		for (int i = 0; i < differ.size(); i++) {
+
+			final DBField dbField = differ.field(i);
+
+			final DBType<?> type = dbField.getType();
+
+			if (dbField.isPK() || type instanceof AutoIncrementType || type instanceof AutoTimestampType) {
+				continue;
+			}
+
+			if (type instanceof NowOnUpdateTimestampType || type instanceof NowOnInsertAndUpdateTimestampType) {
+
+				if (count++ > 0) {
+					sb.append(',');
+				}
+
+				sb.append(dbField.getDbName()).append("=");
+
+				String nowCommand = getCurrentTimestampCommand();
+
+				if (nowCommand == null) {
+
+					sb.append("?");
+
+					list.add(new Value(dbField, new java.util.Date()));
+
+				} else {
+
+					sb.append(nowCommand);
+				}
+
+			} else if (changed.get(i) || nulls.get(i)) {
+
+				if (count++ > 0) {
+					sb.append(',');
+				}
+
+				sb.append(dbField.getDbName()).append("=?");
+
+				list.add(new Value(dbField, nulls.get(i) ? null : values[i]));
+			}
+		}
+
+		if (count == 0) {
+			return false;
+		}
+
+		// the triggers receive a bean with only the PKs and the changed properties, newBean is left as it is...
+		final E diff = diffBean(bc, differ, values, types, changed, nulls, null);
+
+		return executeUpdate(diff, bc, sb, list, null, null);
 	}
-	
+
 	@Override
 	public <E> E compareDifferences(E bean, E another, List<String> nullProps) {
-		
+
+		final BeanConfig bc = getConfigFor(bean.getClass());
+
+		if (bc == null) {
+			throw new BeanException("Cannot find bean config: " + bean.getClass());
+		}
+
+		final BeanDiffer differ = BeanDiffer.of(bc);
+
+		final Object[] values = new Object[differ.size()];
+
+		final Class<?>[] types = new Class<?>[differ.size()];
+
+		final BitSet nulls = new BitSet(differ.size());
+
+		final BitSet changed = differ.compare(this, bean, another, values, types, nulls);
+
+		if (changed.isEmpty() && nulls.isEmpty()) {
+			return null;
+		}
+
+		return diffBean(bc, differ, values, types, changed, nulls, nullProps);
+	}
+
+	/**
+	 * Create a bean with only the PKs and the changed values found by the differ, adding the properties that became null to <code>nullProps</code> (if not
+	 * null).
+	 */
+	private <E> E diffBean(final BeanConfig bc, final BeanDiffer differ, final Object[] values, final Class<?>[] types, final BitSet changed,
+			final BitSet nulls, final List<String> nullProps) {
+
 		try {
-			BeanConfig bc = getConfigFor(bean.getClass());
-			
-			Iterator<DBField> fields = bc.fields();
-			DBField field;
-			Object valueBean, valueAnother;
-			
-			E diff = (E) bean.getClass().newInstance();
-			
-			boolean hasDiff = false;
-			
-			while (fields.hasNext()) {
-				
-				field = fields.next();
-				
-				Method m = findMethodToGet(bean, field.getName());
-				
-				boolean isNestedProperty = field.getName().contains(".");
-				
-				if (m == null) {
-					if (!isNestedProperty) {
-						
-						throw new BeanException("Cannot find method to get field from bean: " + field.getName());
-						
-					} else {
-						
-						int index = field.getName().lastIndexOf(".")+1;
-						
-						Object deepest = getDeepestBean(bean, field.getName().substring(0, index-1), true);
-						
-						String lastField = field.getName().substring(index);
-						
-						m = findMethodToGet(deepest, lastField);
-					}
-				}
 
-				final Class<? extends Object> returnType = m.getReturnType();
-				
-				valueBean = getValueFromBean(bean, field.getName());
+			E diff = (E) bc.getBeanClass().newInstance();
+
+			for (int i = 0; i < differ.size(); i++) {
+
+				final DBField field = differ.field(i);
 
 				if (field.isPK()) {
-					
-					injectValue(diff, field.getName(), valueBean, null);
-					
-					continue;
-				}
-				
-				valueAnother = getValueFromBean(another, field.getName());
-				
-				if (!isSet(valueBean, returnType) && !isSet(valueAnother, returnType)) {
-					
-					continue;
-				}
 
-				if (!isSet(valueBean, returnType)) {
-					
+					injectValue(diff, field.getName(), values[i], null);
+
+				} else if (changed.get(i)) {
+
+					injectValue(diff, field.getName(), values[i], types[i]);
+
+				} else if (nulls.get(i) && nullProps != null) {
+
 					nullProps.add(field.getName());
-					
-					hasDiff = true;
-					
-					continue;
-				}
-				
-				if (!valueBean.equals(valueAnother)) {
-					
-					hasDiff = true;
-					
-					injectValue(diff, field.getName(), valueBean, returnType);
 				}
-				
 			}
-			
-			return hasDiff ? diff : null;
-			
-		}catch(Exception e) {
+
+			return diff;
+
+		} catch (BeanException e) {
+
+			throw e;
+
+		} catch (Exception e) {
+
 			throw new BeanException(e);
 		}
 	}
-	
+
+	/**
+	 * Find the getter of a field of the bean, creating the beans of a nested field that are null to find it.
+	 */
+	Method findGetter(final Object bean, final String fieldName) {
+
+		Method m = findMethodToGet(bean, fieldName);
+
+		if (m == null) {
+
+			int index = fieldName.lastIndexOf(".") + 1;
+
+			if (index == 0) {
+				throw new BeanException("Cannot find method to get field from bean: " + fieldName);
+			}
+
+			Object deepest = getDeepestBean(bean, fieldName.substring(0, index - 1), true);
+
+			m = findMethodToGet(deepest, fieldName.substring(index));
+
+			if (m == null) {
+				throw new BeanException("Cannot find method to get field from bean: " + fieldName);
+			}
+		}
+
+		return m;
+	}
+
 	@Override
 	public int save(final Object bean, Object... forceNull) {
 		
@@ -1780,12 +3465,12 @@ public class AnsiSQLBeanSession implements BeanSession {
 			
 			if (deepestBean != null) {
 				
-				m = InjectionUtils.findMethodToGet(deepestBean.getClass(), lastField);
+				m = PropertyAccessors.of(deepestBean.getClass()).getter(lastField);
 			}
 			
 		} else {
 
-			m = InjectionUtils.findMethodToGet(bean.getClass(), fieldName);
+			m = PropertyAccessors.of(bean.getClass()).getter(fieldName);
 		}
 		
 		return m;
@@ -1953,13 +3638,13 @@ public class AnsiSQLBeanSession implements BeanSession {
 		return new QueryAndValues(sb, values);
 	}
 
-	protected Map<String, Value> bindToInsertStatement(PreparedStatement stmt, List<Value> values) {
+	protected Object[] bindToInsertStatement(PreparedStatement stmt, BeanConfig bc, List<Value> values) {
 
 		final Iterator<Value> iter2 = values.iterator();
 
 		int index = 0;
 
-		final Map<String, Value> fieldsLoaded = new HashMap<String, Value>();
+		final Object[] snapshot = newSnapshot(bc);
 
 		while (iter2.hasNext()) {
 
@@ -1977,10 +3662,10 @@ public class AnsiSQLBeanSession implements BeanSession {
 				throw new BeanException(e);
 			}
 
-			fieldsLoaded.put(v.field.getName(), v);
+			snapshot[bc.getFieldIndex(v.field.getName())] = v.value;
 		}
 
-		return fieldsLoaded;
+		return snapshot;
 	}
 
 	@Override
@@ -2006,7 +3691,7 @@ public class AnsiSQLBeanSession implements BeanSession {
 
 			stmt = conn.prepareStatement(sb.toString());
 
-			Map<String, Value> fieldsLoaded = bindToInsertStatement(stmt, values);
+			Object[] snapshot = bindToInsertStatement(stmt, getConfigFor(bean.getClass()), values);
 
 			dispatchBeforeInsert(bean);
 			
@@ -2024,7 +3709,7 @@ public class AnsiSQLBeanSession implements BeanSession {
 				throw new BeanException("Nothing was inserted! Insert returned 0 rows!");
 			}
 			
-			loaded.put(bean, fieldsLoaded);
+			attach(bean, snapshot);
 
 		} catch (Exception e) {
 
@@ -2220,13 +3905,13 @@ public class AnsiSQLBeanSession implements BeanSession {
 	@Override
 	public <E> List<E> loadList(final E bean) {
 
-		return loadListImpl(bean, null, null, null, null);
+		return loadListImpl(bean, null, null, null, null, null);
 	}
 
 	@Override
 	public <E> List<E> loadList(final E bean, Object... properties) {
 		
-		return loadListImpl(bean, null, null, getProperties(properties), null);
+		return loadListImpl(bean, null, null, getProperties(properties), null, null);
 	}
 	
 	@Override
@@ -2246,24 +3931,95 @@ public class AnsiSQLBeanSession implements BeanSession {
 
 	protected <E> E loadUniqueImpl(final E bean, String[] properties, String[] minus) {
 		
-		E o = checkUnique(loadListImpl(bean, null, new Limit(2), properties, minus));
+		final BeanConfig bc = getConfigFor(bean.getClass());
+		
+		if (bc != null && (bc.getCache() != null || identityMap != null) && isOnlyPKSet(bc, bean)) {
+			return loadUniqueByPK(bc, bean, properties, minus);
+		}
+		
+		E o = checkUnique(loadListImpl(bean, null, new Limit(2), properties, minus, null));
 
-		if (o != null) {
+		if (o != null && (identityMap == null || getFullSnapshot(o, bc) == null)) {
 			loadImpl(o, properties, minus); // load twice to attach to session so dynamic update is by default!
 		}
 		
 		return o;
 	}
 
+	/**
+	 * Check whether the bean has all its primary keys set and nothing else, so loadUnique is a load by primary key.
+	 */
+	private boolean isOnlyPKSet(final BeanConfig bc, final Object bean) {
+		
+		final List<Value> values = new LinkedList<Value>();
+		
+		prepareListQuery(new StringBuilder(), bc, bean, null, null, values);
+		
+		if (values.size() != bc.getNumberOfPKs()) {
+			return false;
+		}
+		
+		for (Value v : values) {
+			if (!v.field.isPK()) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private <E> E loadUniqueByPK(final BeanConfig bc, final E bean, String[] properties, String[] minus) {
+		
+		if (identityMap != null) {
+			
+			final Object mapped = findIdentity(identityKey(bc, bean));
+			
+			if (mapped != null && getFullSnapshot(mapped, bc) != null) {
+				return (E) mapped;
+			}
+		}
+		
+		try {
+			
+			final E o = (E) (bc.isDirtyTracking() ? DirtyTracking.newInstance(bc) : bc.getBeanClass().newInstance());
+			
+			final Iterator<DBField> iter = bc.pks();
+			
+			while (iter.hasNext()) {
+				
+				final DBField f = iter.next();
+				
+				injectValue(o, f.getName(), getValueFromBean(bean, f.getName()), f.getType().getTypeClass());
+			}
+			
+			if (!loadImpl(o, properties, minus)) {
+				return null;
+			}
+			
+			DirtyTracking.clear(o);
+			
+			return o;
+			
+		} catch (BeanException e) {
+			
+			throw e;
+			
+		} catch (Exception e) {
+			
+			throw new BeanException(e);
+		}
+	}
+
 	@Override
 	public <E> List<E> loadList(final E bean, final OrderBy orderBy) {
 
-		return loadListImpl(bean, orderBy, null, null, null);
+		return loadListImpl(bean, orderBy, null, null, null, null);
 	}
 
 	@Override
 	public <E> List<E> loadList(final E bean, final OrderBy orderBy, Object... properties) {
-		return loadListImpl(bean, orderBy, null, getProperties(properties), null);
+		return loadListImpl(bean, orderBy, null, getProperties(properties), null, null);
 	}
 
 	@Override
@@ -2274,7 +4030,7 @@ public class AnsiSQLBeanSession implements BeanSession {
 
 	@Override
 	public <E> List<E> loadList(final E bean, final Limit limit, Object... properties) {
-		return loadListImpl(bean, null, limit, getProperties(properties), null);
+		return loadListImpl(bean, null, limit, getProperties(properties), null, null);
 	}
 
 	/**
@@ -2331,6 +4087,52 @@ public class AnsiSQLBeanSession implements BeanSession {
 		return dbType.getAnsiType();
 	}
 	
+	/**
+	 * Each dialect that can bind an array to a single parameter can override this to return the condition matching the column to any element of the array
+	 * (ex: <code>id = ANY(?)</code>). A large list of values is then a single parameter, instead of many chunked queries.
+	 * 
+	 * @param column the column to match
+	 * @param elementType the SQL type of the elements (see {@link #getArrayElementType(DBType)})
+	 * @return the condition or null if arrays are not supported
+	 */
+	protected String getArrayInCondition(String column, String elementType) {
+		return null;
+	}
+	
+	/**
+	 * Binds the array of the condition returned by {@link #getArrayInCondition(String, String)}.
+	 * 
+	 * @param stmt
+	 * @param index
+	 * @param elementType
+	 * @param values
+	 * @throws SQLException
+	 */
+	protected void bindArray(PreparedStatement stmt, int index, String elementType, Object[] values) throws SQLException {
+		stmt.setObject(index, values);
+	}
+	
+	/**
+	 * The SQL type of the elements of an array of values of this type, or null if they should not be bound as an array.
+	 * 
+	 * @param dbType
+	 * @return the SQL type or null
+	 */
+	protected String getArrayElementType(DBType<?> dbType) {
+		
+		Class<?> klass = dbType.getTypeClass();
+		
+		if (klass == Long.class) {
+			return "BIGINT";
+		} else if (klass == Integer.class) {
+			return "INTEGER";
+		} else if (klass == String.class) {
+			return "VARCHAR";
+		}
+		
+		return null;
+	}
+	
 	/**
 	 * Each dialect can override this to return true if the <i>VARCHAR</i> type supports unlimited size
 	 * @return <b>true</b> if database supports <i>VARCHAR</i> with no limit, <b>false</b> otherwise
@@ -2557,6 +4359,8 @@ public class AnsiSQLBeanSession implements BeanSession {
 	
 	protected void dispatchAfterInsert(Object bean) {
 		
+		invalidate(bean);
+		
 		dispatchTrigger(Type.AFTER_INSERT, bean);
 	}
 	
@@ -2567,6 +4371,10 @@ public class AnsiSQLBeanSession implements BeanSession {
 	
 	protected void dispatchAfterUpdate(Object bean) {
 		
+		evict(bean);
+		
+		invalidate(bean);
+		
 		dispatchTrigger(Type.AFTER_UPDATE, bean);
 	}
 	
@@ -2577,6 +4385,14 @@ public class AnsiSQLBeanSession implements BeanSession {
 	
 	protected void dispatchAfterDelete(Object bean) {
 		
+		evict(bean);
+		
+		invalidate(bean);
+		
+		if (identityMap != null) {
+			unmapIdentity(bean);
+		}
+		
 		dispatchTrigger(Type.AFTER_DELETE, bean);
 	}
 	
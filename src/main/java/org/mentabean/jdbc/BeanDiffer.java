@@ -0,0 +1,198 @@
+package org.mentabean.jdbc;
+
+import java.lang.reflect.Method;
+import java.util.BitSet;
+import java.util.Iterator;
+
+import org.mentabean.BeanConfig;
+import org.mentabean.BeanException;
+import org.mentabean.DBField;
+import org.mentabean.util.PropertyAccessors;
+
+/**
+ * How to compare two beans of a configuration field by field. The getters of each field, including the chain of getters of a nested property (ex:
+ * getGroup().getId() for group.id), are found once and kept by the bean config, so comparing is only a sequence of indexed method calls, without creating
+ * a bean for the differences nor the nested beans that are null. A field whose getters cannot be found from the declared types is read by the session.
+ *
+ * The same getters read the properties set in the example of a list query, so building its SQL (cached by the shape of the example) and binding its values
+ * needs no lookup either.
+ *
+ * @author Sergio Oliveira Jr.
+ * @see AnsiSQLBeanSession#compareDifferences(Object, Object, java.util.List)
+ * @see AnsiSQLBeanSession#updateDiff(Object, Object)
+ */
+final class BeanDiffer {
+
+	private final DBField[] fields;
+
+	/* the getters of each field, in the order they are called, null when the session has to find them */
+	private final Method[][] getters;
+
+	private BeanDiffer(BeanConfig config) {
+
+		this.fields = new DBField[config.getNumberOfFields()];
+		this.getters = new Method[fields.length][];
+
+		Iterator<DBField> iter = config.fields();
+
+		for (int i = 0; iter.hasNext(); i++) {
+
+			fields[i] = iter.next();
+
+			getters[i] = gettersOf(config.getBeanClass(), fields[i].getName());
+		}
+	}
+
+	/**
+	 * Return the differ of the bean config, compiling it the first time.
+	 *
+	 * @param config
+	 * @return the differ
+	 */
+	static BeanDiffer of(BeanConfig config) {
+
+		BeanDiffer differ = (BeanDiffer) config.getCompiled(BeanDiffer.class);
+
+		if (differ == null) {
+
+			differ = new BeanDiffer(config);
+
+			config.putCompiled(BeanDiffer.class, differ);
+		}
+
+		return differ;
+	}
+
+	int size() {
+		return fields.length;
+	}
+
+	DBField field(int index) {
+		return fields[index];
+	}
+
+	/**
+	 * Whether the getters of the field were found from the declared types.
+	 */
+	boolean hasGetters(int index) {
+		return getters[index] != null;
+	}
+
+	/**
+	 * Compare a bean with another one. A field is changed when it is set (see isSet) in the bean and has a different value in the other one, and goes to
+	 * <code>nulls</code> when it is set only in the other one. The PKs are never compared.
+	 *
+	 * @param values
+	 *            receives the values of the bean for the PKs and the changed fields
+	 * @param types
+	 *            receives the types of the properties of the bean for the changed fields
+	 * @return the indexes of the changed fields
+	 */
+	BitSet compare(AnsiSQLBeanSession session, Object bean, Object another, Object[] values, Class<?>[] types, BitSet nulls) {
+
+		BitSet changed = new BitSet(fields.length);
+
+		for (int i = 0; i < fields.length; i++) {
+
+			Object valueBean = read(session, bean, i);
+
+			if (fields[i].isPK()) {
+
+				values[i] = valueBean;
+
+				continue;
+			}
+
+			Class<? extends Object> returnType = getter(session, bean, i).getReturnType();
+
+			Object valueAnother = read(session, another, i);
+
+			if (!session.isSet(valueBean, returnType)) {
+
+				if (session.isSet(valueAnother, returnType)) {
+					nulls.set(i);
+				}
+
+				continue;
+			}
+
+			if (!valueBean.equals(valueAnother)) {
+
+				changed.set(i);
+
+				values[i] = valueBean;
+				types[i] = returnType;
+			}
+		}
+
+		return changed;
+	}
+
+	/**
+	 * The last getter of the field, the one returning its value.
+	 */
+	Method getter(AnsiSQLBeanSession session, Object bean, int index) {
+
+		Method[] chain = getters[index];
+
+		if (chain != null) {
+			return chain[chain.length - 1];
+		}
+
+		return session.findGetter(bean, fields[index].getName());
+	}
+
+	/**
+	 * The value of the field, null when a nested bean in the way is null.
+	 */
+	Object read(AnsiSQLBeanSession session, Object bean, int index) {
+
+		Method[] chain = getters[index];
+
+		if (chain == null) {
+			return session.getValueFromBean(bean, fields[index].getName());
+		}
+
+		Object value = bean;
+
+		try {
+
+			for (int i = 0; i < chain.length && value != null; i++) {
+				value = chain[i].invoke(value);
+			}
+
+		} catch (Exception e) {
+
+			throw new BeanException(e);
+		}
+
+		return value;
+	}
+
+	/**
+	 * The getters of a property, following the declared types of a nested one, or null when one of them is not found.
+	 */
+	private static Method[] gettersOf(Class<?> beanClass, String name) {
+
+		String[] names = name.split("\\.");
+
+		Method[] chain = new Method[names.length];
+
+		Class<?> type = beanClass;
+
+		for (int i = 0; i < names.length; i++) {
+
+			Method m = PropertyAccessors.of(type).getter(names[i]);
+
+			if (m == null) {
+				return null;
+			}
+
+			chain[i] = m;
+
+			type = m.getReturnType();
+		}
+
+		return chain;
+	}
+}
@@ -0,0 +1,83 @@
+package org.mentabean.jdbc;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A snapshot store that keeps at most <i>maxSize</i> beans attached. When the limit is reached the least recently used bean is detached, in other words, a later
+ * dynamic update on it will behave as if the bean had never been loaded.
+ * 
+ * @author Sergio Oliveira Jr.
+ */
+public class BoundedSnapshotStore<V> implements SnapshotStore<V> {
+
+	private final Map<Key, V> map;
+
+	public BoundedSnapshotStore(final int maxSize) {
+
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maxSize must be greater than zero: " + maxSize);
+		}
+
+		this.map = new LinkedHashMap<Key, V>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, V> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	@Override
+	public V get(Object bean) {
+		return map.get(new Key(bean));
+	}
+
+	@Override
+	public void put(Object bean, V snapshot) {
+		map.put(new Key(bean), snapshot);
+	}
+
+	@Override
+	public V remove(Object bean) {
+		return map.remove(new Key(bean));
+	}
+
+	@Override
+	public void clear() {
+		map.clear();
+	}
+
+	@Override
+	public int size() {
+		return map.size();
+	}
+
+	@Override
+	public Collection<V> snapshots() {
+		return new ArrayList<V>(map.values());
+	}
+
+	private static class Key {
+
+		private final Object bean;
+
+		Key(Object bean) {
+			this.bean = bean;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(bean);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Key && ((Key) obj).bean == bean;
+		}
+	}
+}
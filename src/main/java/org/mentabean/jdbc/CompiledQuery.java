@@ -0,0 +1,202 @@
+package org.mentabean.jdbc;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.mentabean.BeanException;
+import org.mentabean.BeanSession;
+import org.mentabean.DBType;
+import org.mentabean.sql.Sentence;
+import org.mentabean.util.SQLUtils;
+
+/**
+ * A query built once by a {@link QueryBuilder} and executed many times with new parameter values. It keeps the SQL, the parameter slots and the plan to
+ * populate the beans from each row, and nothing else, so it is immutable and the same instance can be executed by any session in any thread.
+ *
+ * The parameters are the values given to the builder, in the same order, and can be replaced by new ones on each execution. The shape of the query does not
+ * change, so a parameter cannot be null (a null given to the builder produces <code>IS NULL</code> instead of a parameter). A parameter compared to a
+ * field is bound with the type of the field.
+ *
+ * A list of values given to an <code>IN</code> condition is one parameter per value after padding (see {@link org.mentabean.sql.param.ParamValues}), so
+ * {@link #getParamCount()} counts the padded slots and a new list must be given as that many values, repeating the last one to fill the padding. An empty
+ * list has no slot at all. A list larger than {@link org.mentabean.sql.param.ParamValues#MAX_POWER_OF_TWO} bound as an array (when the dialect supports it) is a single slot,
+ * given as a <code>List</code>.
+ *
+ * <pre>
+ * CompiledQuery byName = builder.select(e).from(e).where().clause(e.proxy().getName()).condition(new Equals("any")).compile();
+ *
+ * List&lt;Employee&gt; list = byName.execute(session, "John");
+ * </pre>
+ *
+ * @author Sergio Oliveira Jr.
+ * @see QueryBuilder.Query#compile()
+ */
+public class CompiledQuery {
+
+	private final String sql;
+
+	private final Object[] values;
+
+	private final DBType<?>[] types;
+
+	private final RowPlan plan;
+
+	private final Sentence[] sentences;
+
+	private final String[] fetches;
+
+	CompiledQuery(String sql, List<Object> values, List<DBType<?>> types, RowPlan plan, Collection<Sentence> sentences, List<String> fetches) {
+
+		this.sql = sql;
+		this.values = values.toArray();
+		this.types = types.toArray(new DBType<?>[types.size()]);
+		this.plan = plan;
+		this.sentences = sentences.toArray(new Sentence[sentences.size()]);
+		this.fetches = fetches.toArray(new String[fetches.size()]);
+	}
+
+	public String getSQL() {
+
+		return sql;
+	}
+
+	/**
+	 * Return the number of parameters of this query.
+	 *
+	 * @return the number of parameters
+	 */
+	public int getParamCount() {
+
+		return values.length;
+	}
+
+	/**
+	 * Return the execution plan of this query with the given parameter values.
+	 *
+	 * @param session
+	 * @param params
+	 * @return the plan returned by the database
+	 */
+	public QueryPlan explain(BeanSession session, Object... params) {
+
+		if (!(session instanceof AnsiSQLBeanSession)) {
+			throw new BeanException("A compiled query needs an AnsiSQLBeanSession: " + session);
+		}
+
+		return ((AnsiSQLBeanSession) session).explain(sql, types, params.length == 0 ? values : params);
+	}
+
+	/**
+	 * Return the type of the field each parameter is compared to, or null for the parameters not compared to a field.
+	 *
+	 * @return the types
+	 */
+	public List<DBType<?>> getParamTypes() {
+
+		return Collections.unmodifiableList(Arrays.asList(types));
+	}
+
+	/**
+	 * Return the parameter values given to the builder when this query was compiled.
+	 *
+	 * @return the values
+	 */
+	public List<Object> getParamValues() {
+
+		return Collections.unmodifiableList(Arrays.asList(values));
+	}
+
+	/**
+	 * Execute this query with the parameter values given to the builder. The statement has the {@link AnsiSQLBeanSession#setQueryOptions(QueryOptions)
+	 * options} of the session.
+	 *
+	 * @param session
+	 * @return A list containing all beans retrieved
+	 */
+	public <T> List<T> execute(BeanSession session) {
+
+		return execute(session, values);
+	}
+
+	/**
+	 * Execute this query with new parameter values, in the same order they were given to the builder.
+	 *
+	 * @param session
+	 * @param params
+	 * @return A list containing all beans retrieved
+	 */
+	public <T> List<T> execute(BeanSession session, Object... params) {
+
+		if (!(session instanceof AnsiSQLBeanSession)) {
+			throw new BeanException("A compiled query needs an AnsiSQLBeanSession: " + session);
+		}
+
+		if (params.length != values.length) {
+			throw new BeanException("Expected " + values.length + " parameters but got " + params.length + ": " + sql);
+		}
+
+		for (int i = 0; i < params.length; i++) {
+			if (params[i] == null) {
+				throw new BeanException("Parameter " + (i + 1) + " cannot be null: " + sql);
+			}
+		}
+
+		AnsiSQLBeanSession s = (AnsiSQLBeanSession) session;
+
+		PreparedStatement ppst = null;
+
+		boolean lazyBatch = s.beginLazyBatch();
+
+		try {
+
+			if (AnsiSQLBeanSession.DEBUG) {
+				System.out.println("COMPILED QUERY: " + sql);
+			}
+
+			ppst = s.prepareStatement(sql, null);
+
+			SQLUtils.fillStatement(ppst, types, params);
+
+			if (AnsiSQLBeanSession.DEBUG_NATIVE) {
+				System.out.println("COMPILED QUERY (NATIVE): " + ppst);
+			}
+
+			long start = System.nanoTime();
+
+			ResultSet rs = ppst.executeQuery();
+
+			s.checkSlowQuery(sql, start, types, params);
+
+			List<T> list = plan.readAll(s, rs, Arrays.asList(sentences), null);
+
+			for (String property : fetches) {
+				s.fetchImpl(list, property);
+			}
+
+			return list;
+
+		} catch (SQLException e) {
+
+			throw new BeanException("Unable to execute compiled query\n" + e.getMessage(), e);
+
+		} finally {
+
+			if (lazyBatch) {
+				s.endLazyBatch();
+			}
+
+			SQLUtils.close(ppst);
+		}
+	}
+
+	@Override
+	public String toString() {
+
+		return "CompiledQuery: " + sql;
+	}
+}
@@ -0,0 +1,239 @@
+package org.mentabean.jdbc;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A second-level cache for the rows of a bean, keyed by the primary key and shared by all sessions of the same BeanManager. It stores the column values aligned
+ * to the BeanConfig field index (never the beans themselves) and evicts the least recently used row when full, or any row older than the time-to-live.
+ *
+ * Values are kept as returned by their DBType, so do not turn this on for beans with streaming types. The mutable ones (dates, calendars and byte arrays) are
+ * copied when a row is put and when it is returned, so a bean modifying its value does not change the row for the others.
+ *
+ * A row loaded from the database is only put if it was not evicted while it was being loaded (see stamp), so a load racing with an update in another
+ * session cannot bring the old row back.
+ *
+ * @author Sergio Oliveira Jr.
+ */
+public class EntityCache {
+
+	private final int maxSize;
+
+	private final long ttl;
+
+	private final Map<Object, Row> map;
+
+	/**
+	 * The eviction stamps, by the hash of the key. A stripe shared by two keys only refuses some puts, never accepts a stale one.
+	 */
+	private final long[] stamps = new long[STRIPES];
+
+	private static final int STRIPES = 1024;
+
+	private long cleared = 0;
+
+	private long hits = 0;
+
+	private long misses = 0;
+
+	/**
+	 * @param maxSize
+	 *            the maximum number of rows
+	 * @param ttl
+	 *            the time-to-live of a row in milliseconds, zero for none
+	 */
+	public EntityCache(final int maxSize, final long ttl) {
+
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maxSize must be greater than zero: " + maxSize);
+		}
+
+		if (ttl < 0) {
+			throw new IllegalArgumentException("ttl cannot be negative: " + ttl);
+		}
+
+		this.maxSize = maxSize;
+		this.ttl = ttl;
+
+		this.map = new LinkedHashMap<Object, Row>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Object, Row> eldest) {
+				return size() > EntityCache.this.maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Return a copy of the cached column values for this primary key, or null if not cached or expired.
+	 *
+	 * @param pk
+	 * @return the values or null
+	 */
+	public synchronized Object[] get(final Object pk) {
+
+		final Row e = map.get(pk);
+
+		if (e != null && ttl > 0 && System.currentTimeMillis() - e.time > ttl) {
+			map.remove(pk);
+			misses++;
+			return null;
+		}
+
+		if (e == null) {
+			misses++;
+			return null;
+		}
+
+		hits++;
+
+		return copy(e.values);
+	}
+
+	/**
+	 * Cache a copy of the column values for this primary key.
+	 *
+	 * @param pk
+	 * @param values
+	 */
+	public void put(final Object pk, final Object[] values) {
+
+		final Row row = new Row(copy(values), System.currentTimeMillis());
+
+		synchronized (this) {
+			map.put(pk, row);
+		}
+	}
+
+	/**
+	 * Cache a copy of the column values for this primary key, loaded from the database, unless the key was evicted since the stamp was taken.
+	 *
+	 * @param pk
+	 * @param values
+	 * @param stamp
+	 *            the stamp of the key taken before loading the values
+	 * @return true if the values were cached
+	 * @see #stamp(Object)
+	 */
+	public boolean put(final Object pk, final Object[] values, final long stamp) {
+
+		final Row row = new Row(copy(values), System.currentTimeMillis());
+
+		synchronized (this) {
+
+			if (stamp(pk) != stamp) {
+				return false;
+			}
+
+			map.put(pk, row);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Return the eviction stamp of this primary key, to be taken before loading its row from the database and passed to put. It changes every time the key is
+	 * removed or the cache is cleared.
+	 *
+	 * @param pk
+	 * @return the stamp
+	 */
+	public synchronized long stamp(final Object pk) {
+
+		return cleared + stamps[stripe(pk)];
+	}
+
+	private static int stripe(final Object pk) {
+
+		final int h = pk.hashCode();
+
+		return (h ^ (h >>> 16)) & (STRIPES - 1);
+	}
+
+	/**
+	 * Copy the array and its mutable values (dates, calendars and byte arrays), so the copy can be given to another bean.
+	 *
+	 * @param values
+	 * @return the copy
+	 */
+	public static Object[] copy(final Object[] values) {
+
+		final Object[] copy = values.clone();
+
+		for (int i = 0; i < copy.length; i++) {
+
+			final Object value = copy[i];
+
+			if (value instanceof Date) {
+				copy[i] = ((Date) value).clone();
+			} else if (value instanceof Calendar) {
+				copy[i] = ((Calendar) value).clone();
+			} else if (value instanceof byte[]) {
+				copy[i] = ((byte[]) value).clone();
+			}
+		}
+
+		return copy;
+	}
+
+	public synchronized void remove(final Object pk) {
+
+		map.remove(pk);
+
+		stamps[stripe(pk)]++;
+	}
+
+	public synchronized void clear() {
+
+		map.clear();
+
+		cleared++;
+	}
+
+	public synchronized int size() {
+
+		return map.size();
+	}
+
+	public synchronized long getHits() {
+
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+
+		return misses;
+	}
+
+	public int getMaxSize() {
+
+		return maxSize;
+	}
+
+	public long getTtl() {
+
+		return ttl;
+	}
+
+	@Override
+	public String toString() {
+
+		return "EntityCache: size=" + size() + " maxSize=" + maxSize + " ttl=" + ttl + " hits=" + getHits() + " misses=" + getMisses();
+	}
+
+	private static class Row {
+
+		final Object[] values;
+
+		final long time;
+
+		Row(final Object[] values, final long time) {
+			this.values = values;
+			this.time = time;
+		}
+	}
+}
@@ -21,7 +21,6 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.util.List;
-import java.util.Map;
 
 import org.mentabean.BeanConfig;
 import org.mentabean.BeanException;
@@ -73,6 +72,15 @@ public class FirebirdBeanSession extends AnsiSQLBeanSession {
 		return sbLimit;
 	}
 
+	/**
+	 * Firebird does not return the plan as the result of a query.
+	 */
+	@Override
+	protected String getExplainCommand() {
+
+		return null;
+	}
+
 	@Override
 	public void insert(final Object bean) {
 
@@ -116,7 +124,7 @@ public class FirebirdBeanSession extends AnsiSQLBeanSession {
 
 			stmt = conn.prepareStatement(sb.toString());
 
-			Map<String, Value> fieldsLoaded = bindToInsertStatement(stmt, values);
+			Object[] snapshot = bindToInsertStatement(stmt, bc, values);
 
 			rset = stmt.executeQuery();
 
@@ -128,7 +136,7 @@ public class FirebirdBeanSession extends AnsiSQLBeanSession {
 
 			injectValue(bean, autoIncrement.getName(), id, Integer.class);
 
-			loaded.put(bean, fieldsLoaded);
+			attach(bean, snapshot);
 			
 			dispatchAfterInsert(bean);
 
@@ -71,6 +71,15 @@ public class H2BeanSession extends AnsiSQLBeanSession {
 		return super.getDatabaseType(dbType);
 	}
 
+	/**
+	 * H2 selects from an array bound to a single parameter as a table.
+	 */
+	@Override
+	protected String getArrayInCondition(String column, String elementType) {
+
+		return column + " IN (SELECT * FROM TABLE(X " + elementType + " = ?))";
+	}
+
 	@Override
 	public void insert(final Object bean) {
 
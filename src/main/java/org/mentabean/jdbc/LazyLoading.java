@@ -0,0 +1,285 @@
+package org.mentabean.jdbc;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import javassist.util.proxy.MethodFilter;
+import javassist.util.proxy.MethodHandler;
+import javassist.util.proxy.Proxy;
+import javassist.util.proxy.ProxyFactory;
+
+import org.mentabean.BeanConfig;
+import org.mentabean.BeanException;
+import org.mentabean.DBField;
+import org.mentabean.util.LazyLoaded;
+
+/**
+ * Creates the proxies injected by the session in the nested properties configured with {@link BeanConfig#lazy(String, boolean)}. A proxy has only its PK set
+ * and loads itself through the session on the first call to any other method. The proxy class is created once and kept by the bean config.
+ *
+ * If the row of a proxy is not found (ex: a foreign key pointing to a deleted row), the call loading it throws a {@link BeanException} and the proxy stays
+ * not loaded.
+ *
+ * @author Sergio Oliveira Jr.
+ */
+public class LazyLoading {
+
+	/**
+	 * Create a new lazy proxy for the given bean config.
+	 *
+	 * @param session
+	 *            the session that will load it
+	 * @param bc
+	 * @param siblings
+	 *            the proxies to load together with this one, or null to load it alone
+	 * @return a new instance of a subclass of the bean class
+	 */
+	static Object newInstance(AnsiSQLBeanSession session, BeanConfig bc, List<Handler> siblings) {
+
+		Class<?> proxyClass = proxyClass(bc);
+
+		try {
+
+			Object bean = proxyClass.newInstance();
+
+			Handler handler = new Handler(session, bc, bean, siblings);
+
+			((Proxy) bean).setHandler(handler);
+
+			if (siblings != null) {
+				siblings.add(handler);
+			}
+
+			return bean;
+
+		} catch (Exception e) {
+			throw new BeanException("Cannot create lazy proxy for " + bc.getBeanClass(), e);
+		}
+	}
+
+	/**
+	 * Return false if the bean is a lazy proxy not loaded yet, true otherwise.
+	 *
+	 * @param bean
+	 * @return whether the bean is loaded
+	 */
+	public static boolean isLoaded(Object bean) {
+
+		return !(bean instanceof LazyLoaded) || ((LazyLoaded) bean).isLoaded();
+	}
+
+	/**
+	 * Mark a lazy proxy as loaded without loading it, because it was populated by other means (ex: a join).
+	 *
+	 * @param bean
+	 */
+	static void setLoaded(Object bean) {
+
+		if (bean instanceof Proxy) {
+
+			MethodHandler handler = ProxyFactory.getHandler((Proxy) bean);
+
+			if (handler instanceof Handler) {
+				((Handler) handler).loaded = true;
+			}
+		}
+	}
+
+	private static Class<?> proxyClass(BeanConfig bc) {
+
+		Class<?> proxyClass = (Class<?>) bc.getCompiled(LazyLoading.class);
+
+		if (proxyClass == null) {
+
+			synchronized (bc) {
+
+				proxyClass = (Class<?>) bc.getCompiled(LazyLoading.class);
+
+				if (proxyClass == null) {
+
+					proxyClass = createClass(bc);
+
+					bc.putCompiled(LazyLoading.class, proxyClass);
+				}
+			}
+		}
+
+		return proxyClass;
+	}
+
+	private static Class<?> createClass(BeanConfig bc) {
+
+		final Set<String> pkAccessors = new HashSet<String>();
+
+		Iterator<DBField> iter = bc.pks();
+
+		while (iter.hasNext()) {
+
+			String name = iter.next().getName();
+
+			String cap = name.substring(0, 1).toUpperCase() + name.substring(1);
+
+			pkAccessors.add("get" + cap);
+			pkAccessors.add("is" + cap);
+			pkAccessors.add("set" + cap);
+		}
+
+		ProxyFactory factory = new ProxyFactory();
+		factory.setSuperclass(bc.getBeanClass());
+		factory.setInterfaces(new Class<?>[] { LazyLoaded.class });
+
+		factory.setFilter(new MethodFilter() {
+
+			@Override
+			public boolean isHandled(Method m) {
+
+				if (m.getDeclaringClass().equals(LazyLoaded.class)) {
+					return true;
+				}
+
+				if (m.getDeclaringClass().equals(Object.class)) {
+					return false; // identity hashCode, equals and toString never load...
+				}
+
+				return !pkAccessors.contains(m.getName());
+			}
+		});
+
+		try {
+
+			return factory.createClass();
+
+		} catch (RuntimeException e) {
+			throw new BeanException("Cannot create lazy proxy for " + bc.getBeanClass() + ". The class and its methods must not be final.", e);
+		}
+	}
+
+	static class Handler implements MethodHandler {
+
+		private final AnsiSQLBeanSession session;
+
+		private final BeanConfig bc;
+
+		private final Object bean;
+
+		private List<Handler> siblings;
+
+		private boolean loaded = false;
+
+		public Handler(AnsiSQLBeanSession session, BeanConfig bc, Object bean, List<Handler> siblings) {
+			this.session = session;
+			this.bc = bc;
+			this.bean = bean;
+			this.siblings = siblings;
+		}
+
+		@Override
+		public Object invoke(Object self, Method thisMethod, Method proceed, Object[] args) throws Throwable {
+
+			if (thisMethod.getDeclaringClass().equals(LazyLoaded.class)) {
+				return loaded;
+			}
+
+			if (!loaded) {
+				load();
+			}
+
+			return proceed.invoke(self, args);
+		}
+
+		private void load() {
+
+			if (siblings == null) {
+
+				loaded = true; // before loading so the setters do not load again...
+
+				boolean found = false;
+
+				try {
+
+					found = session.load(bean);
+
+				} finally {
+
+					loaded = found;
+				}
+
+				if (!found) {
+					throw notFound();
+				}
+
+				return;
+			}
+
+			List<Object> beans = new ArrayList<Object>(siblings.size());
+
+			List<Handler> handlers = new ArrayList<Handler>(siblings.size());
+
+			for (Handler h : siblings) {
+
+				if (!h.loaded) {
+
+					h.loaded = true; // before loading so the setters do not load again...
+
+					h.siblings = null;
+
+					beans.add(h.bean);
+
+					handlers.add(h);
+				}
+			}
+
+			List<Object> missing;
+
+			try {
+
+				missing = session.loadAll(bc, beans);
+
+			} catch (RuntimeException e) {
+
+				for (Handler h : handlers) {
+					h.loaded = false;
+				}
+
+				throw e;
+			}
+
+			if (missing.isEmpty()) {
+				return;
+			}
+
+			// not loaded, each one throws when called...
+			for (Handler h : handlers) {
+				for (Object m : missing) {
+					if (m == h.bean) {
+						h.loaded = false;
+					}
+				}
+			}
+
+			if (!loaded) {
+				throw notFound();
+			}
+		}
+
+		private BeanException notFound() {
+
+			StringBuilder sb = new StringBuilder("Cannot find the lazy bean ").append(bc.getBeanClass().getSimpleName()).append(" in the database:");
+
+			Iterator<DBField> iter = bc.pks();
+
+			while (iter.hasNext()) {
+
+				String name = iter.next().getName();
+
+				sb.append(' ').append(name).append('=').append(session.getValueFromBean(bean, name));
+			}
+
+			return new BeanException(sb.toString());
+		}
+	}
+}
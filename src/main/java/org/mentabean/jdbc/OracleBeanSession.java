@@ -75,6 +75,15 @@ public class OracleBeanSession extends AnsiSQLBeanSession {
 		return sbLimit;
 	}
 
+	/**
+	 * Oracle does not return the plan as the result of a query.
+	 */
+	@Override
+	protected String getExplainCommand() {
+
+		return null;
+	}
+
 	@Override
 	public void insert(final Object bean) {
 
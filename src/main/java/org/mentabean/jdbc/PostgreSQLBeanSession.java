@@ -3,6 +3,7 @@ package org.mentabean.jdbc;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 
 import org.mentabean.BeanConfig;
 import org.mentabean.BeanException;
@@ -53,6 +54,24 @@ public class PostgreSQLBeanSession extends AnsiSQLBeanSession {
 		return sbLimit;
 	}
 
+	@Override
+	protected String getExplainCommand() {
+		
+		return "EXPLAIN (FORMAT JSON) ";
+	}
+	
+	@Override
+	protected String getArrayInCondition(String column, String elementType) {
+		
+		return column + " = ANY(?)";
+	}
+	
+	@Override
+	protected void bindArray(PreparedStatement stmt, int index, String elementType, Object[] values) throws SQLException {
+		
+		stmt.setArray(index, stmt.getConnection().createArrayOf(elementType.toLowerCase(), values));
+	}
+
 	@Override
 	public void insert(final Object bean) {
 
@@ -4,6 +4,8 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -11,15 +13,23 @@ import java.util.Map;
 
 import org.mentabean.BeanConfig;
 import org.mentabean.BeanException;
+import org.mentabean.BeanSession;
 import org.mentabean.DBField;
+import org.mentabean.DBType;
 import org.mentabean.sql.Condition;
 import org.mentabean.sql.HasParams;
 import org.mentabean.sql.Sentence;
+import org.mentabean.sql.conditions.In;
+import org.mentabean.sql.conditions.NotIn;
 import org.mentabean.sql.param.DefaultParamHandler;
 import org.mentabean.sql.param.Param;
+import org.mentabean.sql.param.ParamField;
 import org.mentabean.sql.param.ParamHandler;
 import org.mentabean.sql.param.ParamValue;
+import org.mentabean.sql.param.ParamValues;
+import org.mentabean.util.ColumnarResult;
 import org.mentabean.util.PropertiesProxy;
+import org.mentabean.util.Property;
 import org.mentabean.util.SQLUtils;
 
 /**
@@ -32,17 +42,26 @@ import org.mentabean.util.SQLUtils;
 @SuppressWarnings({"rawtypes", "unchecked"})
 public class QueryBuilder {
 
-	private static final String REGEX = "(AND|OR|\\([\\s]*?\\)|WHERE|HAVING)[\\s]*?$";
-	private static final String NO_CLAUSE_REGEX = ".*(WHERE|HAVING|\\()[\\s]*?$";
+	private static final String WHERE = " WHERE ", HAVING = " HAVING ", AND = " AND ", OR = " OR ", OPEN_PAR = "(";
 	private StringBuilder sb = new StringBuilder();
+	private final List<String> pending = new ArrayList<String>();
+	private int groupByMark = -1;
 	private final AnsiSQLBeanSession session;
 	private List<Object> paramValues = new ArrayList<Object>();
+	private List<DBType<?>> paramTypes = new ArrayList<DBType<?>>();
+	private DBType<?> clauseType;
+	/* where the current clause starts in the SQL and in the parameters, to replace it... */
+	private int clauseStart;
+	private int clauseParams;
 	private List<Alias<?>> selectAliases;
 	private List<Alias<?>> createdAliases = new ArrayList<Alias<?>>();
 	private Map<String, Sentence> sentences = new HashMap<String, Sentence>();
 	private Alias aliasFrom;
 	private int parenthesis = 0;
 	private boolean clauseIf;
+	private boolean cached = false;
+	private QueryOptions options = null;
+	private List<String> fetches = new ArrayList<String>();
 	private ParamHandler paramHandler;
 
 	protected QueryBuilder(final AnsiSQLBeanSession session) {
@@ -147,6 +166,8 @@ public class QueryBuilder {
 
 	private void append(Param param) {
 
+		flush();
+		
 		if (param != null)
 			sb.append(param.paramInQuery());
 		add(param);
@@ -154,12 +175,21 @@ public class QueryBuilder {
 	
 	private void add(Object param) {
 		
+		add(param, null);
+	}
+	
+	/*
+	 * The values compared to a field are bound with the type of the field. Only the values given directly to the condition, not the ones of a
+	 * function inside it (ex: the positions of a SUBSTRING)...
+	 */
+	private void add(Object param, DBType<?> type) {
+		
 		if (param instanceof HasParams) {
 			HasParams hasParams = (HasParams) param;
 			Param[] params = hasParams.getParams();
 			if (params != null) {
 				for (Param p : params) {
-					add(p);
+					add(p, p instanceof ParamValue || p instanceof ParamValues ? type : null);
 				}
 			}
 		}else {
@@ -169,55 +199,258 @@ public class QueryBuilder {
 				for (Object value : p.values()) {
 					if (value != null) {
 						paramValues.add(value);
+						paramTypes.add(type);
 					}
 				}
 			}
 		}
 	}
 	
-	private void applyRegex() {
-		remove(REGEX);
+	/*
+	 * WHERE, HAVING, AND, OR and '(' are kept in the pending list and only written before the next clause, so the ones left without a clause
+	 * (because of clauseIf) are simply dropped: an empty WHERE, a connector before nothing, an empty pair of parenthesis...
+	 */
+	
+	/*
+	 * NOT IN an empty list is true for every row, but NOT IN (NULL) for none, so the clause is replaced by one always true...
+	 */
+	private boolean replaceIfAlwaysTrue(Condition condition) {
+		
+		if (!(condition instanceof NotIn) || !((NotIn) condition).isEmpty()) {
+			return false;
+		}
+		
+		sb.setLength(clauseStart);
+		
+		while (paramValues.size() > clauseParams) {
+			paramValues.remove(paramValues.size() - 1);
+			paramTypes.remove(paramTypes.size() - 1);
+		}
+		
+		sb.append(" 1 = 1");
+		
+		return true;
 	}
 	
-	private void remove(String regex) {
+	/*
+	 * A large IN list is bound as one array when the dialect supports it (see AnsiSQLBeanSession#getArrayInCondition), otherwise it is split in
+	 * lists of ParamValues.MAX_POWER_OF_TWO values, so the statement never gets thousands of parameters...
+	 */
+	private boolean replaceIfLargeIn(Condition condition) {
+		
+		if (!(condition instanceof In)) {
+			return false;
+		}
+		
+		Param[] params = ((In) condition).getParams();
+		
+		if (params == null || params.length != 1 || !(params[0] instanceof ParamValues)) {
+			return false;
+		}
+		
+		ParamValues list = (ParamValues) params[0];
+		
+		if (list.size() <= ParamValues.MAX_POWER_OF_TWO) {
+			return false;
+		}
+		
+		List<Object> values = Arrays.asList(list.values()).subList(0, list.size());
+		
+		boolean not = condition instanceof NotIn;
+		
+		String column = sb.substring(clauseStart).trim();
+		
+		String elementType = clauseType != null ? session.getArrayElementType(clauseType) : null;
+		
+		String array = elementType != null ? session.getArrayInCondition(column, elementType) : null;
+		
+		sb.setLength(clauseStart);
+		
+		if (array != null) {
+			
+			// the parameters of the column, if any, are already in place...
+			sb.append(not ? " NOT (" : " (").append(array).append(')');
+			
+			paramValues.add(new ArrayList<Object>(values));
+			paramTypes.add(new ArrayType(elementType));
+			
+			return true;
+		}
+		
+		List<Object> columnValues = new ArrayList<Object>(paramValues.subList(clauseParams, paramValues.size()));
+		List<DBType<?>> columnTypes = new ArrayList<DBType<?>>(paramTypes.subList(clauseParams, paramTypes.size()));
+		
+		while (paramValues.size() > clauseParams) {
+			paramValues.remove(paramValues.size() - 1);
+			paramTypes.remove(paramTypes.size() - 1);
+		}
+		
+		sb.append(" (");
+		
+		for (int from = 0; from < values.size(); from += ParamValues.MAX_POWER_OF_TWO) {
+			
+			ParamValues chunk = new ParamValues(values.subList(from, Math.min(values.size(), from + ParamValues.MAX_POWER_OF_TWO)));
+			
+			if (from > 0) {
+				sb.append(not ? " AND " : " OR ");
+			}
+			
+			sb.append(column).append(not ? " NOT IN (" : " IN (").append(chunk.paramInQuery()).append(')');
+			
+			paramValues.addAll(columnValues);
+			paramTypes.addAll(columnTypes);
+			
+			for (Object value : chunk.values()) {
+				paramValues.add(value);
+				paramTypes.add(clauseType);
+			}
+		}
+		
+		sb.append(')');
+		
+		return true;
+	}
+	
+	/**
+	 * Binds a list as the array of the condition returned by {@link AnsiSQLBeanSession#getArrayInCondition(String, String)}.
+	 */
+	private class ArrayType implements DBType<List<?>> {
+		
+		private final String elementType;
+		
+		ArrayType(String elementType) {
+			this.elementType = elementType;
+		}
+		
+		@Override
+		public void bindToStmt(PreparedStatement stmt, int index, List<?> value) throws SQLException {
+			session.bindArray(stmt, index, elementType, value.toArray());
+		}
+		
+		@Override
+		public List<?> getFromResultSet(ResultSet rset, int index) throws SQLException {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public List<?> getFromResultSet(ResultSet rset, String field) throws SQLException {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public Class<? extends Object> getTypeClass() {
+			return List.class;
+		}
+		
+		@Override
+		public boolean canBeNull() {
+			return false;
+		}
+		
+		@Override
+		public String getAnsiType() {
+			return "ARRAY";
+		}
+	}
 	
-		sb = new StringBuilder(sb.toString().replaceAll(regex, ""));
+	/*
+	 * The plans of the aliases depend on what is selected and joined, so they are compiled again after any change...
+	 */
+	private void clearPlans() {
 		
+		for (Alias<?> a : createdAliases) {
+			a.plan = null;
+		}
 	}
 	
-	private void addAnd() {
-		if (clauseIf) {
-			if (sb.toString().matches(NO_CLAUSE_REGEX)) {
-				return;
-			}
-			applyRegex();
-			sb.append(" AND ");
+	private void flush() {
+		
+		for (int i = 0; i < pending.size(); i++) {
+			sb.append(pending.get(i));
 		}
+		
+		pending.clear();
 	}
 	
-	private void addOr() {
-		if (clauseIf) {
-			if (sb.toString().matches(NO_CLAUSE_REGEX)) {
-				return;
-			}
-			applyRegex();
-			sb.append(" OR ");
+	private void discardPending() {
+		pending.clear();
+	}
+	
+	private void addConnector(String connector) {
+		
+		if (!clauseIf) {
+			return;
 		}
+		
+		if (pending.isEmpty()) {
+			pending.add(connector);
+			return;
+		}
+		
+		String last = pending.get(pending.size() - 1);
+		
+		// the last one wins when connectors are left without a clause between them (ex: after an empty parenthesis)...
+		if (last.equals(AND) || last.equals(OR)) {
+			pending.set(pending.size() - 1, connector);
+		}
+		
+		// otherwise right after WHERE, HAVING or '(' there is nothing to connect...
+	}
+	
+	private void addAnd() {
+		addConnector(AND);
+	}
+	
+	private void addOr() {
+		addConnector(OR);
 	}
 	
 	private void openPar() {
 		parenthesis++;
-		sb.append('(');
+		pending.add(OPEN_PAR);
 	}
 	
 	private void closePar() {
-		applyRegex();
+		
 		parenthesis--;
-		sb.append(')');
-		applyRegex();
+		
+		int open = pending.lastIndexOf(OPEN_PAR);
+		
+		if (open >= 0) {
+			
+			// no clause since the '(', so drop it...
+			while (pending.size() > open) {
+				pending.remove(pending.size() - 1);
+			}
+			
+		} else {
+			
+			discardPending(); // only connectors without a clause
+			sb.append(')');
+		}
+		
 		clauseIf = true;
 	}
 	
+	private void initGroupBy() {
+		
+		discardPending();
+		
+		if (sb.length() != groupByMark) {
+			sb.append(" GROUP BY ");
+			groupByMark = sb.length();
+		} else {
+			sb.append(',');
+		}
+	}
+	
+	private void separateGroupBy() {
+		
+		if (sb.length() != groupByMark) {
+			sb.append(',');
+		}
+	}
+	
 	private Alias<?> findAlias() {
 		
 		Object[] instances = PropertiesProxy.getBeanInstances();
@@ -243,6 +476,7 @@ public class QueryBuilder {
 		private String[] returns;
 		private String[] returnMinus;
 		private Map<Key, Alias> joined = new HashMap<Key, Alias>();
+		private RowPlan plan = null;
 
 		private Alias(Class<? extends T> clazz, String aliasStr) {
 
@@ -264,6 +498,8 @@ public class QueryBuilder {
 		public void setReturns(Object... returns){
 
 			this.returns = AnsiSQLBeanSession.getProperties(returns);
+			
+			clearPlans();
 		}
 
 		/**
@@ -273,6 +509,8 @@ public class QueryBuilder {
 		public void setReturnMinus(Object... returns){
 
 			this.returnMinus = AnsiSQLBeanSession.getProperties(returns);
+			
+			clearPlans();
 		}
 
 		/**
@@ -280,6 +518,7 @@ public class QueryBuilder {
 		 * @return The proxy
 		 * @deprecated Use {@link #proxy()} instead 
 		 */
+		@Deprecated
 		public T pxy(){
 
 			return proxy;
@@ -289,6 +528,31 @@ public class QueryBuilder {
 			
 			return proxy;
 		}
+		
+		/**
+		 * The same as calling the getter on the proxy of this alias, but through a getter method reference, so it can be used anywhere a proxy call is
+		 * expected.
+		 * <br><br>
+		 * <b>E.g.:</b>
+		 * <ul>
+		 * <code>
+		 * 	builder.select(e)<br><ul>
+		 * 		.from(e)<br>
+		 * 		.where()<br>
+		 * 		.clause(<b>e.ref(Employee::getName)</b>)<br>
+		 * 		...</ul>
+		 * </code>
+		 * </ul>
+		 * @param property
+		 * @return null, like the getters of the proxy for non primitive types
+		 */
+		public Object ref(Property<T, ?> property) {
+			
+			PropertiesProxy.addPropertyName(PropertiesProxy.getPropertyName(property));
+			PropertiesProxy.addBeanInstance(proxy);
+			
+			return null;
+		}
 
 		/**
 		 * Convert the given property to database column 
@@ -300,6 +564,26 @@ public class QueryBuilder {
 			return session.propertyToColumn(config.getBeanClass(), property, aliasStr);
 		}
 
+		/**
+		 * Return the field mapped to the given property
+		 * @param property - The bean property (can be through proxy)
+		 * @return The field or null if the property is not mapped
+		 */
+		public DBField toField(Object property) {
+			
+			String name = AnsiSQLBeanSession.getProperties(new Object[] {property})[0];
+			
+			Iterator<DBField> it = config.fields();
+			
+			while (it.hasNext()) {
+				DBField field = it.next();
+				if (name.equalsIgnoreCase(field.getName()))
+					return field;
+			}
+			
+			return null;
+		}
+
 		/**
 		 * Populates the bean according to ResultSet
 		 * @param rs
@@ -310,23 +594,51 @@ public class QueryBuilder {
 			session.populateBeanImpl(rs, bean, aliasStr, returns, returnMinus, false);
 		}
 		
+		/**
+		 * Populates the bean and the beans joined to it from the current row, with the plan of the query (built once, not for every row).
+		 * @param rs
+		 * @param bean
+		 */
 		public void populateAll(ResultSet rs, T bean) {
 
-			populateBean(rs, bean);
+			RowPlan plan = plan();
+
+			try {
+
+				plan.populate(session, plan.read(rs, Collections.<Sentence>emptyList()), 0, bean, null);
+
+			} catch (SQLException e) {
 
+				throw new BeanException(e);
+			}
+		}
+		
+		/**
+		 * Compile how the beans of this alias and of the aliases joined to it (and selected) are populated from each row. Compiled once and kept until
+		 * the query changes (see clearPlans).
+		 */
+		private RowPlan plan() {
+			
+			if (plan != null) {
+				return plan;
+			}
+			
+			List<RowPlan.Join> joins = new ArrayList<RowPlan.Join>();
+			
 			for (Map.Entry<Key, Alias> m : joined.entrySet()) {
 				
 				//only if alias is in SELECT clause
 				if (selectAliases.contains(m.getValue())) {
 					
-					Object value = session.getPropertyBean(bean, m.getKey().property, m.getKey().forceInstance);
+					Key k = m.getKey();
 					
-					if (value != null) {
-						m.getValue().populateAll(rs, value);
-					}
+					joins.add(new RowPlan.Join(k.property, k.forceInstance, k.collection, m.getValue().plan()));
 				}
-
 			}
+			
+			plan = new RowPlan(session, config, aliasStr, returns, returnMinus, joins);
+			
+			return plan;
 		}
 		
 		@Override
@@ -344,12 +656,26 @@ public class QueryBuilder {
 		 */
 		private void put(Object property, boolean forceInstance, Alias<?> alias) {
 			joined.put(new Key().property(property).forceInstance(forceInstance), alias);
+			clearPlans();
+		}
+		
+		/**
+		 * Configures a collection property to receive the beans from alias, one element per distinct PK.
+		 * @param property - Bean collection property
+		 * @param alias - Alias
+		 */
+		private void putCollection(Object property, Alias<?> alias) {
+			Key key = new Key().property(property);
+			key.collection = true;
+			joined.put(key, alias);
+			clearPlans();
 		}
 		
 		private class Key {
 			
 			private String property;
 			private boolean forceInstance;
+			private boolean collection;
 			
 			public Key property(Object property) {
 				this.property = AnsiSQLBeanSession.getProperties(new Object[] {property})[0];
@@ -372,6 +698,7 @@ public class QueryBuilder {
 		private Select(String str) {
 			sb.append("SELECT "+(str == null || str.isEmpty() ? "" : str+" "));
 			selectAliases = new ArrayList<Alias<?>>();
+			clearPlans();
 		}
 		
 		private Select(String str, Alias<?>... as) {
@@ -421,6 +748,7 @@ public class QueryBuilder {
 					sb.append(",");
 
 				selectAliases.add(alias);
+				clearPlans();
 				sb.append(session.buildSelectImpl(alias.config.getBeanClass(), alias.aliasStr, alias.returns, alias.returnMinus, false, true));
 				init = true;
 			}
@@ -734,6 +1062,31 @@ public class QueryBuilder {
 			aliasPK.put(propertyBean, false, aliasFK);
 			return this;
 		}
+		
+		/**
+		 * Defines the collection property of primary bean (specified on {@code pkOf(Alias)} method) 
+		 * that will receive the beans from foreign alias (aliasFK) (specified on {@code in(Alias)} method).
+		 * The rows are assembled by PK, so each primary bean is returned only once with all its foreign beans in the collection.
+		 * <br><br><b>Note: </b>The PKs of both aliases must be selected.
+		 * <br><br>
+		 * <b>E.g.:</b>
+		 * <ul>
+		 * <code>
+		 * 	builder.select(engine, part)<br><ul>
+		 * 		.from(engine)<br>
+		 * 		.leftJoin(part)<br>
+		 * 		.pkOf(engine).in(part)<br>
+		 * 		<b>.intoCollection(engine.proxy().getParts())</b><br>
+		 * 		...</ul>
+		 * </code>
+		 * </ul>
+		 * @param collectionProperty
+		 * @return this
+		 */
+		public From intoCollection(Object collectionProperty) {
+			aliasPK.putCollection(collectionProperty, aliasFK);
+			return this;
+		}
 	}
 	
 	public class OnEquals {
@@ -829,6 +1182,31 @@ public class QueryBuilder {
 			aliasFK.put(propertyBean, false, aliasPK);
 			return this;
 		}
+		
+		/**
+		 * Defines the collection property of bean specified as alias on {@code eq(Alias, Object)} method 
+		 * that will receive the beans from alias specified on {@code join(Alias)} method.
+		 * The rows are assembled by PK, so each bean is returned only once with all the joined beans in the collection.
+		 * <br><br>
+		 * <b>E.g.:</b>
+		 * <ul>
+		 * <code>
+		 * 	builder.select(engine, part)<br><ul>
+		 * 		.from(engine)<br>
+		 * 		.leftJoin(part)<br>
+		 * 		.on(part.pxy().getEngine().getId())<br>
+		 * 		.eq(engine.pxy().getId())<br>
+		 * 		<b>.intoCollection(engine.pxy().getParts())</b><br>
+		 * 		...</ul>
+		 * </code>
+		 * </ul>
+		 * @param collectionProperty
+		 * @return this
+		 */
+		public Equals intoCollection(Object collectionProperty) {
+			aliasFK.putCollection(collectionProperty, aliasPK);
+			return this;
+		}
 
 		public OnEquals and(Object property) {
 			return new On(aliasPK, false).on(property);
@@ -839,7 +1217,7 @@ public class QueryBuilder {
 
 		private Where (boolean init) {
 			if (init) {
-				sb.append(" WHERE ");
+				pending.add(WHERE);
 			}
 		}
 		
@@ -942,8 +1320,13 @@ public class QueryBuilder {
 //					System.out.println("type: "+o.getClass());
 //				}
 					
+				flush();
+				clauseStart = sb.length();
+				clauseParams = paramValues.size();
 				add(p);
 				sb.append(' ').append(p.paramInQuery());
+				
+				clauseType = p instanceof ParamField ? ((ParamField) p).getType() : null;
 			}
 			
 		}
@@ -954,8 +1337,8 @@ public class QueryBuilder {
 
 		private EndClauseWhere(Condition condition) {
 
-			if (clauseIf) {
-				add(condition);
+			if (clauseIf && !replaceIfAlwaysTrue(condition) && !replaceIfLargeIn(condition)) {
+				add(condition, clauseType);
 				init(condition.build());
 			}
 		}
@@ -1030,8 +1413,8 @@ public class QueryBuilder {
 
 		private EndClauseHaving(Condition condition) {
 
-			if (clauseIf) {
-				add(condition);
+			if (clauseIf && !replaceIfAlwaysTrue(condition) && !replaceIfLargeIn(condition)) {
+				add(condition, clauseType);
 				init(condition.build());
 			}
 		}
@@ -1112,7 +1495,7 @@ public class QueryBuilder {
 			Param param = paramHandler.findBetter(QueryBuilder.this, lim);
 			
 			if (param != null) {
-				applyRegex();
+				discardPending();
 				add(param);
 				
 				Object numberObj = paramValues.get(paramValues.size()-1);
@@ -1120,6 +1503,7 @@ public class QueryBuilder {
 					Number numberLimit = (Number) numberObj;
 					if (numberLimit.longValue() <= 0) {
 						paramValues.remove(paramValues.size()-1);
+						paramTypes.remove(paramTypes.size()-1);
 						return;
 					}
 				}
@@ -1184,7 +1568,7 @@ public class QueryBuilder {
 
 		private Order() {
 
-			applyRegex();
+			discardPending();
 			sb.append(" ORDER BY ");			
 		}
 		
@@ -1286,8 +1670,7 @@ public class QueryBuilder {
 
 		private void init() {
 			
-			applyRegex();
-			sb.append(!sb.toString().endsWith(" GROUP BY ") ? " GROUP BY " : ",");
+			initGroupBy();
 		}
 
 		private GroupBy(Alias<?> alias, Object... properties) {
@@ -1312,9 +1695,7 @@ public class QueryBuilder {
 
 		public GroupBy add(Alias<?> alias, Object... properties) {
 			
-			if (!sb.toString().endsWith(" GROUP BY ")) {
-				sb.append(',');
-			}
+			separateGroupBy();
 			
 			sb.append(session.buildSelectImpl(alias.config.getBeanClass(), alias.aliasStr, 
 					AnsiSQLBeanSession.getProperties(properties), null, false, false));
@@ -1326,8 +1707,7 @@ public class QueryBuilder {
 			
 			for (Alias<?> alias : aliases) {
 				
-				if (!sb.toString().endsWith(" GROUP BY "))
-					sb.append(',');
+				separateGroupBy();
 				
 				sb.append(session.buildSelectImpl(alias.config.getBeanClass(), alias.aliasStr, 
 						alias.returns, alias.returnMinus, false, false));
@@ -1339,8 +1719,7 @@ public class QueryBuilder {
 		public GroupBy add(Param... params) {
 			
 			for (Param p : params) {
-				if (!sb.toString().endsWith(" GROUP BY "))
-					sb.append(',');
+				separateGroupBy();
 				
 				append(p);
 			}
@@ -1374,7 +1753,7 @@ public class QueryBuilder {
 
 		private Having (boolean init) {
 			if (init) {
-				sb.append(" HAVING ");
+				pending.add(HAVING);
 			}
 		}
 
@@ -1488,7 +1867,14 @@ public class QueryBuilder {
 			a.joined.clear();
 		}
 		
+		clearPlans();
+		
 		paramValues.clear();
+		paramTypes.clear();
+		clauseType = null;
+		options = null;
+		pending.clear();
+		groupByMark = -1;
 		sb = new StringBuilder();			
 	}
 	
@@ -1502,18 +1888,21 @@ public class QueryBuilder {
 		private Query() {}
 		
 		/**
-		 * Returns a <code>PreparedStatement</code> setting all given parameters in order. 
+		 * Returns a <code>PreparedStatement</code> setting all given parameters in order, each one with the type of the field it is compared to. 
 		 * 
+		 * @param types
 		 * @param params
 		 * @return A <code>PreparedStatement</code> using this session connection
 		 * @see #getSQL()
-		 * @see SQLUtils#prepare(java.sql.Connection, String, Object...)
+		 * @see SQLUtils#prepare(java.sql.Connection, String, DBType[], Object[])
 		 */
-		private PreparedStatement prepare(Object... params) {
+		private PreparedStatement prepare(DBType<?>[] types, Object[] params) {
 
 			try {
 
-				PreparedStatement ppst = SQLUtils.prepare(session.getConnection(), getSQL(), params);
+				PreparedStatement ppst = session.prepareStatement(getSQL(), options);
+				
+				SQLUtils.fillStatement(ppst, types, params);
 				
 				if (AnsiSQLBeanSession.DEBUG_NATIVE) {
 					System.out.println("CUSTOM QUERY (NATIVE): "+ppst);
@@ -1533,7 +1922,78 @@ public class QueryBuilder {
 		 */
 		public PreparedStatement prepare() {
 
-			return prepare(paramValues.toArray());
+			return prepare(paramTypes.toArray(new DBType<?>[paramTypes.size()]), paramValues.toArray());
+		}
+		
+		/**
+		 * Marks this query to use the query cache of the session, if any. The result is invalidated when the session writes to the table of any alias
+		 * created by this QueryBuilder, so do not cache queries reading other tables through native SQL.
+		 * 
+		 * @return this query
+		 * @see AnsiSQLBeanSession#setQueryCache(QueryCache)
+		 */
+		public Query cached() {
+			
+			cached = true;
+			
+			return this;
+		}
+		
+		/**
+		 * Executes this query with the given options (fetch size, timeout...) instead of the ones of the session.
+		 * 
+		 * @param options
+		 * @return this query
+		 * @see AnsiSQLBeanSession#setQueryOptions(QueryOptions)
+		 */
+		public Query options(QueryOptions options) {
+			
+			QueryBuilder.this.options = options;
+			
+			return this;
+		}
+		
+		/**
+		 * Compiles this query to be executed many times, by any session, with new parameter values. The builder is finished, like after executing it.
+		 * 
+		 * @return The compiled query
+		 * @see CompiledQuery#execute(BeanSession, Object...)
+		 */
+		public CompiledQuery compile() {
+			
+			if (aliasFrom == null) {
+				throw new BeanException("Only a query with a FROM alias can be compiled");
+			}
+			
+			try {
+				
+				return new CompiledQuery(getSQL(), paramValues, paramTypes, aliasFrom.plan(), sentences.values(), fetches);
+				
+			} finally {
+				
+				finish();
+			}
+		}
+		
+		/**
+		 * Loads the nested beans of these properties of the beans declared in <b>FROM</b> clause after the query is executed, with one extra query per
+		 * property for all the beans.
+		 * 
+		 * @param properties - Nested bean properties, ex: <code>post.proxy().getUser()</code>
+		 * @return this query
+		 * @see BeanSession#fetch(List, Object...)
+		 */
+		public Query fetch(Object... properties) {
+			
+			String[] names = AnsiSQLBeanSession.getProperties(properties);
+			
+			if (names == null) {
+				throw new BeanException("No property to fetch!");
+			}
+			
+			Collections.addAll(fetches, names);
+			
+			return this;
 		}
 		
 		/**
@@ -1546,29 +2006,207 @@ public class QueryBuilder {
 			
 			PreparedStatement ppst = null;
 			
+			QueryCache cache = cached ? session.getQueryCache(options) : null;
+			
+			boolean lazyBatch = session.beginLazyBatch();
+			
 			try {
-				ppst = prepare();
 				
-				ResultSet rs = ppst.executeQuery();
+				String sql = null;
+				List<Object> params = null;
+				List<Object[]> rows = null;
 				
-				List<T> list = new ArrayList<T>();
-				T bean;
+				if (cache != null) {
+					
+					sql = getSQL();
+					params = new ArrayList<Object>(paramValues);
+					rows = cache.get(sql, params);
+				}
 				
-				while (rs.next()) {
+				List<T> list;
+				
+				if (rows != null) {
+					
+					list = aliasFrom.plan().readAll(session, rows, sentences.values());
+					
+				} else {
 					
-					bean = (T) aliasFrom.config.getBeanClass().newInstance();
-					aliasFrom.populateAll(rs, bean);
+					ppst = prepare();
 					
-					for (Sentence s : sentences.values()) {
-						session.injectValue(bean, s.getProperty(),
-								s.getValue(rs), s.getReturnType().getTypeClass());
+					long start = System.nanoTime();
+					
+					ResultSet rs = ppst.executeQuery();
+					
+					if (session.getSlowQueryThreshold() > 0) {
+						session.checkSlowQuery(getSQL(), start, paramTypes.toArray(new DBType<?>[paramTypes.size()]), paramValues.toArray());
 					}
 					
-					list.add(bean);
+					List<Object[]> read = cache != null ? new ArrayList<Object[]>() : null;
+					
+					list = aliasFrom.plan().readAll(session, rs, sentences.values(), read);
+					
+					if (read != null) {
+						
+						List<String> tables = new ArrayList<String>(createdAliases.size());
+						
+						for (Alias<?> a : createdAliases) {
+							tables.add(a.config.getTableName());
+						}
+						
+						session.cacheResult(sql, params, read, tables);
+					}
+				}
+				
+				for (String property : fetches) {
+					session.fetchImpl(list, property);
 				}
 				
 				return list;
 				
+			} catch (Exception e) {
+				
+				throw new BeanException("Unable to execute query from QueryBuilder\n"+
+						e.getMessage(), e);
+			}finally {
+				
+				if (lazyBatch) {
+					session.endLazyBatch();
+				}
+				
+				finish();
+				
+				SQLUtils.close(ppst);
+			}
+		}
+		
+		/**
+		 * Executes the query returning the beans one at a time from an open cursor. See {@link #iterate(int)}.
+		 * 
+		 * @return The iterator, to be closed
+		 */
+		public <T> QueryIterator<T> iterate() {
+			
+			return iterate(0);
+		}
+		
+		/**
+		 * Returns the execution plan of this query, with the same parameters, without executing it. The builder is finished, like after executing it.
+		 * 
+		 * @return The plan returned by the database
+		 * @see AnsiSQLBeanSession#explain(String, DBType[], Object[])
+		 */
+		public QueryPlan explain() {
+			
+			try {
+				
+				return session.explain(getSQL(), paramTypes.toArray(new DBType<?>[paramTypes.size()]), paramValues.toArray());
+				
+			} finally {
+				
+				finish();
+			}
+		}
+		
+		/**
+		 * Executes the query returning the beans one at a time from a cursor, instead of reading all of them into a list. The
+		 * <code>fetchSize</code> is the number of rows the driver gets from the database at a time (some drivers, like PostgreSQL, only use it when the
+		 * connection is not in auto commit) and takes precedence over the one of the {@link #options(QueryOptions) options}. The query cache is not used and the properties to fetch are loaded for a window of beans at a time (see {@link QueryIterator}). The builder is finished
+		 * as soon as the query is executed, so it can build another query while the iterator is open.
+		 * 
+		 * @param fetchSize the fetch size or 0 for the driver default
+		 * @return The iterator, to be closed
+		 * @see QueryIterator
+		 */
+		public <T> QueryIterator<T> iterate(int fetchSize) {
+			
+			PreparedStatement ppst = null;
+			
+			try {
+				
+				ppst = session.prepareStatement(getSQL(), options);
+				
+				if (fetchSize > 0) {
+					ppst.setFetchSize(fetchSize);
+				}
+				
+				SQLUtils.fillStatement(ppst, paramTypes.toArray(new DBType<?>[paramTypes.size()]), paramValues.toArray());
+				
+				if (AnsiSQLBeanSession.DEBUG_NATIVE) {
+					System.out.println("CUSTOM QUERY (NATIVE): "+ppst);
+				}
+				
+				return new QueryIterator<T>(session, ppst, aliasFrom.plan(), sentences.values().toArray(new Sentence[sentences.size()]), 
+						fetches.toArray(new String[fetches.size()]), fetchSize);
+				
+			} catch (Exception e) {
+				
+				SQLUtils.close(ppst);
+				
+				throw new BeanException("Unable to execute query from QueryBuilder\n"+
+						e.getMessage(), e);
+			} finally {
+				
+				finish();
+			}
+		}
+		
+		/**
+		 * Executes the query returning the values by column instead of creating beans. The columns of each alias in the <i>SELECT</i> clause are named
+		 * <code>alias.property</code> and the sentences by their names.
+		 * 
+		 * @return The columns retrieved by <code>ResultSet</code>
+		 * @see ColumnarResult
+		 */
+		public ColumnarResult executeColumnar() {
+			
+			PreparedStatement ppst = null;
+			
+			try {
+				
+				ColumnarResult result = new ColumnarResult();
+				
+				List<String> labels = new ArrayList<String>();
+				
+				for (Alias<?> a : selectAliases) {
+					
+					Iterator<DBField> fields = a.config.fields();
+					
+					while (fields.hasNext()) {
+						
+						DBField f = fields.next();
+						
+						if (session.isSelected(a.config, f, a.returns, a.returnMinus, false)) {
+							
+							result.addColumn(a.aliasStr + "." + f.getName(), f.getType());
+							labels.add(a.aliasStr + "_" + f.getDbName());
+						}
+					}
+				}
+				
+				for (Sentence s : sentences.values()) {
+					
+					result.addColumn(s.getName(), s.getReturnType());
+					labels.add(s.getName());
+				}
+				
+				ppst = prepare();
+				
+				ResultSet rs = ppst.executeQuery();
+				
+				int[] indexes = new int[labels.size()];
+				
+				for (int i = 0; i < indexes.length; i++) {
+					indexes[i] = rs.findColumn(labels.get(i));
+				}
+				
+				while (rs.next()) {
+					result.addRow(rs, indexes);
+				}
+				
+				result.done();
+				
+				return result;
+				
 			} catch (Exception e) {
 				
 				throw new BeanException("Unable to execute query from QueryBuilder\n"+
@@ -1641,7 +2279,7 @@ public class QueryBuilder {
 				throw new BeanException("Invalid parenthesis");
 			}
 			
-			applyRegex();
+			discardPending();
 			
 			if (AnsiSQLBeanSession.DEBUG) {
 				System.out.println("CUSTOM QUERY: "+sb.toString());
@@ -0,0 +1,235 @@
+package org.mentabean.jdbc;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A cache for the results of queries, keyed by the SQL and the values of its parameters, with a maximum number of results and a time-to-live. Each result
+ * remembers the tables read by the query and is invalidated when the session writes (insert, update, delete) to any of them.
+ *
+ * The result is cached as the rows of values read from the <code>ResultSet</code>, one <code>Object[]</code> per row, not as the beans themselves, so every
+ * hit creates new beans from the same values. The values are the ones returned by the types of the query that cached them, so two queries with the same
+ * SQL must read their columns with the same types. The dates, calendars and byte arrays are copied when the rows are cached and on every hit (like the
+ * rows of the {@link EntityCache}), so changing a bean never changes the cached result. For the same reason, do not cache queries of beans with streaming
+ * types.
+ *
+ * The same cache can be shared by many sessions but it is only invalidated by the writes of the sessions it was set to, so every session writing to the
+ * cached tables must use it. The writes done through native SQL, by sessions without this cache or by other applications are not seen. A write inside a
+ * transaction invalidates the results when it is done and again when the session commits or rolls back, so a result cached by another session before the
+ * commit does not survive it, and the session does not cache results reading the tables it wrote until then.
+ *
+ * @author Sergio Oliveira Jr.
+ * @see AnsiSQLBeanSession#setQueryCache(QueryCache)
+ */
+public class QueryCache {
+
+	private final int maxSize;
+
+	private final long ttl;
+
+	private final Map<Key, Result> map;
+
+	private long hits = 0;
+
+	private long misses = 0;
+
+	/**
+	 * @param maxSize
+	 *            the maximum number of results
+	 * @param ttl
+	 *            the time-to-live of a result in milliseconds, zero for none
+	 */
+	public QueryCache(final int maxSize, final long ttl) {
+
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maxSize must be greater than zero: " + maxSize);
+		}
+
+		if (ttl < 0) {
+			throw new IllegalArgumentException("ttl cannot be negative: " + ttl);
+		}
+
+		this.maxSize = maxSize;
+		this.ttl = ttl;
+
+		this.map = new LinkedHashMap<Key, Result>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Result> eldest) {
+				return size() > QueryCache.this.maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Return a copy of the cached rows of this query, or null if not cached or expired.
+	 *
+	 * @param sql
+	 * @param params
+	 * @return the rows or null
+	 */
+	public synchronized List<Object[]> get(final String sql, final List<Object> params) {
+
+		final Key key = new Key(sql, params);
+
+		final Result r = map.get(key);
+
+		if (r == null || (ttl > 0 && System.currentTimeMillis() - r.time > ttl)) {
+
+			if (r != null) {
+				map.remove(key);
+			}
+
+			misses++;
+
+			return null;
+		}
+
+		hits++;
+
+		return copy(r.rows);
+	}
+
+	/**
+	 * Cache a copy of the rows of this query.
+	 *
+	 * @param sql
+	 * @param params
+	 * @param rows
+	 *            the values of each row
+	 * @param tables
+	 *            the tables read by the query
+	 */
+	public void put(final String sql, final List<Object> params, final List<Object[]> rows, final Collection<String> tables) {
+
+		final Set<String> set = new HashSet<String>();
+
+		for (String t : tables) {
+			set.add(t.toLowerCase(Locale.ENGLISH));
+		}
+
+		final Result r = new Result(copy(rows), set, System.currentTimeMillis());
+
+		synchronized (this) {
+			map.put(new Key(sql, params), r);
+		}
+	}
+
+	private static List<Object[]> copy(final List<Object[]> rows) {
+
+		final List<Object[]> copy = new ArrayList<Object[]>(rows.size());
+
+		for (Object[] row : rows) {
+			copy.add(EntityCache.copy(row));
+		}
+
+		return copy;
+	}
+
+	/**
+	 * Remove all the results that read from this table.
+	 *
+	 * @param table
+	 */
+	public synchronized void invalidate(final String table) {
+
+		final String t = table.toLowerCase(Locale.ENGLISH);
+
+		final Iterator<Result> iter = map.values().iterator();
+
+		while (iter.hasNext()) {
+			if (iter.next().tables.contains(t)) {
+				iter.remove();
+			}
+		}
+	}
+
+	public synchronized void clear() {
+
+		map.clear();
+	}
+
+	public synchronized int size() {
+
+		return map.size();
+	}
+
+	public synchronized long getHits() {
+
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+
+		return misses;
+	}
+
+	public int getMaxSize() {
+
+		return maxSize;
+	}
+
+	public long getTtl() {
+
+		return ttl;
+	}
+
+	@Override
+	public String toString() {
+
+		return "QueryCache: size=" + size() + " maxSize=" + maxSize + " ttl=" + ttl + " hits=" + getHits() + " misses=" + getMisses();
+	}
+
+	private static class Key {
+
+		private final String sql;
+
+		private final List<Object> params;
+
+		Key(final String sql, final List<Object> params) {
+			this.sql = sql;
+			this.params = new ArrayList<Object>(params);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * sql.hashCode() + params.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+
+			final Key k = (Key) obj;
+
+			return sql.equals(k.sql) && params.equals(k.params);
+		}
+	}
+
+	private static class Result {
+
+		final List<Object[]> rows;
+
+		final Set<String> tables;
+
+		final long time;
+
+		Result(final List<Object[]> rows, final Set<String> tables, final long time) {
+			this.rows = rows;
+			this.tables = tables;
+			this.time = time;
+		}
+	}
+}
@@ -0,0 +1,226 @@
+package org.mentabean.jdbc;
+
+import java.io.Closeable;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.mentabean.BeanException;
+import org.mentabean.sql.Sentence;
+import org.mentabean.util.SQLUtils;
+
+/**
+ * The beans of a query read one at a time from an open cursor, so a large result does not have to be kept in memory and can be processed while it
+ * arrives. It holds the statement open until the last bean is read or it is closed, so always close it:
+ *
+ * <pre>
+ * QueryIterator&lt;Employee&gt; it = query.iterate(500);
+ *
+ * try {
+ * 	while (it.hasNext()) {
+ * 		Employee e = it.next();
+ * 		...
+ * 	}
+ * } finally {
+ * 	it.close();
+ * }
+ * </pre>
+ *
+ * When collections are joined, the rows of a bean are assembled while they are consecutive, so the query must be ordered by the PK of the FROM alias.
+ *
+ * When there are properties to fetch, the beans are read a window at a time (the fetch size, or {@link AnsiSQLBeanSession#FETCH_BATCH_SIZE} by default)
+ * and each property is fetched with one query for the whole window, not one per bean.
+ *
+ * @author Sergio Oliveira Jr.
+ * @see QueryBuilder.Query#iterate(int)
+ */
+@SuppressWarnings("unchecked")
+public class QueryIterator<T> implements Iterator<T>, Iterable<T>, Closeable {
+
+	private final AnsiSQLBeanSession session;
+
+	private final PreparedStatement stmt;
+
+	private final ResultSet rs;
+
+	private final RowPlan plan;
+
+	private final List<Sentence> sentences;
+
+	private final String[] fetches;
+
+	private final int window;
+
+	/* the beans read and not returned yet */
+	private final LinkedList<T> read = new LinkedList<T>();
+
+	/* the row of the next bean, already read when assembling the previous one */
+	private Object[] row = null;
+
+	private boolean closed = false;
+
+	QueryIterator(AnsiSQLBeanSession session, PreparedStatement stmt, RowPlan plan, Sentence[] sentences, String[] fetches, int fetchSize) throws SQLException {
+
+		this.session = session;
+		this.stmt = stmt;
+		this.plan = plan;
+		this.sentences = Arrays.asList(sentences);
+		this.fetches = fetches;
+		this.window = fetches.length == 0 ? 1 : fetchSize > 0 ? fetchSize : AnsiSQLBeanSession.FETCH_BATCH_SIZE;
+		this.rs = stmt.executeQuery();
+	}
+
+	@Override
+	public boolean hasNext() {
+
+		if (!read.isEmpty()) {
+			return true;
+		}
+
+		if (closed) {
+			return false;
+		}
+
+		boolean lazyBatch = session.beginLazyBatch();
+
+		try {
+
+			List<T> beans = new ArrayList<T>(window);
+
+			T bean;
+
+			while (beans.size() < window && (bean = readBean()) != null) {
+				beans.add(bean);
+			}
+
+			if (beans.isEmpty()) {
+				return false;
+			}
+
+			for (String property : fetches) {
+				session.fetchImpl(beans, property);
+			}
+
+			read.addAll(beans);
+
+			return true;
+
+		} catch (SQLException e) {
+
+			close();
+
+			throw new BeanException("Unable to read the next row\n" + e.getMessage(), e);
+
+		} finally {
+
+			if (lazyBatch) {
+				session.endLazyBatch();
+			}
+		}
+	}
+
+	/**
+	 * Read the next bean, or return null and close the cursor after the last one.
+	 */
+	private T readBean() throws SQLException {
+
+		Object[] current = row;
+
+		if (current == null) {
+
+			if (!rs.next()) {
+				end();
+				return null;
+			}
+
+			current = plan.read(rs, sentences);
+		}
+
+		row = null;
+
+		T bean = (T) plan.newInstance();
+
+		if (plan.hasCollections()) {
+
+			Map<Object, Object> assembled = new HashMap<Object, Object>();
+
+			Object key = plan.pkKey(current, 0);
+
+			plan.populate(session, current, 0, bean, assembled);
+
+			plan.injectSentences(session, current, sentences, bean);
+
+			// the next rows of the same bean...
+			while (rs.next()) {
+
+				Object[] next = plan.read(rs, sentences);
+
+				if (key == null || !key.equals(plan.pkKey(next, 0))) {
+					row = next;
+					break;
+				}
+
+				plan.populateCollections(session, next, 0, bean, key, assembled);
+			}
+
+		} else {
+
+			plan.populate(session, current, 0, bean, null);
+
+			plan.injectSentences(session, current, sentences, bean);
+		}
+
+		return bean;
+	}
+
+	@Override
+	public T next() {
+
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		return read.removeFirst();
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		return this;
+	}
+
+	/**
+	 * Close the cursor and its statement, dropping the beans read and not returned yet. The cursor is closed automatically after the last bean is read.
+	 */
+	@Override
+	public void close() {
+
+		read.clear();
+
+		end();
+	}
+
+	private void end() {
+
+		if (!closed) {
+			closed = true;
+			SQLUtils.close(rs, stmt);
+		}
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+}
@@ -0,0 +1,230 @@
+package org.mentabean.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JDBC hints for the statements of a query: fetch size, timeout, maximum number of rows and the type and concurrency of the result set. A value not set
+ * (zero) is taken from the options of the session, if any, or left to the driver.
+ *
+ * The statements executed with these options given to a query can be cancelled from another thread with {@link #cancel()}, to stop a runaway query. So use
+ * a new instance for each query that may have to be cancelled alone. The options of a session ({@link AnsiSQLBeanSession#setQueryOptions(QueryOptions)})
+ * do not keep their statements, so they cancel nothing.
+ *
+ * A query with a maximum number of rows does not use the query cache.
+ *
+ * <pre>
+ * List&lt;User&gt; users = session.loadList(new User(), orderBy, null, new QueryOptions().fetchSize(500).timeout(30));
+ * </pre>
+ *
+ * @author Sergio Oliveira Jr.
+ * @see AnsiSQLBeanSession#setQueryOptions(QueryOptions)
+ */
+public class QueryOptions {
+
+	private int fetchSize = 0;
+
+	private int timeout = 0;
+
+	private int maxRows = 0;
+
+	private int resultSetType = 0;
+
+	private int resultSetConcurrency = 0;
+
+	private final Set<Statement> running = Collections.newSetFromMap(new ConcurrentHashMap<Statement, Boolean>());
+
+	/**
+	 * The number of rows the driver gets from the database at a time. PostgreSQL only uses it when the connection is not in auto commit.
+	 *
+	 * @param fetchSize
+	 * @return this
+	 * @see Statement#setFetchSize(int)
+	 */
+	public QueryOptions fetchSize(int fetchSize) {
+		this.fetchSize = check(fetchSize, "fetchSize");
+		return this;
+	}
+
+	/**
+	 * The number of seconds the driver waits for the statement to execute.
+	 *
+	 * @param seconds
+	 * @return this
+	 * @see Statement#setQueryTimeout(int)
+	 */
+	public QueryOptions timeout(int seconds) {
+		this.timeout = check(seconds, "timeout");
+		return this;
+	}
+
+	/**
+	 * The maximum number of rows of the result, the others are silently dropped.
+	 *
+	 * @param maxRows
+	 * @return this
+	 * @see Statement#setMaxRows(int)
+	 */
+	public QueryOptions maxRows(int maxRows) {
+		this.maxRows = check(maxRows, "maxRows");
+		return this;
+	}
+
+	/**
+	 * The type of the result set, like {@link ResultSet#TYPE_FORWARD_ONLY}.
+	 *
+	 * @param resultSetType
+	 * @return this
+	 */
+	public QueryOptions resultSetType(int resultSetType) {
+		this.resultSetType = resultSetType;
+		return this;
+	}
+
+	/**
+	 * The concurrency of the result set, like {@link ResultSet#CONCUR_READ_ONLY}.
+	 *
+	 * @param resultSetConcurrency
+	 * @return this
+	 */
+	public QueryOptions resultSetConcurrency(int resultSetConcurrency) {
+		this.resultSetConcurrency = resultSetConcurrency;
+		return this;
+	}
+
+	public int getFetchSize() {
+		return fetchSize;
+	}
+
+	public int getTimeout() {
+		return timeout;
+	}
+
+	public int getMaxRows() {
+		return maxRows;
+	}
+
+	public int getResultSetType() {
+		return resultSetType;
+	}
+
+	public int getResultSetConcurrency() {
+		return resultSetConcurrency;
+	}
+
+	/**
+	 * Cancel the statements executing with these options, from another thread.
+	 *
+	 * @return the number of statements cancelled
+	 * @see Statement#cancel()
+	 */
+	public int cancel() {
+
+		int count = 0;
+
+		for (Statement stmt : running) {
+
+			try {
+
+				if (!stmt.isClosed()) {
+					stmt.cancel();
+					count++;
+				}
+
+			} catch (SQLException e) {
+				// closed meanwhile...
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Prepare a statement with these options, the ones not set taken from the defaults. It is kept to be cancelled only if <code>cancellable</code>.
+	 */
+	PreparedStatement prepare(Connection conn, String sql, QueryOptions defaults, boolean cancellable) throws SQLException {
+
+		if (defaults == null) {
+			defaults = this;
+		}
+
+		int type = or(resultSetType, defaults.resultSetType);
+		int concurrency = or(resultSetConcurrency, defaults.resultSetConcurrency);
+
+		final PreparedStatement stmt;
+
+		if (type != 0 || concurrency != 0) {
+			stmt = conn.prepareStatement(sql, or(type, ResultSet.TYPE_FORWARD_ONLY), or(concurrency, ResultSet.CONCUR_READ_ONLY));
+		} else {
+			stmt = conn.prepareStatement(sql);
+		}
+
+		try {
+
+			int value;
+
+			if ((value = or(fetchSize, defaults.fetchSize)) > 0) {
+				stmt.setFetchSize(value);
+			}
+
+			if ((value = or(timeout, defaults.timeout)) > 0) {
+				stmt.setQueryTimeout(value);
+			}
+
+			if ((value = or(maxRows, defaults.maxRows)) > 0) {
+				stmt.setMaxRows(value);
+			}
+
+		} catch (SQLException e) {
+
+			stmt.close();
+
+			throw e;
+		}
+
+		if (cancellable) {
+			register(stmt);
+		}
+
+		return stmt;
+	}
+
+	private void register(Statement stmt) throws SQLException {
+
+		// forget the ones already closed...
+		for (Iterator<Statement> iter = running.iterator(); iter.hasNext();) {
+			if (iter.next().isClosed()) {
+				iter.remove();
+			}
+		}
+
+		running.add(stmt);
+	}
+
+	private static int or(int value, int other) {
+		return value != 0 ? value : other;
+	}
+
+	private static int check(int value, String name) {
+
+		if (value < 0) {
+			throw new IllegalArgumentException(name + " cannot be negative: " + value);
+		}
+
+		return value;
+	}
+
+	@Override
+	public String toString() {
+
+		return "QueryOptions [fetchSize=" + fetchSize + ", timeout=" + timeout + ", maxRows=" + maxRows + ", resultSetType=" + resultSetType
+				+ ", resultSetConcurrency=" + resultSetConcurrency + "]";
+	}
+}
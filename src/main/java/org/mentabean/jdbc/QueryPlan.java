@@ -0,0 +1,132 @@
+package org.mentabean.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The execution plan of a query, as returned by the <i>EXPLAIN</i> of the database: the rows of the result by column. A database that returns the plan as
+ * text (H2) or as a JSON document (PostgreSQL) returns it in a single row and column, one that returns a table (MySQL) returns one row per step.
+ *
+ * @author Sergio Oliveira Jr.
+ * @see AnsiSQLBeanSession#explain(String, org.mentabean.DBType[], Object[])
+ */
+public class QueryPlan {
+
+	private final String sql;
+
+	private final List<Object> params;
+
+	private final List<String> columns;
+
+	private final List<Object[]> rows;
+
+	QueryPlan(String sql, Object[] params, ResultSet rset) throws SQLException {
+
+		this.sql = sql;
+		this.params = Collections.unmodifiableList(Arrays.asList(params.clone()));
+
+		ResultSetMetaData meta = rset.getMetaData();
+
+		int count = meta.getColumnCount();
+
+		List<String> cols = new ArrayList<String>(count);
+
+		for (int i = 1; i <= count; i++) {
+			cols.add(meta.getColumnLabel(i));
+		}
+
+		List<Object[]> list = new ArrayList<Object[]>();
+
+		while (rset.next()) {
+
+			Object[] row = new Object[count];
+
+			for (int i = 0; i < count; i++) {
+				row[i] = rset.getObject(i + 1);
+			}
+
+			list.add(row);
+		}
+
+		this.columns = Collections.unmodifiableList(cols);
+		this.rows = Collections.unmodifiableList(list);
+	}
+
+	/**
+	 * The query explained, without the <i>EXPLAIN</i> command.
+	 *
+	 * @return the SQL
+	 */
+	public String getSQL() {
+		return sql;
+	}
+
+	public List<Object> getParams() {
+		return params;
+	}
+
+	public List<String> getColumns() {
+		return columns;
+	}
+
+	public List<Object[]> getRows() {
+		return rows;
+	}
+
+	/**
+	 * Return the value of a column of a row of the plan.
+	 *
+	 * @param row
+	 * @param column
+	 *            the label of the column (case insensitive)
+	 * @return the value
+	 */
+	public Object get(int row, String column) {
+
+		for (int i = 0; i < columns.size(); i++) {
+			if (columns.get(i).equalsIgnoreCase(column)) {
+				return rows.get(row)[i];
+			}
+		}
+
+		throw new IllegalArgumentException("No such column in the plan: " + column);
+	}
+
+	/**
+	 * The plan as text, one line per row with the values separated by tabs.
+	 *
+	 * @return the text
+	 */
+	public String getText() {
+
+		StringBuilder sb = new StringBuilder(128);
+
+		for (Object[] row : rows) {
+
+			if (sb.length() > 0) {
+				sb.append('\n');
+			}
+
+			for (int i = 0; i < row.length; i++) {
+
+				if (i > 0) {
+					sb.append('\t');
+				}
+
+				sb.append(row[i]);
+			}
+		}
+
+		return sb.toString();
+	}
+
+	@Override
+	public String toString() {
+		return getText();
+	}
+}
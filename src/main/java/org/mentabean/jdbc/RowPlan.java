@@ -0,0 +1,579 @@
+package org.mentabean.jdbc;
+
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.mentabean.BeanConfig;
+import org.mentabean.BeanException;
+import org.mentabean.DBField;
+import org.mentabean.sql.Sentence;
+import org.mentabean.util.InjectionUtils;
+import org.mentabean.util.PropertyAccessors;
+
+/**
+ * How to populate the beans of an alias and of the aliases joined to it from each row of a query. The selected fields, their setters and the getters of the
+ * joined properties are found once, when the plan is created, and the column indexes when the first row is read, so each row is only a sequence of indexed
+ * reads and method calls. Each row is first read into an array with the values of the fields of the plan, followed by the ones of each joined plan and
+ * the ones of the sentences, and the beans are populated from it, so the same rows can be cached and populate new beans later (see QueryCache). It does not hold the session and does not change after the columns are found (always the same for the query of the plan), so
+ * the same plan can populate rows for any session, in any thread.
+ *
+ * @author Sergio Oliveira Jr.
+ */
+@SuppressWarnings("unchecked")
+final class RowPlan {
+
+	private final BeanConfig config;
+
+	private final String alias;
+
+	private final String[] returns;
+
+	private final String[] returnMinus;
+
+	private final Join[] joins;
+
+	/* the getters of the joined properties, null when there is none to call directly */
+	private final Method[] joinGetters;
+
+	/* the selected fields, the labels of their columns and their setters, null when the value has to be converted by the session */
+	private final DBField[] fields;
+
+	private final String[] labels;
+
+	private final Method[] setters;
+
+	/* the positions of the PKs in the fields */
+	private final int[] pkFields;
+
+	private volatile int[] columns = null;
+
+	/* where the values of each joined plan start in a row, from where the values of this one start */
+	private final int[] joinOffsets;
+
+	/* the number of values of this plan and of the joined ones in a row */
+	private final int width;
+
+	private final boolean pkSelected;
+
+	private final boolean collections;
+
+	/**
+	 * A bean property receiving the beans of a joined alias.
+	 */
+	static final class Join {
+
+		final String property;
+
+		final boolean forceInstance;
+
+		final boolean collection;
+
+		final RowPlan plan;
+
+		Join(String property, boolean forceInstance, boolean collection, RowPlan plan) {
+			this.property = property;
+			this.forceInstance = forceInstance;
+			this.collection = collection;
+			this.plan = plan;
+		}
+	}
+
+	RowPlan(AnsiSQLBeanSession session, BeanConfig config, String alias, String[] returns, String[] returnMinus, List<Join> joins) {
+
+		this.config = config;
+		this.alias = alias;
+		this.returns = returns;
+		this.returnMinus = returnMinus;
+		this.joins = joins.toArray(new Join[joins.size()]);
+
+		PropertyAccessors accessors = PropertyAccessors.of(config.getBeanClass());
+
+		this.joinGetters = new Method[this.joins.length];
+
+		for (int i = 0; i < this.joins.length; i++) {
+			joinGetters[i] = accessors.getter(this.joins[i].property);
+		}
+
+		List<DBField> selected = new ArrayList<DBField>(config.getNumberOfFields());
+
+		List<Integer> pks = new ArrayList<Integer>(config.getNumberOfPKs());
+
+		Iterator<DBField> iter = config.fields();
+
+		while (iter.hasNext()) {
+
+			DBField f = iter.next();
+
+			if (session.isSelected(config, f, returns, returnMinus, false)) {
+
+				if (f.isPK()) {
+					pks.add(selected.size());
+				}
+
+				selected.add(f);
+			}
+		}
+
+		this.fields = selected.toArray(new DBField[selected.size()]);
+		this.labels = new String[fields.length];
+		this.setters = new Method[fields.length];
+
+		for (int i = 0; i < fields.length; i++) {
+
+			labels[i] = alias + "_" + fields[i].getDbName();
+
+			setters[i] = setterOf(accessors, fields[i]);
+		}
+
+		this.pkFields = new int[pks.size()];
+
+		for (int i = 0; i < pkFields.length; i++) {
+			pkFields[i] = pks.get(i);
+		}
+
+		this.pkSelected = pkFields.length > 0 && pkFields.length == config.getNumberOfPKs();
+
+		boolean coll = false;
+
+		for (Join j : this.joins) {
+
+			if (j.collection && !j.plan.pkSelected) {
+				throw new BeanException("The PK of alias " + j.plan.alias + " must be selected to populate a collection");
+			}
+
+			coll |= j.collection || j.plan.collections;
+		}
+
+		this.collections = coll;
+
+		this.joinOffsets = new int[this.joins.length];
+
+		int w = fields.length;
+
+		for (int i = 0; i < this.joins.length; i++) {
+			joinOffsets[i] = w;
+			w += this.joins[i].plan.width;
+		}
+
+		this.width = w;
+	}
+
+	/**
+	 * Read all the rows, creating one bean per row, or one bean per distinct PK when there are collections to assemble.
+	 *
+	 * @param session
+	 * @param rs
+	 * @param sentences
+	 *            the sentences injected in each bean
+	 * @param rows
+	 *            where to keep the rows read, to be cached, or null
+	 * @return the beans
+	 */
+	<T> List<T> readAll(AnsiSQLBeanSession session, ResultSet rs, Collection<Sentence> sentences, List<Object[]> rows) throws SQLException {
+
+		List<T> list = new ArrayList<T>();
+
+		// beans by PK, when the rows must be assembled into collections...
+		Map<Object, Object> assembled = collections ? new HashMap<Object, Object>() : null;
+
+		while (rs.next()) {
+
+			Object[] row = read(rs, sentences);
+
+			if (rows != null) {
+				rows.add(row);
+			}
+
+			add(session, row, sentences, list, assembled);
+		}
+
+		return list;
+	}
+
+	/**
+	 * The same as readAll, from rows read before.
+	 *
+	 * @param session
+	 * @param rows
+	 *            the rows returned by read
+	 * @param sentences
+	 *            the sentences injected in each bean
+	 * @return the beans
+	 */
+	<T> List<T> readAll(AnsiSQLBeanSession session, List<Object[]> rows, Collection<Sentence> sentences) {
+
+		List<T> list = new ArrayList<T>(rows.size());
+
+		Map<Object, Object> assembled = collections ? new HashMap<Object, Object>() : null;
+
+		for (Object[] row : rows) {
+			add(session, row, sentences, list, assembled);
+		}
+
+		return list;
+	}
+
+	private <T> void add(AnsiSQLBeanSession session, Object[] row, Collection<Sentence> sentences, List<T> list, Map<Object, Object> assembled) {
+
+		T bean;
+
+		if (assembled != null) {
+
+			Object key = pkKey(row, 0);
+
+			bean = key != null ? (T) assembled.get(key) : null;
+
+			if (bean != null) {
+				populateCollections(session, row, 0, bean, key, assembled);
+				return;
+			}
+
+			bean = (T) newBean(config.getBeanClass());
+			populate(session, row, 0, bean, assembled);
+
+			if (key != null) {
+				assembled.put(key, bean);
+			}
+
+		} else {
+
+			bean = (T) newBean(config.getBeanClass());
+			populate(session, row, 0, bean, null);
+		}
+
+		injectSentences(session, row, sentences, bean);
+
+		list.add(bean);
+	}
+
+	/**
+	 * Read the values of the current row: the ones of the fields of this plan and of the joined ones, followed by the ones of the sentences.
+	 *
+	 * @param rs
+	 * @param sentences
+	 * @return the values
+	 */
+	Object[] read(ResultSet rs, Collection<Sentence> sentences) throws SQLException {
+
+		Object[] row = new Object[width + sentences.size()];
+
+		readInto(rs, row, 0);
+
+		int index = width;
+
+		for (Sentence s : sentences) {
+			row[index++] = s.getValue(rs);
+		}
+
+		return row;
+	}
+
+	private void readInto(ResultSet rs, Object[] row, int offset) throws SQLException {
+
+		int[] cols = columns(rs);
+
+		for (int i = 0; i < fields.length; i++) {
+			row[offset + i] = fields[i].getType().getFromResultSet(rs, cols[i]);
+		}
+
+		for (int i = 0; i < joins.length; i++) {
+			joins[i].plan.readInto(rs, row, offset + joinOffsets[i]);
+		}
+	}
+
+	/**
+	 * Inject the values of the sentences, at the end of the row, in the bean.
+	 */
+	void injectSentences(AnsiSQLBeanSession session, Object[] row, Collection<Sentence> sentences, Object bean) {
+
+		int index = width;
+
+		for (Sentence s : sentences) {
+			session.injectValue(bean, s.getProperty(), row[index++], s.getReturnType().getTypeClass());
+		}
+	}
+
+	/**
+	 * Whether the rows of a bean must be assembled, as there are collections joined to it.
+	 */
+	boolean hasCollections() {
+		return collections;
+	}
+
+	/**
+	 * Create the bean of this alias.
+	 */
+	Object newInstance() {
+		return newBean(config.getBeanClass());
+	}
+
+	/**
+	 * Populates the bean and its joined beans from a row, with the values of this plan starting at <code>offset</code>. When assembling a graph with
+	 * collections, the beans already created are kept by PK in <code>assembled</code>, so each row only adds the new elements to the collections.
+	 */
+	void populate(AnsiSQLBeanSession session, Object[] row, int offset, Object bean, Map<Object, Object> assembled) {
+
+		populateFields(session, row, offset, bean);
+
+		for (int i = 0; i < joins.length; i++) {
+
+			Join j = joins[i];
+
+			if (j.collection) {
+				continue;
+			}
+
+			Object value = propertyBean(session, bean, i, j.forceInstance);
+
+			if (value != null) {
+
+				j.plan.populate(session, row, offset + joinOffsets[i], value, assembled);
+
+				if (j.plan.returns == null && j.plan.returnMinus == null) {
+					LazyLoading.setLoaded(value); // fully populated by the join...
+				}
+			}
+		}
+
+		if (assembled != null && collections) {
+			populateCollections(session, row, offset, bean, pkKey(row, offset), assembled);
+		}
+	}
+
+	/**
+	 * Adds the beans of a row to the collections of a bean (and of its joined beans).
+	 */
+	void populateCollections(AnsiSQLBeanSession session, Object[] row, int offset, Object bean, Object beanKey, Map<Object, Object> assembled) {
+
+		for (int i = 0; i < joins.length; i++) {
+
+			Join j = joins[i];
+
+			RowPlan child = j.plan;
+
+			int childOffset = offset + joinOffsets[i];
+
+			if (!j.collection) {
+
+				if (child.collections) {
+
+					Object value = propertyBean(session, bean, i, false);
+
+					if (value != null) {
+						child.populateCollections(session, row, childOffset, value, child.pkKey(row, childOffset), assembled);
+					}
+				}
+
+				continue;
+			}
+
+			Object childKey = child.pkKey(row, childOffset);
+
+			if (childKey == null) {
+				continue; // nothing joined in this row (outer join)
+			}
+
+			Object item = assembled.get(childKey);
+
+			if (item == null) {
+
+				item = newBean(child.config.getBeanClass());
+
+				child.populate(session, row, childOffset, item, assembled);
+
+				assembled.put(childKey, item);
+
+			} else if (child.collections) {
+
+				child.populateCollections(session, row, childOffset, item, childKey, assembled);
+			}
+
+			// the same element can come in many rows when joining more than one collection...
+			if (beanKey == null || assembled.put(Arrays.asList(beanKey, j.property, childKey), Boolean.TRUE) == null) {
+				collectionOf(session, bean, j.property).add(item);
+			}
+		}
+	}
+
+	/**
+	 * The values of the selected fields, read with the types of the fields, injected with the setters found for them or by the session when the value
+	 * needs conversion (null, a nested property, a different type...).
+	 */
+	private void populateFields(AnsiSQLBeanSession session, Object[] row, int offset, Object bean) {
+
+		try {
+
+			for (int i = 0; i < fields.length; i++) {
+
+				Object value = row[offset + i];
+
+				if (value != null && setters[i] != null) {
+					setters[i].invoke(bean, value);
+				} else {
+					session.injectValue(bean, fields[i].getName(), value, fields[i].getType().getTypeClass());
+				}
+			}
+
+		} catch (BeanException e) {
+
+			throw e;
+
+		} catch (Exception e) {
+
+			throw new BeanException(e);
+		}
+	}
+
+	/**
+	 * The indexes of the columns of the fields, found by their labels in the first result set and the same for the next ones, as they come from the
+	 * same query.
+	 */
+	private int[] columns(ResultSet rs) throws SQLException {
+
+		int[] cols = columns;
+
+		if (cols == null) {
+
+			cols = new int[labels.length];
+
+			for (int i = 0; i < labels.length; i++) {
+				cols[i] = rs.findColumn(labels[i]);
+			}
+
+			columns = cols;
+		}
+
+		return cols;
+	}
+
+	/**
+	 * The bean of a joined property, with its getter when there is one, or created by the session when null.
+	 */
+	private Object propertyBean(AnsiSQLBeanSession session, Object bean, int join, boolean create) {
+
+		Method getter = joinGetters[join];
+
+		if (getter != null) {
+
+			Object value;
+
+			try {
+				value = getter.invoke(bean);
+			} catch (Exception e) {
+				throw new BeanException(e);
+			}
+
+			if (value != null || !create) {
+				return value;
+			}
+		}
+
+		return session.getPropertyBean(bean, joins[join].property, create);
+	}
+
+	/**
+	 * The setter of a field that takes exactly the values of its type, so they can be injected without conversion.
+	 */
+	private static Method setterOf(PropertyAccessors accessors, DBField field) {
+
+		if (field.getName().indexOf('.') > 0) {
+			return null; // nested, the session creates the beans in the chain...
+		}
+
+		Class<? extends Object> typeClass = field.getType().getTypeClass();
+
+		Method m = accessors.setter(field.getName(), typeClass);
+
+		if (m == null) {
+			return null;
+		}
+
+		Class<?> param = m.getParameterTypes()[0];
+
+		if (param.equals(typeClass) || param.equals(InjectionUtils.getPrimitiveFrom(typeClass))) {
+			return m;
+		}
+
+		return null;
+	}
+
+	private static Collection<Object> collectionOf(AnsiSQLBeanSession session, Object bean, String property) {
+
+		Object value = session.getValueFromBean(bean, property);
+
+		if (value == null) {
+
+			Class<?> type = InjectionUtils.findPropertyType(bean.getClass(), property);
+
+			if (type == null) {
+				throw new BeanException("Cannot find property type: " + bean.getClass() + " " + property);
+			}
+
+			if (type.isAssignableFrom(ArrayList.class)) {
+				value = new ArrayList<Object>();
+			} else if (type.isAssignableFrom(LinkedHashSet.class)) {
+				value = new LinkedHashSet<Object>();
+			} else {
+				value = newBean(type);
+			}
+
+			session.injectValue(bean, property, value, type);
+		}
+
+		if (!(value instanceof Collection)) {
+			throw new BeanException("Property is not a collection: " + bean.getClass() + " " + property);
+		}
+
+		return (Collection<Object>) value;
+	}
+
+	/**
+	 * Returns the key of the bean of this alias in a row, or null if its PK is not selected or null.
+	 */
+	Object pkKey(Object[] row, int offset) {
+
+		if (!pkSelected) {
+			return null;
+		}
+
+		List<Object> key = new ArrayList<Object>(pkFields.length + 1);
+
+		key.add(this);
+
+		for (int i : pkFields) {
+
+			Object value = row[offset + i];
+
+			if (value == null) {
+				return null;
+			}
+
+			key.add(value);
+		}
+
+		return key;
+	}
+
+	private static Object newBean(Class<?> klass) {
+
+		try {
+			return klass.newInstance();
+		} catch (Exception e) {
+			throw new BeanException("Cannot create instance of " + klass, e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "RowPlan: " + alias + " of " + config.getBeanClass();
+	}
+}
@@ -0,0 +1,59 @@
+package org.mentabean.jdbc;
+
+import java.util.Collection;
+
+/**
+ * Keeps the column values of the beans attached to a session, so a dynamic update can find out what was modified since the bean was loaded (or inserted).
+ * 
+ * Beans are always compared by identity, never by equals/hashCode.
+ * 
+ * @author Sergio Oliveira Jr.
+ *
+ * @param <V> the snapshot type
+ */
+public interface SnapshotStore<V> {
+
+	/**
+	 * Return the snapshot for this bean.
+	 * 
+	 * @param bean
+	 * @return the snapshot or null if the bean is not attached
+	 */
+	public V get(Object bean);
+
+	/**
+	 * Attach a bean, replacing any previous snapshot it had.
+	 * 
+	 * @param bean
+	 * @param snapshot
+	 */
+	public void put(Object bean, V snapshot);
+
+	/**
+	 * Detach a bean.
+	 * 
+	 * @param bean
+	 * @return the snapshot removed or null if the bean was not attached
+	 */
+	public V remove(Object bean);
+
+	/**
+	 * Detach all beans.
+	 */
+	public void clear();
+
+	/**
+	 * Return the number of beans currently attached.
+	 * 
+	 * @return the number of snapshots
+	 */
+	public int size();
+
+	/**
+	 * Return a copy of the snapshots currently held.
+	 * 
+	 * @return the snapshots
+	 */
+	public Collection<V> snapshots();
+
+}
@@ -0,0 +1,98 @@
+package org.mentabean.jdbc;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A snapshot store that holds its beans through weak references, so a bean that is no longer used by the application is detached automatically and its snapshot is
+ * garbage collected with it. This is the default store used by the session.
+ * 
+ * @author Sergio Oliveira Jr.
+ */
+public class WeakSnapshotStore<V> implements SnapshotStore<V> {
+
+	private final Map<Key, V> map = new HashMap<Key, V>();
+
+	private final ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+
+	@Override
+	public V get(Object bean) {
+		expunge();
+		return map.get(new Key(bean, null));
+	}
+
+	@Override
+	public void put(Object bean, V snapshot) {
+		expunge();
+		map.put(new Key(bean, queue), snapshot);
+	}
+
+	@Override
+	public V remove(Object bean) {
+		expunge();
+		return map.remove(new Key(bean, null));
+	}
+
+	@Override
+	public void clear() {
+		map.clear();
+		while (queue.poll() != null) {
+			// just drain...
+		}
+	}
+
+	@Override
+	public int size() {
+		expunge();
+		return map.size();
+	}
+
+	@Override
+	public Collection<V> snapshots() {
+		expunge();
+		return new ArrayList<V>(map.values());
+	}
+
+	private void expunge() {
+		Object ref;
+		while ((ref = queue.poll()) != null) {
+			map.remove(ref);
+		}
+	}
+
+	private static class Key extends WeakReference<Object> {
+
+		private final int hash;
+
+		Key(Object bean, ReferenceQueue<Object> queue) {
+			super(bean, queue);
+			this.hash = System.identityHashCode(bean);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+
+			if (obj == this) {
+				return true;
+			}
+
+			if (obj instanceof Key) {
+
+				Object bean = get();
+
+				return bean != null && bean == ((Key) obj).get();
+			}
+
+			return false;
+		}
+	}
+}
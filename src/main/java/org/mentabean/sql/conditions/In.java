@@ -1,8 +1,11 @@
 package org.mentabean.sql.conditions;
 
+import java.util.Collection;
+
 import org.mentabean.sql.Condition;
 import org.mentabean.sql.Parametrizable;
 import org.mentabean.sql.param.Param;
+import org.mentabean.sql.param.ParamValues;
 
 public class In extends Parametrizable implements Condition {
 	
@@ -15,9 +18,34 @@ public class In extends Parametrizable implements Condition {
 		addParam(param);
 	}
 	
+	/**
+	 * IN a list of values (see {@link ParamValues} for how the list is padded, and how the QueryBuilder binds a very large one).
+	 * 
+	 * @param values
+	 */
+	public In (Collection<?> values) {
+		addParam(new ParamValues(values));
+	}
+	
 	@Override
 	public Parametrizable addParam(Param param) {
 		return super.addParam(param);
 	}
 	
+	/**
+	 * Whether this is IN a list without values, like an empty collection.
+	 * 
+	 * @return true if there is no value
+	 */
+	public boolean isEmpty() {
+		
+		for (Param param : params) {
+			if (!(param instanceof ParamValues) || param.values().length > 0) {
+				return false;
+			}
+		}
+		
+		return !params.isEmpty();
+	}
+	
 }
@@ -1,12 +1,22 @@
 package org.mentabean.sql.conditions;
 
+import java.util.Collection;
+
 import org.mentabean.sql.param.Param;
 
+/**
+ * NOT IN a list of values. NOT IN an empty list is true for every row, so the QueryBuilder renders the whole clause as <code>1 = 1</code> (and not as
+ * <code>NOT IN (NULL)</code>, true for none).
+ */
 public class NotIn extends In {
 
 	public NotIn(Param param) {
 		super(param);
 	}
+	
+	public NotIn(Collection<?> values) {
+		super(values);
+	}
 
 	@Override
 	public String name() {
@@ -1,13 +1,27 @@
 package org.mentabean.sql.param;
 
+import org.mentabean.DBField;
+import org.mentabean.DBType;
+import org.mentabean.jdbc.AnsiSQLBeanSession;
 import org.mentabean.jdbc.QueryBuilder.Alias;
 
 public class ParamField implements Param {
 
 	private String column;
 	
+	private DBType<?> type;
+	
 	public ParamField(Alias<?> alias, Object property) {
-		column = alias.toColumn(property);
+		
+		String name = AnsiSQLBeanSession.getProperties(new Object[] {property})[0];
+		
+		column = alias.toColumn(name);
+		
+		DBField field = alias.toField(name);
+		
+		if (field != null) {
+			type = field.getType();
+		}
 	}
 	
 	@Override
@@ -20,4 +34,13 @@ public class ParamField implements Param {
 		return null;
 	}
 
+	/**
+	 * The type of the field, used to bind the values compared to it, or null if the property is not mapped.
+	 * 
+	 * @return the type or null
+	 */
+	public DBType<?> getType() {
+		return type;
+	}
+
 }
@@ -0,0 +1,105 @@
+package org.mentabean.sql.param;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A list of values, like the ones of an IN condition. The number of parameters is padded to the next power of two, repeating the last value, so lists of
+ * any size produce only a few different statements for the database (and the driver) to cache. Above {@link #MAX_POWER_OF_TWO} values it is padded to the
+ * next multiple of it instead, so a large list never gets much larger. Null values are ignored and an empty list is rendered as <code>NULL</code>, which
+ * matches no row (see {@link org.mentabean.sql.conditions.NotIn} for the opposite). The QueryBuilder binds a list larger than {@link #MAX_POWER_OF_TWO} as a
+ * single array when the dialect supports it, or splits it in lists of at most that many values.
+ */
+public class ParamValues implements Param {
+
+	/**
+	 * The largest size padded to a power of two.
+	 */
+	public static final int MAX_POWER_OF_TWO = 1024;
+
+	private final Object[] values;
+
+	private final int size;
+
+	public ParamValues(Collection<?> values) {
+
+		List<Object> list = new ArrayList<Object>(values.size());
+
+		for (Object value : values) {
+			if (value != null) {
+				list.add(value);
+			}
+		}
+
+		this.size = list.size();
+
+		if (size > 0) {
+
+			Object last = list.get(size - 1);
+
+			for (int i = size; i < paddedSize(size); i++) {
+				list.add(last);
+			}
+		}
+
+		this.values = list.toArray();
+	}
+
+	public ParamValues(Object... values) {
+		this(Arrays.asList(values));
+	}
+
+	/**
+	 * The number of parameters used for a list of this size: the next power of two, or the next multiple of {@link #MAX_POWER_OF_TWO} above it.
+	 *
+	 * @param size
+	 * @return the padded size
+	 */
+	public static int paddedSize(int size) {
+
+		if (size > MAX_POWER_OF_TWO) {
+			return (size + MAX_POWER_OF_TWO - 1) / MAX_POWER_OF_TWO * MAX_POWER_OF_TWO;
+		}
+
+		int padded = 1;
+
+		while (padded < size) {
+			padded <<= 1;
+		}
+
+		return padded;
+	}
+
+	/**
+	 * The number of values, not counting the padding.
+	 *
+	 * @return the number of values
+	 */
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public String paramInQuery() {
+
+		if (values.length == 0) {
+			return "NULL"; // nothing can be equal to it...
+		}
+
+		StringBuilder sb = new StringBuilder(values.length * 2);
+
+		for (int i = 0; i < values.length; i++) {
+			sb.append(i > 0 ? ",?" : "?");
+		}
+
+		return sb.toString();
+	}
+
+	@Override
+	public Object[] values() {
+		return values;
+	}
+
+}
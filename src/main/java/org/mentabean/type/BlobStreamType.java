@@ -0,0 +1,142 @@
+package org.mentabean.type;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Blob;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * A binary LOB type that never materializes the value as a byte[]. The value read from the result set is a lazy stream over the Blob locator, only opened on
+ * the first read, and the value is bound with setBinaryStream.
+ *
+ * @author Sergio Oliveira Jr.
+ */
+public class BlobStreamType extends LobStreamType<InputStream, Blob> {
+
+	public BlobStreamType nullable(boolean flag) {
+		BlobStreamType d = new BlobStreamType();
+		d.canBeNull = flag;
+		return d;
+	}
+
+	@Override
+	public String getAnsiType() {
+		return "blob";
+	}
+
+	@Override
+	public Class<? extends Object> getTypeClass() {
+
+		return InputStream.class;
+	}
+
+	@Override
+	protected int getSqlType() {
+		return Types.BLOB;
+	}
+
+	@Override
+	protected Blob getLob(final ResultSet rset, final int index) throws SQLException {
+		return rset.getBlob(index);
+	}
+
+	@Override
+	protected Blob getLob(final ResultSet rset, final String field) throws SQLException {
+		return rset.getBlob(field);
+	}
+
+	@Override
+	protected InputStream wrap(final Blob blob) {
+		return new BlobInputStream(blob);
+	}
+
+	@Override
+	protected Locator<Blob, InputStream> locatorOf(final InputStream value) {
+		return value instanceof BlobInputStream ? ((BlobInputStream) value).locator : null;
+	}
+
+	@Override
+	protected void bindLob(final PreparedStatement stmt, final int index, final Blob blob) throws SQLException {
+		stmt.setBlob(index, blob);
+	}
+
+	@Override
+	protected void bindStream(final PreparedStatement stmt, final int index, final InputStream value) throws SQLException {
+		stmt.setBinaryStream(index, value);
+	}
+
+	/**
+	 * An InputStream that only asks the Blob for its binary stream when it is first read.
+	 */
+	public static class BlobInputStream extends InputStream {
+
+		private final Locator<Blob, InputStream> locator;
+
+		public BlobInputStream(Blob blob) {
+
+			this.locator = new Locator<Blob, InputStream>(blob) {
+
+				@Override
+				protected InputStream open(Blob lob) throws SQLException {
+					return lob.getBinaryStream();
+				}
+
+				@Override
+				protected long length(Blob lob) throws SQLException {
+					return lob.length();
+				}
+
+				@Override
+				protected void free(Blob lob) throws SQLException {
+					lob.free();
+				}
+			};
+		}
+
+		public Blob getBlob() {
+			return locator.getLob();
+		}
+
+		public boolean isOpened() {
+			return locator.isOpened();
+		}
+
+		/**
+		 * Return the length of the value without reading it.
+		 *
+		 * @return the number of bytes
+		 * @throws IOException
+		 */
+		public long length() throws IOException {
+			return locator.length();
+		}
+
+		@Override
+		public int read() throws IOException {
+			return locator.stream().read();
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			return locator.stream().read(b, off, len);
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			return locator.stream().skip(n);
+		}
+
+		@Override
+		public int available() throws IOException {
+			return locator.isOpened() ? locator.opened().available() : 0;
+		}
+
+		@Override
+		public void close() throws IOException {
+			locator.close();
+		}
+	}
+}
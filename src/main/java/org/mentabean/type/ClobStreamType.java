@@ -0,0 +1,142 @@
+package org.mentabean.type;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Clob;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * A character LOB type that never materializes the value as a String. The value read from the result set is a lazy reader over the Clob locator, only opened
+ * on the first read, and the value is bound with setCharacterStream.
+ *
+ * @author Sergio Oliveira Jr.
+ */
+public class ClobStreamType extends LobStreamType<Reader, Clob> {
+
+	public ClobStreamType nullable(boolean flag) {
+		ClobStreamType d = new ClobStreamType();
+		d.canBeNull = flag;
+		return d;
+	}
+
+	@Override
+	public String getAnsiType() {
+		return "clob";
+	}
+
+	@Override
+	public Class<? extends Object> getTypeClass() {
+
+		return Reader.class;
+	}
+
+	@Override
+	protected int getSqlType() {
+		return Types.CLOB;
+	}
+
+	@Override
+	protected Clob getLob(final ResultSet rset, final int index) throws SQLException {
+		return rset.getClob(index);
+	}
+
+	@Override
+	protected Clob getLob(final ResultSet rset, final String field) throws SQLException {
+		return rset.getClob(field);
+	}
+
+	@Override
+	protected Reader wrap(final Clob clob) {
+		return new ClobReader(clob);
+	}
+
+	@Override
+	protected Locator<Clob, Reader> locatorOf(final Reader value) {
+		return value instanceof ClobReader ? ((ClobReader) value).locator : null;
+	}
+
+	@Override
+	protected void bindLob(final PreparedStatement stmt, final int index, final Clob clob) throws SQLException {
+		stmt.setClob(index, clob);
+	}
+
+	@Override
+	protected void bindStream(final PreparedStatement stmt, final int index, final Reader value) throws SQLException {
+		stmt.setCharacterStream(index, value);
+	}
+
+	/**
+	 * A Reader that only asks the Clob for its character stream when it is first read.
+	 */
+	public static class ClobReader extends Reader {
+
+		private final Locator<Clob, Reader> locator;
+
+		public ClobReader(Clob clob) {
+
+			this.locator = new Locator<Clob, Reader>(clob) {
+
+				@Override
+				protected Reader open(Clob lob) throws SQLException {
+					return lob.getCharacterStream();
+				}
+
+				@Override
+				protected long length(Clob lob) throws SQLException {
+					return lob.length();
+				}
+
+				@Override
+				protected void free(Clob lob) throws SQLException {
+					lob.free();
+				}
+			};
+		}
+
+		public Clob getClob() {
+			return locator.getLob();
+		}
+
+		public boolean isOpened() {
+			return locator.isOpened();
+		}
+
+		/**
+		 * Return the length of the value without reading it.
+		 *
+		 * @return the number of characters
+		 * @throws IOException
+		 */
+		public long length() throws IOException {
+			return locator.length();
+		}
+
+		@Override
+		public int read() throws IOException {
+			return locator.stream().read();
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) throws IOException {
+			return locator.stream().read(cbuf, off, len);
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			return locator.stream().skip(n);
+		}
+
+		@Override
+		public boolean ready() throws IOException {
+			return locator.isOpened() && locator.opened().ready();
+		}
+
+		@Override
+		public void close() throws IOException {
+			locator.close();
+		}
+	}
+}
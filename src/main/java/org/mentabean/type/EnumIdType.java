@@ -28,10 +28,26 @@ import org.mentabean.DBType;
 
 public class EnumIdType implements DBType<Enum<?>> {
 
+	/**
+	 * Ids up to this many slots above the number of constants go to a plain array indexed by id, otherwise to a hash.
+	 */
+	private static final int MAX_DENSE_GAP = 64;
+
 	private final Class<? extends Enum<?>> enumType;
 	private final Method fromIdMethod;
 	private final Method getIdMethod;
 
+	// the id of each constant, by ordinal...
+	private final int[] ids;
+
+	// dense: the constant of each id, from minId...
+	private Enum<?>[] byId;
+	private int minId;
+
+	// sparse: open addressing by id...
+	private int[] hashKeys;
+	private Enum<?>[] hashValues;
+
 	private boolean canBeNull = false;
 
 	@Override
@@ -49,6 +65,59 @@ public class EnumIdType implements DBType<Enum<?>> {
 		this.enumType = enumType;
 		this.fromIdMethod = getFromIdMethod(enumType);
 		this.getIdMethod = getGetIdMethod(enumType);
+
+		// call the enum methods once for every constant, so no reflection is needed per row...
+
+		Enum<?>[] all = enumType.getEnumConstants();
+
+		this.ids = new int[all.length];
+
+		int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+
+		for (Enum<?> e : all) {
+			int id = invokeGetId(e);
+			ids[e.ordinal()] = id;
+			min = Math.min(min, id);
+			max = Math.max(max, id);
+		}
+
+		if (all.length == 0) {
+			return;
+		}
+
+		if ((long) max - min < all.length + MAX_DENSE_GAP) {
+
+			this.minId = min;
+			this.byId = new Enum<?>[max - min + 1];
+
+			for (int id : ids) {
+				byId[id - min] = invokeFromId(id);
+			}
+
+		} else {
+
+			int capacity = Integer.highestOneBit(all.length * 2 - 1) << 1;
+
+			this.hashKeys = new int[capacity];
+			this.hashValues = new Enum<?>[capacity];
+
+			for (int id : ids) {
+
+				int i = slot(id);
+
+				while (hashValues[i] != null && hashKeys[i] != id) {
+					i = (i + 1) & (capacity - 1);
+				}
+
+				hashKeys[i] = id;
+				hashValues[i] = invokeFromId(id);
+			}
+		}
+	}
+
+	private int slot(int id) {
+		int h = id * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & (hashKeys.length - 1);
 	}
 
 	@Override
@@ -79,6 +148,38 @@ public class EnumIdType implements DBType<Enum<?>> {
 	}
 
 	private Enum<?> fromId(int id) {
+
+		if (byId != null) {
+
+			int i = id - minId;
+
+			if (i >= 0 && i < byId.length && byId[i] != null) {
+				return byId[i];
+			}
+
+		} else if (hashKeys != null) {
+
+			int i = slot(id);
+
+			while (hashValues[i] != null) {
+
+				if (hashKeys[i] == id) {
+					return hashValues[i];
+				}
+
+				i = (i + 1) & (hashKeys.length - 1);
+			}
+		}
+
+		// not the id of any constant, so let the enum decide...
+		return invokeFromId(id);
+	}
+
+	private int getId(Enum<?> theEnum) {
+		return ids[theEnum.ordinal()];
+	}
+
+	private Enum<?> invokeFromId(int id) {
 		try {
 			return (Enum<?>) fromIdMethod.invoke(null, id);
 		} catch (Exception e) {
@@ -86,7 +187,7 @@ public class EnumIdType implements DBType<Enum<?>> {
 		}
 	}
 
-	private int getId(Enum<?> theEnum) {
+	private int invokeGetId(Enum<?> theEnum) {
 		try {
 			return (Integer) getIdMethod.invoke(theEnum, (Object[]) null);
 		} catch (Exception e) {
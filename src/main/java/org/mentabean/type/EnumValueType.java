@@ -20,6 +20,8 @@ package org.mentabean.type;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.mentabean.DBType;
 
@@ -27,6 +29,7 @@ public class EnumValueType implements DBType<Enum<?>>, SizedType {
 
 	private final Class<? extends Enum<?>> enumType;
 	private final int size;
+	private final Map<String, Enum<?>> byName;
 
 	private boolean canBeNull = false;
 
@@ -45,6 +48,11 @@ public class EnumValueType implements DBType<Enum<?>>, SizedType {
 
 		this.enumType = enumType;
 		this.size = calcSize();
+		this.byName = new HashMap<String, Enum<?>>();
+
+		for (Enum<?> e : enumType.getEnumConstants()) {
+			byName.put(e.name(), e);
+		}
 	}
 
 	@Override
@@ -77,6 +85,17 @@ public class EnumValueType implements DBType<Enum<?>>, SizedType {
 	}
 
 	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private Enum<?> fromName(String s) {
+
+		Enum<?> e = byName.get(s);
+
+		if (e == null) {
+			return Enum.valueOf((Class) enumType, s); // throws the usual exception...
+		}
+
+		return e;
+	}
+
 	@Override
 	public Enum<?> getFromResultSet(final ResultSet rset, final int index) throws SQLException {
 
@@ -86,11 +105,10 @@ public class EnumValueType implements DBType<Enum<?>>, SizedType {
 			return null;
 		}
 
-		return Enum.valueOf((Class) enumType, s);
+		return fromName(s);
 
 	}
 
-	@SuppressWarnings({ "unchecked", "rawtypes" })
 	@Override
 	public Enum<?> getFromResultSet(final ResultSet rset, final String field) throws SQLException {
 
@@ -100,7 +118,7 @@ public class EnumValueType implements DBType<Enum<?>>, SizedType {
 			return null;
 		}
 
-		return Enum.valueOf((Class) enumType, s);
+		return fromName(s);
 
 	}
 
@@ -0,0 +1,198 @@
+package org.mentabean.type;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.mentabean.DBType;
+
+/**
+ * The base of the LOB types that never materialize the value. The value read from the result set wraps the LOB locator and only opens its stream on the first
+ * read. An untouched value is bound back as the locator, anything else as a stream.
+ *
+ * Note that the value is backed by the locator, so it is only valid while the JDBC driver keeps it (usually while the connection or transaction is open).
+ *
+ * @author Sergio Oliveira Jr.
+ *
+ * @param <T>
+ *            the type of the value (InputStream, Reader)
+ * @param <L>
+ *            the type of the locator (Blob, Clob)
+ */
+public abstract class LobStreamType<T extends Closeable, L> implements DBType<T> {
+
+	protected boolean canBeNull = true;
+
+	@Override
+	public boolean canBeNull() {
+		return canBeNull;
+	}
+
+	@Override
+	public String toString() {
+
+		return getClass().getSimpleName();
+	}
+
+	/**
+	 * The java.sql.Types of the column, used to bind nulls.
+	 */
+	protected abstract int getSqlType();
+
+	protected abstract L getLob(ResultSet rset, int index) throws SQLException;
+
+	protected abstract L getLob(ResultSet rset, String field) throws SQLException;
+
+	/**
+	 * Wrap the locator in a lazy value.
+	 */
+	protected abstract T wrap(L lob);
+
+	/**
+	 * Return the locator of a value returned by wrap, or null if the value is not one of them.
+	 */
+	protected abstract Locator<L, T> locatorOf(T value);
+
+	protected abstract void bindLob(PreparedStatement stmt, int index, L lob) throws SQLException;
+
+	protected abstract void bindStream(PreparedStatement stmt, int index, T value) throws SQLException;
+
+	@Override
+	public T getFromResultSet(final ResultSet rset, final int index) throws SQLException {
+
+		L lob = getLob(rset, index);
+
+		if (lob == null || rset.wasNull()) {
+			return null;
+		}
+
+		return wrap(lob);
+	}
+
+	@Override
+	public T getFromResultSet(final ResultSet rset, final String field) throws SQLException {
+
+		L lob = getLob(rset, field);
+
+		if (lob == null || rset.wasNull()) {
+			return null;
+		}
+
+		return wrap(lob);
+	}
+
+	@Override
+	public void bindToStmt(final PreparedStatement stmt, final int index, final T value) throws SQLException {
+
+		if (value == null) {
+
+			stmt.setNull(index, getSqlType());
+
+			return;
+		}
+
+		Locator<L, T> locator = locatorOf(value);
+
+		if (locator != null && !locator.isOpened()) {
+
+			// untouched value loaded from the database, so hand the locator back to the driver...
+			bindLob(stmt, index, locator.getLob());
+
+		} else {
+
+			bindStream(stmt, index, value);
+		}
+	}
+
+	/**
+	 * A LOB locator whose stream is only opened when it is first asked for.
+	 *
+	 * @param <L>
+	 *            the type of the locator
+	 * @param <S>
+	 *            the type of the stream
+	 */
+	protected static abstract class Locator<L, S extends Closeable> {
+
+		private final L lob;
+
+		private S in;
+
+		public Locator(L lob) {
+			this.lob = lob;
+		}
+
+		protected abstract S open(L lob) throws SQLException;
+
+		protected abstract long length(L lob) throws SQLException;
+
+		protected abstract void free(L lob) throws SQLException;
+
+		public L getLob() {
+			return lob;
+		}
+
+		public boolean isOpened() {
+			return in != null;
+		}
+
+		/**
+		 * Return the opened stream, or null if it was never read.
+		 */
+		public S opened() {
+			return in;
+		}
+
+		public long length() throws IOException {
+
+			try {
+
+				return length(lob);
+
+			} catch (SQLException e) {
+
+				throw new IOException(e);
+			}
+		}
+
+		public S stream() throws IOException {
+
+			if (in == null) {
+
+				try {
+
+					in = open(lob);
+
+				} catch (SQLException e) {
+
+					throw new IOException(e);
+				}
+			}
+
+			return in;
+		}
+
+		public void close() throws IOException {
+
+			try {
+
+				if (in != null) {
+					in.close();
+				}
+
+			} finally {
+
+				try {
+
+					free(lob);
+
+				} catch (SQLException e) {
+
+					// ignore, the driver may not support it...
+				}
+			}
+		}
+	}
+}
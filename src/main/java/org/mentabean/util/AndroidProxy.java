@@ -21,6 +21,11 @@ public class AndroidProxy extends PropertiesProxy {
 		super(chainProp);
 	}
 	
+	@Override
+	protected PropertiesProxy createInstance(String chainProp) {
+		return new AndroidProxy(chainProp);
+	}
+	
 	@Override
 	protected <E> E createInternal(Class<E> klass) {
 		
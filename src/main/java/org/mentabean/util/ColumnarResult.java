@@ -0,0 +1,502 @@
+package org.mentabean.util;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.mentabean.BeanException;
+import org.mentabean.DBType;
+import org.mentabean.type.AutoIncrementType;
+import org.mentabean.type.DoubleType;
+import org.mentabean.type.FloatType;
+import org.mentabean.type.IntegerType;
+import org.mentabean.type.LongType;
+import org.mentabean.type.SequenceType;
+import org.mentabean.type.StringType;
+
+/**
+ * The result of a query stored by column instead of by bean. The columns of the plain numeric types are kept in primitive arrays (int[], long[], double[])
+ * with a bitmap marking the nulls, the ones of the plain string type are dictionary encoded and everything else, including the subclasses of those types, is
+ * kept as returned by its DBType.
+ *
+ * Useful for analytic queries that fetch a few columns over many rows, where creating a bean per row is pure overhead.
+ *
+ * @author Sergio Oliveira Jr.
+ */
+public class ColumnarResult {
+
+	private final Map<String, Column> columns = new LinkedHashMap<String, Column>();
+
+	private int size = 0;
+
+	/**
+	 * Add a column to be filled from the result set.
+	 *
+	 * @param name
+	 *            The name of the column in this result (usually the bean property)
+	 * @param type
+	 *            The database type used to read the column
+	 */
+	public void addColumn(String name, DBType<?> type) {
+
+		if (size > 0) {
+			throw new IllegalStateException("Cannot add a column after rows were added!");
+		}
+
+		columns.put(name, Column.of(type));
+	}
+
+	/**
+	 * Read the current row of the result set, one result set index per column in the order they were added (starting at the given index).
+	 *
+	 * @param rset
+	 * @param firstIndex
+	 * @throws SQLException
+	 */
+	public void addRow(ResultSet rset, int firstIndex) throws SQLException {
+
+		int index = firstIndex;
+
+		for (Column c : columns.values()) {
+			c.read(rset, index++, size);
+		}
+
+		size++;
+	}
+
+	/**
+	 * Read the current row of the result set using the given result set index for each column, in the order they were added.
+	 *
+	 * @param rset
+	 * @param indexes
+	 * @throws SQLException
+	 */
+	public void addRow(ResultSet rset, int[] indexes) throws SQLException {
+
+		int i = 0;
+
+		for (Column c : columns.values()) {
+			c.read(rset, indexes[i++], size);
+		}
+
+		size++;
+	}
+
+	/**
+	 * Trim the internal arrays to the number of rows. Called once after the last row was added.
+	 */
+	public void done() {
+
+		for (Column c : columns.values()) {
+			c.trim(size);
+		}
+	}
+
+	/**
+	 * Return the number of rows.
+	 *
+	 * @return the number of rows
+	 */
+	public int size() {
+		return size;
+	}
+
+	public Set<String> getColumnNames() {
+		return Collections.unmodifiableSet(columns.keySet());
+	}
+
+	public Column getColumn(String name) {
+
+		if (name == null) {
+			return getColumn((Object) null); // a String property of the proxy...
+		}
+
+		Column c = columns.get(name);
+
+		if (c == null) {
+			throw new BeanException("Column not found in result: " + name);
+		}
+
+		return c;
+	}
+
+	/**
+	 * Same as getColumn(String) but through the proxy. The columns of a QueryBuilder query are named <i>alias.property</i>, so the property is also found
+	 * under the alias that selected it, as long as there is only one.
+	 *
+	 * @param property
+	 * @return the column
+	 * @see #getColumn(String, Object)
+	 */
+	public Column getColumn(Object property) {
+
+		String name = property instanceof String ? (String) property : PropertiesProxy.getPropertyName();
+
+		Column c = columns.get(name);
+
+		if (c != null) {
+			return c;
+		}
+
+		String suffix = "." + name;
+
+		for (Map.Entry<String, Column> e : columns.entrySet()) {
+
+			if (e.getKey().endsWith(suffix)) {
+
+				if (c != null) {
+					throw new BeanException("Column " + name + " is selected by more than one alias, use getColumn(alias, property)");
+				}
+
+				c = e.getValue();
+			}
+		}
+
+		if (c == null) {
+			throw new BeanException("Column not found in result: " + name);
+		}
+
+		return c;
+	}
+
+	/**
+	 * Return the column of a property selected by a QueryBuilder alias, through the proxy.
+	 *
+	 * @param alias
+	 *            the name of the alias
+	 * @param property
+	 * @return the column
+	 */
+	public Column getColumn(String alias, Object property) {
+
+		return getColumn(alias + "." + (property instanceof String ? (String) property : PropertiesProxy.getPropertyName()));
+	}
+
+	public int[] getInts(String name) {
+		return as(name, IntColumn.class).values;
+	}
+
+	public long[] getLongs(String name) {
+		return as(name, LongColumn.class).values;
+	}
+
+	public double[] getDoubles(String name) {
+		return as(name, DoubleColumn.class).values;
+	}
+
+	/**
+	 * Return the dictionary codes of a string column, one per row. A null value has code -1.
+	 *
+	 * @param name
+	 * @return the codes
+	 */
+	public int[] getCodes(String name) {
+		return as(name, StringColumn.class).codes;
+	}
+
+	/**
+	 * Return the distinct values of a string column, indexed by code.
+	 *
+	 * @param name
+	 * @return the dictionary
+	 */
+	public String[] getDictionary(String name) {
+		return as(name, StringColumn.class).dictionary;
+	}
+
+	public BitSet getNulls(String name) {
+		return getColumn(name).nulls;
+	}
+
+	public boolean isNull(String name, int row) {
+		return getColumn(name).nulls.get(row);
+	}
+
+	/**
+	 * Return a single value, boxed. Avoid this in loops and go for the arrays instead.
+	 *
+	 * @param name
+	 * @param row
+	 * @return the value or null
+	 */
+	public Object get(String name, int row) {
+
+		if (row < 0 || row >= size) {
+			throw new IndexOutOfBoundsException("row: " + row + ", size: " + size);
+		}
+
+		Column c = getColumn(name);
+
+		return c.nulls.get(row) ? null : c.get(row);
+	}
+
+	private <C extends Column> C as(String name, Class<C> klass) {
+
+		Column c = getColumn(name);
+
+		if (!klass.isInstance(c)) {
+			throw new BeanException("Column " + name + " is a " + c.getClass().getSimpleName() + ", not a " + klass.getSimpleName());
+		}
+
+		return klass.cast(c);
+	}
+
+	@Override
+	public String toString() {
+
+		final StringBuilder sb = new StringBuilder(64);
+
+		sb.append("ColumnarResult: rows=").append(size).append(" columns=").append(columns.keySet());
+
+		return sb.toString();
+	}
+
+	public static abstract class Column {
+
+		protected final BitSet nulls = new BitSet();
+
+		/**
+		 * The column for a type. Only the plain types read the result set directly, a subclass may convert the value so it goes through its DBType.
+		 */
+		static Column of(DBType<?> type) {
+
+			Class<?> klass = type.getClass();
+
+			if (klass == IntegerType.class) {
+				return new IntColumn();
+			} else if (klass == LongType.class || klass == AutoIncrementType.class || klass == SequenceType.class) {
+				return new LongColumn();
+			} else if (klass == DoubleType.class || klass == FloatType.class) {
+				return new DoubleColumn();
+			} else if (klass == StringType.class) {
+				return new StringColumn();
+			}
+
+			return new ObjectColumn(type);
+		}
+
+		protected static int grow(int length, int row) {
+			return row < length ? length : Math.max(16, length * 2);
+		}
+
+		public BitSet getNulls() {
+			return nulls;
+		}
+
+		protected abstract void read(ResultSet rset, int index, int row) throws SQLException;
+
+		protected abstract void trim(int size);
+
+		protected abstract Object get(int row);
+	}
+
+	public static class IntColumn extends Column {
+
+		private int[] values = new int[0];
+
+		@Override
+		protected void read(ResultSet rset, int index, int row) throws SQLException {
+
+			if (row == values.length) {
+				values = Arrays.copyOf(values, grow(values.length, row));
+			}
+
+			values[row] = rset.getInt(index);
+
+			if (rset.wasNull()) {
+				nulls.set(row);
+			}
+		}
+
+		@Override
+		protected void trim(int size) {
+			values = Arrays.copyOf(values, size);
+		}
+
+		@Override
+		protected Object get(int row) {
+			return values[row];
+		}
+
+		public int[] getValues() {
+			return values;
+		}
+	}
+
+	public static class LongColumn extends Column {
+
+		private long[] values = new long[0];
+
+		@Override
+		protected void read(ResultSet rset, int index, int row) throws SQLException {
+
+			if (row == values.length) {
+				values = Arrays.copyOf(values, grow(values.length, row));
+			}
+
+			values[row] = rset.getLong(index);
+
+			if (rset.wasNull()) {
+				nulls.set(row);
+			}
+		}
+
+		@Override
+		protected void trim(int size) {
+			values = Arrays.copyOf(values, size);
+		}
+
+		@Override
+		protected Object get(int row) {
+			return values[row];
+		}
+
+		public long[] getValues() {
+			return values;
+		}
+	}
+
+	public static class DoubleColumn extends Column {
+
+		private double[] values = new double[0];
+
+		@Override
+		protected void read(ResultSet rset, int index, int row) throws SQLException {
+
+			if (row == values.length) {
+				values = Arrays.copyOf(values, grow(values.length, row));
+			}
+
+			values[row] = rset.getDouble(index);
+
+			if (rset.wasNull()) {
+				nulls.set(row);
+			}
+		}
+
+		@Override
+		protected void trim(int size) {
+			values = Arrays.copyOf(values, size);
+		}
+
+		@Override
+		protected Object get(int row) {
+			return values[row];
+		}
+
+		public double[] getValues() {
+			return values;
+		}
+	}
+
+	public static class StringColumn extends Column {
+
+		private int[] codes = new int[0];
+
+		private String[] dictionary = new String[0];
+
+		private final Map<String, Integer> lookup = new HashMap<String, Integer>();
+
+		@Override
+		protected void read(ResultSet rset, int index, int row) throws SQLException {
+
+			if (row == codes.length) {
+				codes = Arrays.copyOf(codes, grow(codes.length, row));
+			}
+
+			String s = rset.getString(index);
+
+			if (s == null) {
+
+				nulls.set(row);
+
+				codes[row] = -1;
+
+				return;
+			}
+
+			Integer code = lookup.get(s);
+
+			if (code == null) {
+
+				code = lookup.size();
+
+				lookup.put(s, code);
+
+				if (code == dictionary.length) {
+					dictionary = Arrays.copyOf(dictionary, grow(dictionary.length, code));
+				}
+
+				dictionary[code] = s;
+			}
+
+			codes[row] = code;
+		}
+
+		@Override
+		protected void trim(int size) {
+			codes = Arrays.copyOf(codes, size);
+			dictionary = Arrays.copyOf(dictionary, lookup.size());
+		}
+
+		@Override
+		protected Object get(int row) {
+			return dictionary[codes[row]];
+		}
+
+		public int[] getCodes() {
+			return codes;
+		}
+
+		public String[] getDictionary() {
+			return dictionary;
+		}
+	}
+
+	public static class ObjectColumn extends Column {
+
+		private final DBType<?> type;
+
+		private Object[] values = new Object[0];
+
+		public ObjectColumn(DBType<?> type) {
+			this.type = type;
+		}
+
+		@Override
+		protected void read(ResultSet rset, int index, int row) throws SQLException {
+
+			if (row == values.length) {
+				values = Arrays.copyOf(values, grow(values.length, row));
+			}
+
+			Object value = type.getFromResultSet(rset, index);
+
+			if (value == null) {
+				nulls.set(row);
+			}
+
+			values[row] = value;
+		}
+
+		@Override
+		protected void trim(int size) {
+			values = Arrays.copyOf(values, size);
+		}
+
+		@Override
+		protected Object get(int row) {
+			return values[row];
+		}
+
+		public Object[] getValues() {
+			return values;
+		}
+	}
+}
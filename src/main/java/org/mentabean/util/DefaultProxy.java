@@ -4,11 +4,33 @@ import java.lang.reflect.Method;
 
 import javassist.util.proxy.MethodFilter;
 import javassist.util.proxy.MethodHandler;
+import javassist.util.proxy.Proxy;
 import javassist.util.proxy.ProxyFactory;
 
 import org.mentabean.BeanException;
 
 public class DefaultProxy extends PropertiesProxy {
+	
+	// the proxy class does not depend on the chain (the handler does), so one per bean class is enough...
+	private static final ClassValue<Class<?>> proxyClasses = new ClassValue<Class<?>>() {
+		
+		@Override
+		protected Class<?> computeValue(Class<?> klass) {
+			
+			ProxyFactory factory = new ProxyFactory();
+			factory.setSuperclass(klass);
+			
+			factory.setFilter(new MethodFilter() {
+				
+				@Override
+				public boolean isHandled(Method m) {
+					return getPropName(m) != null;
+				}
+			});
+			
+			return factory.createClass();
+		}
+	};
 
 	public DefaultProxy(String chainProp) {
 		super(chainProp);
@@ -18,34 +40,32 @@ public class DefaultProxy extends PropertiesProxy {
 		super(null);
 	}
 	
+	@Override
+	protected PropertiesProxy createInstance(String chainProp) {
+		return new DefaultProxy(chainProp);
+	}
+	
 	@SuppressWarnings("unchecked")
 	@Override
 	protected <E> E createInternal(final Class<E> klass) {
 		
 		try {
-		
-    		ProxyFactory factory = new ProxyFactory();
-    		factory.setSuperclass(klass);
-    		
-    		factory.setFilter(new MethodFilter() {
-    
-    			@Override
-                public boolean isHandled(Method m) {
-    				return getPropName(m) != null;
-    			}
-    		});
-    		
-    		MethodHandler handler = new MethodHandler() {
-    	        
-    			@Override
-    	        public Object invoke(Object self, Method thisMethod, Method proceed, Object[] args) throws Throwable {
-    				
-    				return DefaultProxy.this.invoke(self, thisMethod, args);
-    	        }
-    	    };
-    	    
-    	    return (E) factory.create(new Class[0], new Object[0], handler);
-    	    
+			
+			MethodHandler handler = new MethodHandler() {
+				
+				@Override
+				public Object invoke(Object self, Method thisMethod, Method proceed, Object[] args) throws Throwable {
+					
+					return DefaultProxy.this.invoke(self, thisMethod, args);
+				}
+			};
+			
+			Object proxy = proxyClasses.get(klass).newInstance();
+			
+			((Proxy) proxy).setHandler(handler);
+			
+			return (E) proxy;
+			
 		} catch(Exception e) {
 			throw new BeanException(e);
 		}
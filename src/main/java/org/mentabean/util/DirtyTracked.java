@@ -0,0 +1,15 @@
+package org.mentabean.util;
+
+import java.util.BitSet;
+
+/**
+ * Implemented by the bean subclasses generated by {@link DirtyTracking}. Each bit is the index of a field in the BeanConfig whose setter was called since the bean
+ * was loaded.
+ * 
+ * @author Sergio Oliveira Jr.
+ */
+public interface DirtyTracked {
+
+	public BitSet getDirtyFields();
+
+}
@@ -0,0 +1,268 @@
+package org.mentabean.util;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javassist.util.proxy.MethodFilter;
+import javassist.util.proxy.MethodHandler;
+import javassist.util.proxy.Proxy;
+import javassist.util.proxy.ProxyFactory;
+
+import org.mentabean.BeanConfig;
+import org.mentabean.BeanException;
+import org.mentabean.DBField;
+
+/**
+ * Creates beans that record which of their properties were modified through their setters. The session uses it for the beans configured with
+ * {@link BeanConfig#dirtyTracking(boolean)}, so a dynamic update does not have to keep a snapshot of the loaded values nor compare them.
+ * 
+ * NOTE: A nested property like "engine.id" is marked as dirty only when setEngine(...) is called on the tracked bean, not when the nested bean is modified.
+ * So the session keeps the loaded values of the nested properties (see {@link #getNestedFields(BeanConfig)}) and compares them, like it does for the beans
+ * that are not tracked.
+ * 
+ * @author Sergio Oliveira Jr.
+ */
+public class DirtyTracking {
+
+	/**
+	 * Create a new tracked instance for the given bean config.
+	 * 
+	 * @param bc
+	 * @return a new instance of a subclass of the bean class
+	 */
+	public static Object newInstance(BeanConfig bc) {
+
+		Enhanced e = enhanced(bc);
+
+		try {
+
+			Object bean = e.proxyClass.newInstance();
+
+			((Proxy) bean).setHandler(new Handler(e.setters));
+
+			return bean;
+
+		} catch (Exception ex) {
+			throw new BeanException("Cannot create tracked instance for " + bc.getBeanClass(), ex);
+		}
+	}
+
+	/**
+	 * Return the indexes of the nested fields (like "engine.id") of a bean config, the ones its setters cannot track.
+	 * 
+	 * @param bc
+	 * @return the indexes of the nested fields, empty if none
+	 */
+	public static int[] getNestedFields(BeanConfig bc) {
+
+		return enhanced(bc).nested;
+	}
+
+	/**
+	 * The tracked subclass of a bean config, generated once and kept by the config (discarded if the config changes).
+	 */
+	private static Enhanced enhanced(BeanConfig bc) {
+
+		Enhanced e = (Enhanced) bc.getCompiled(Enhanced.class);
+
+		if (e == null) {
+
+			synchronized (bc) {
+
+				e = (Enhanced) bc.getCompiled(Enhanced.class);
+
+				if (e == null) {
+
+					e = new Enhanced(bc);
+
+					bc.putCompiled(Enhanced.class, e);
+				}
+			}
+		}
+
+		return e;
+	}
+
+	/**
+	 * Return the dirty fields of a tracked bean.
+	 * 
+	 * @param bean
+	 * @return the dirty fields or null if the bean is not tracked
+	 */
+	public static BitSet getDirtyFields(Object bean) {
+
+		if (!(bean instanceof DirtyTracked)) {
+			return null;
+		}
+
+		// null if the class was instantiated without the session...
+		MethodHandler handler = ProxyFactory.getHandler((Proxy) bean);
+
+		return handler instanceof Handler ? ((Handler) handler).dirty : null;
+	}
+
+	public static boolean isTracked(Object bean) {
+
+		return getDirtyFields(bean) != null;
+	}
+
+	/**
+	 * Mark all properties of a tracked bean as not modified.
+	 * 
+	 * @param bean
+	 */
+	public static void clear(Object bean) {
+
+		BitSet dirty = getDirtyFields(bean);
+
+		if (dirty != null) {
+			dirty.clear();
+		}
+	}
+
+	private static class Enhanced {
+
+		private final Class<?> proxyClass;
+
+		private final Map<String, int[]> setters;
+
+		private final int[] nested;
+
+		public Enhanced(BeanConfig bc) {
+
+			if (Modifier.isFinal(bc.getBeanClass().getModifiers())) {
+				throw new BeanException("Cannot enhance " + bc.getBeanClass() + " for dirty tracking. The class must not be final.");
+			}
+
+			this.setters = mapSetters(bc);
+			this.nested = nestedFields(bc);
+
+			for (Method m : bc.getBeanClass().getMethods()) {
+				if (m.getParameterTypes().length == 1 && setters.containsKey(m.getName()) && Modifier.isFinal(m.getModifiers())) {
+					throw new BeanException("Cannot enhance " + bc.getBeanClass() + " for dirty tracking. The setter must not be final: " + m);
+				}
+			}
+
+			ProxyFactory factory = new ProxyFactory();
+			factory.setSuperclass(bc.getBeanClass());
+			factory.setInterfaces(new Class<?>[] { DirtyTracked.class });
+
+			factory.setFilter(new MethodFilter() {
+
+				@Override
+				public boolean isHandled(Method m) {
+
+					if (m.getDeclaringClass().equals(DirtyTracked.class)) {
+						return true;
+					}
+
+					return m.getParameterTypes().length == 1 && setters.containsKey(m.getName());
+				}
+			});
+
+			this.proxyClass = factory.createClass();
+		}
+
+		private static int[] nestedFields(BeanConfig bc) {
+
+			List<Integer> list = new ArrayList<Integer>();
+
+			Iterator<DBField> iter = bc.fields();
+
+			for (int index = 0; iter.hasNext(); index++) {
+				if (iter.next().getName().indexOf('.') > 0) {
+					list.add(index);
+				}
+			}
+
+			int[] array = new int[list.size()];
+
+			for (int i = 0; i < array.length; i++) {
+				array[i] = list.get(i);
+			}
+
+			return array;
+		}
+
+		private static Map<String, int[]> mapSetters(BeanConfig bc) {
+
+			Map<String, List<Integer>> map = new HashMap<String, List<Integer>>();
+
+			Iterator<DBField> iter = bc.fields();
+
+			int index = 0;
+
+			while (iter.hasNext()) {
+
+				String name = iter.next().getName();
+
+				int dot = name.indexOf('.');
+
+				String prop = dot > 0 ? name.substring(0, dot) : name;
+
+				String setter = "set" + prop.substring(0, 1).toUpperCase() + prop.substring(1);
+
+				List<Integer> list = map.get(setter);
+
+				if (list == null) {
+					list = new ArrayList<Integer>();
+					map.put(setter, list);
+				}
+
+				list.add(index++);
+			}
+
+			Map<String, int[]> setters = new HashMap<String, int[]>();
+
+			for (Map.Entry<String, List<Integer>> entry : map.entrySet()) {
+
+				List<Integer> list = entry.getValue();
+
+				int[] array = new int[list.size()];
+
+				for (int i = 0; i < array.length; i++) {
+					array[i] = list.get(i);
+				}
+
+				setters.put(entry.getKey(), array);
+			}
+
+			return setters;
+		}
+	}
+
+	private static class Handler implements MethodHandler {
+
+		private final BitSet dirty = new BitSet();
+
+		private final Map<String, int[]> setters;
+
+		public Handler(Map<String, int[]> setters) {
+			this.setters = setters;
+		}
+
+		@Override
+		public Object invoke(Object self, Method thisMethod, Method proceed, Object[] args) throws Throwable {
+
+			if (thisMethod.getDeclaringClass().equals(DirtyTracked.class)) {
+				return dirty; // getDirtyFields()
+			}
+
+			int[] indexes = setters.get(thisMethod.getName());
+
+			if (indexes != null) {
+				for (int i : indexes) {
+					dirty.set(i);
+				}
+			}
+
+			return proceed.invoke(self, args);
+		}
+	}
+}
@@ -0,0 +1,17 @@
+package org.mentabean.util;
+
+/**
+ * Implemented by the lazy-loading proxies the session injects in the nested properties configured with {@link org.mentabean.BeanConfig#lazy(Object)}.
+ * 
+ * @author Sergio Oliveira Jr.
+ */
+public interface LazyLoaded {
+
+	/**
+	 * Return whether the bean was already loaded from the database. Calling any method but the PK getters and setters loads it.
+	 * 
+	 * @return true if loaded
+	 */
+	public boolean isLoaded();
+
+}
@@ -29,6 +29,10 @@ public class OrderBy {
 		return orderByAsc(PropertiesProxy.getPropertyName());
 	}
 	
+	public <T> OrderBy orderByAsc(Property<T, ?> field) {
+		return orderByAsc(PropertiesProxy.getPropertyName(field));
+	}
+	
 	public OrderBy asc(String field) {
 		return orderByAsc(field);
 	}
@@ -37,6 +41,10 @@ public class OrderBy {
 		return orderByAsc(field);
 	}
 	
+	public <T> OrderBy asc(Property<T, ?> field) {
+		return orderByAsc(field);
+	}
+	
 	public OrderBy orderByDesc(String field) {
 		
 		if (field == null) {
@@ -52,6 +60,10 @@ public class OrderBy {
 		return orderByDesc(PropertiesProxy.getPropertyName());
 	}
 	
+	public <T> OrderBy orderByDesc(Property<T, ?> field) {
+		return orderByDesc(PropertiesProxy.getPropertyName(field));
+	}
+	
 	public OrderBy desc(String field) {
 		return orderByDesc(field);
 	}
@@ -60,6 +72,10 @@ public class OrderBy {
 		return orderByDesc(field);
 	}
 	
+	public <T> OrderBy desc(Property<T, ?> field) {
+		return orderByDesc(field);
+	}
+	
 	@Override
 	public String toString() {
 		if (fields.size() == 0) return "";
@@ -6,24 +6,38 @@ import java.math.BigDecimal;
 import java.sql.Date;
 import java.sql.Time;
 import java.sql.Timestamp;
-import java.util.Collection;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.mentabean.BeanException;
 
 public abstract class PropertiesProxy {
 	
 	public static PropertiesProxy INSTANCE;
-	private static final ThreadLocal<List<String>> propertyNames = new ThreadLocal<List<String>>();
-	private static final ThreadLocal<List<Object>> beanInstances = new ThreadLocal<List<Object>>();
-	private String chainProp;	
+	private static final ThreadLocal<Capture> captures = new ThreadLocal<Capture>() {
+		@Override
+		protected Capture initialValue() {
+			return new Capture();
+		}
+	};
+	private String chainProp;
+	
+	// the property names of the getters (with the chain) and the proxies they return, so calling a getter again does not allocate anything...
+	private final Map<Method, String> names = new ConcurrentHashMap<Method, String>();
+	private final Map<String, Object> nested = new ConcurrentHashMap<String, Object>();
 	
 	public PropertiesProxy(String chainProp) {
 		this.chainProp = chainProp;
 	}	
 	
-	private PropertiesProxy createInstance(String chainProp) {
+	/**
+	 * Create the PropertiesProxy for the nested proxies. Override it to avoid the reflective construction.
+	 * 
+	 * @param chainProp
+	 * @return a new PropertiesProxy of the same type
+	 */
+	protected PropertiesProxy createInstance(String chainProp) {
 		try {
 			return getClass().getConstructor(String.class).newInstance(chainProp);
 		} catch (Exception e) {
@@ -40,89 +54,173 @@ public abstract class PropertiesProxy {
 		return pp.createInternal(klass);
 	}
 	
+	/**
+	 * The property names and proxy instances captured by the current thread, in arrays reused from call to call.
+	 */
+	private static class Capture {
+		
+		String[] names = new String[8];
+		int nameCount = 0;
+		
+		Object[] beans = new Object[8];
+		int beanCount = 0;
+		
+		void addName(String name) {
+			if (nameCount == names.length) {
+				names = Arrays.copyOf(names, nameCount * 2);
+			}
+			names[nameCount++] = name;
+		}
+		
+		void removeName(String name) {
+			for (int i = 0; i < nameCount; i++) {
+				if (names[i].equals(name)) {
+					System.arraycopy(names, i + 1, names, i, nameCount - i - 1);
+					names[--nameCount] = null;
+					return;
+				}
+			}
+		}
+		
+		void addBean(Object bean) {
+			if (beanCount == beans.length) {
+				beans = Arrays.copyOf(beans, beanCount * 2);
+			}
+			beans[beanCount++] = bean;
+		}
+		
+		void clearNames() {
+			Arrays.fill(names, 0, nameCount, null);
+			nameCount = 0;
+		}
+		
+		void clearBeans() {
+			Arrays.fill(beans, 0, beanCount, null);
+			beanCount = 0;
+		}
+	}
+	
+	// the property name of each method reference class...
+	private static final Map<Class<?>, String> references = new ConcurrentHashMap<Class<?>, String>();
+	
+	/**
+	 * Return the property name of a getter method reference, ex: "name" for <code>Part::getName</code>. It is found the first time through the
+	 * <code>SerializedLambda</code> of the reference and then cached by its class.
+	 * 
+	 * @param property
+	 * @return the property name
+	 */
+	public static <T> String getPropertyName(Property<T, ?> property) {
+		
+		if (property == null) {
+			throw new BeanException("Property reference cannot be null!");
+		}
+		
+		String name = references.get(property.getClass());
+		
+		if (name == null) {
+			name = resolve(property);
+			references.put(property.getClass(), name);
+		}
+		
+		return name;
+	}
+	
+	private static String resolve(Property<?, ?> property) {
+		
+		String implMethod;
+		
+		try {
+			
+			// a serializable lambda is replaced by a java.lang.invoke.SerializedLambda when serialized...
+			Method writeReplace = property.getClass().getDeclaredMethod("writeReplace");
+			writeReplace.setAccessible(true);
+			
+			Object serialized = writeReplace.invoke(property);
+			
+			implMethod = (String) serialized.getClass().getMethod("getImplMethodName").invoke(serialized);
+			
+		} catch (Exception e) {
+			throw new BeanException("Property must be a method reference to a getter, ex: Part::getName", e);
+		}
+		
+		String propName;
+		
+		if (implMethod.startsWith("get") && implMethod.length() > 3) {
+			propName = implMethod.substring(3);
+		} else if (implMethod.startsWith("is") && implMethod.length() > 2) {
+			propName = implMethod.substring(2);
+		} else {
+			throw new BeanException("Property must be a method reference to a getter, ex: Part::getName (found " + implMethod + ")");
+		}
+		
+		return propName.substring(0, 1).toLowerCase() + propName.substring(1);
+	}
+	
 	public static String getPropertyName() {
 		
-		List<String> list = propertyNames.get();
+		Capture c = captures.get();
 		
-		if (list == null || list.size() != 1) {
+		if (c.nameCount != 1) {
 			throw new BeanException("Was not able to get property name through the proxy!");
 		}
 		
-		String propName = list.get(0);
-		list.clear();
+		String propName = c.names[0];
+		c.clearNames();
 		
 		// take this time to also clear the classes:
-		List<Object> beans = beanInstances.get();
-		if (beans != null) beans.clear();
+		c.clearBeans();
 		
 		return propName;
 	}
 	
 	public static Object[] getBeanInstances() {
 		
-		List<Object> list = beanInstances.get();
+		Capture c = captures.get();
 		
-		if (list == null || list.size() == 0) {
+		if (c.beanCount == 0) {
 			throw new BeanException("Was not able to get bean instances through the proxy!");
 		}
 		
-		Object[] array = new Object[list.size()];
+		Object[] array = Arrays.copyOf(c.beans, c.beanCount);
 		
-		array = list.toArray(array);
-		
-		list.clear();
+		c.clearBeans();
 		
 		return array;
 	}
 	
 	public static void addBeanInstance(Object proxy) {
 		
-		List<Object> list = beanInstances.get();
-		if (list == null) {
-			list = new LinkedList<Object>();
-			beanInstances.set(list);
-		}
-		list.add(proxy);
+		captures.get().addBean(proxy);
 	}
 	
 	public static void addPropertyName(String name) {
-		List<String> list = propertyNames.get();
-		if (list == null) {
-			list = new LinkedList<String>();
-			propertyNames.set(list);
-		}
-		list.add(name);
+		
+		captures.get().addName(name);
 	}
 	
 	public static boolean hasBeanInstance() {
-		return hasElements(beanInstances.get());
+		return captures.get().beanCount > 0;
 	}
 	
 	public static boolean hasProperties() {
-		return hasElements(propertyNames.get());
-	}
-	
-	private static boolean hasElements(Collection<?> coll) {
-		return coll != null && coll.size() > 0; 
+		return captures.get().nameCount > 0;
 	}
 	
 	public static String[] getPropertyNames() {
 		
-		List<String> list = propertyNames.get();
+		Capture c = captures.get();
 		
-		if (list == null || list.size() == 0) {
+		if (c.nameCount == 0) {
 			throw new BeanException("Was not able to get property names through the proxy!");
 		}
 		
-		String[] array = new String[list.size()];
-		
-		array = list.toArray(array);
+		String[] array = Arrays.copyOf(c.names, c.nameCount);
 		
-		list.clear();
+		c.clearNames();
 		
 		// take this time to also clear the instances:
-		List<Object> beans = beanInstances.get();
-		if (beans != null) beans.clear();
+		c.clearBeans();
 		
 		return array;
 	}
@@ -180,36 +278,30 @@ public abstract class PropertiesProxy {
 	
 	protected Object invoke(Object self, Method thisMethod, Object[] args) {
 		
-		List<String> list = propertyNames.get();
+		Capture c = captures.get();
 		
-		if (list == null) {
-			list = new LinkedList<String>();
-			propertyNames.set(list);
+		String propName = names.get(thisMethod);
+		
+		if (propName == null) {
+			propName = getPropName(thisMethod);
+			if (chainProp != null) {
+				propName = chainProp + "." + propName;
+			}
+			names.put(thisMethod, propName);
 		}
 		
-		String propName = getPropName(thisMethod);
+		c.addName(propName);
 		
 		if (chainProp != null) {
-			list.add(chainProp + "." + propName);
 			
 			// remember to remove original one because it is not really a property
 			// like "user" in "user.id"
 			
-			list.remove(chainProp);
-			
-		} else {
-			list.add(propName);
+			c.removeName(chainProp);
 		}
 		
 		// add the object type for SQLBuilder column( ... ) method
-		List<Object> beans = beanInstances.get();
-		
-		if (beans == null) {
-			beans = new LinkedList<Object>();
-			beanInstances.set(beans);
-		}
-		
-		beans.add(self);
+		c.addBean(self);
 		
 		Class<?> propType = thisMethod.getReturnType();
 		
@@ -248,9 +340,15 @@ public abstract class PropertiesProxy {
 				return null;
 			}
 			
-			// return a new one
-			PropertiesProxy proxy = INSTANCE.createInstance(chainProp != null ? chainProp + "." + propName : propName);
-			return proxy.createInternal(propType);
+			// the nested proxy has no state other than its chain, so it is created only once...
+			Object proxy = nested.get(propName);
+			
+			if (proxy == null) {
+				proxy = INSTANCE.createInstance(propName).createInternal(propType);
+				nested.put(propName, proxy);
+			}
+			
+			return proxy;
 		}
 	}
 	
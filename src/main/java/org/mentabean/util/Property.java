@@ -0,0 +1,18 @@
+package org.mentabean.util;
+
+import java.io.Serializable;
+
+/**
+ * A reference to a bean property through a getter method reference, ex: <code>Part::getName</code>. It can be used instead of a proxy call, like
+ * <code>part.getName()</code> on a {@link PropertiesProxy}, and works with any class, final or not.
+ * 
+ * Only method references to getters are supported, not lambdas. The property name is found once per method reference through its serialized form and cached.
+ * 
+ * @author Sergio Oliveira Jr.
+ * @see PropertiesProxy#getPropertyName(Property)
+ */
+public interface Property<T, R> extends Serializable {
+	
+	public R get(T bean);
+	
+}
@@ -0,0 +1,171 @@
+package org.mentabean.util;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The getters and setters of a class, found by reflection only once and kept in immutable maps, so they can be read by any number of threads without
+ * locking. The lookup rules are the same of {@link InjectionUtils#findMethodToGet(Class, String)} and
+ * {@link InjectionUtils#findMethodToInject(Class, String, Class)}.
+ *
+ * @author Sergio Oliveira Jr.
+ */
+public class PropertyAccessors {
+
+	private static final ClassValue<PropertyAccessors> accessors = new ClassValue<PropertyAccessors>() {
+
+		@Override
+		protected PropertyAccessors computeValue(Class<?> type) {
+			return new PropertyAccessors(type);
+		}
+	};
+
+	private final Class<?> klass;
+
+	private final Map<String, Method> getters;
+
+	private final Map<String, Method[]> setters;
+
+	private PropertyAccessors(Class<?> klass) {
+
+		this.klass = klass;
+
+		Map<String, Method> gets = new HashMap<String, Method>();
+		Map<String, Method> iss = new HashMap<String, Method>();
+		Map<String, List<Method>> sets = new HashMap<String, List<Method>>();
+
+		for (Method m : klass.getMethods()) {
+
+			if (Modifier.isStatic(m.getModifiers()) || m.isBridge()) {
+				continue;
+			}
+
+			String name = m.getName();
+			int params = m.getParameterTypes().length;
+
+			if (params == 0 && name.startsWith("is") && name.length() > 2) {
+				put(iss, name.substring(2), accessible(m));
+			} else if (params == 0 && name.startsWith("get") && name.length() > 3) {
+				put(gets, name.substring(3), accessible(m));
+			} else if (params == 1 && name.startsWith("set") && name.length() > 3) {
+
+				Method setter = accessible(m);
+
+				for (String prop : propertyNames(name.substring(3))) {
+
+					List<Method> list = sets.get(prop);
+
+					if (list == null) {
+						list = new ArrayList<Method>(1);
+						sets.put(prop, list);
+					}
+
+					list.add(setter);
+				}
+			}
+		}
+
+		gets.putAll(iss); // isXXX comes first, like findMethodToGet...
+
+		Map<String, Method[]> s = new HashMap<String, Method[]>();
+
+		for (Map.Entry<String, List<Method>> e : sets.entrySet()) {
+			s.put(e.getKey(), e.getValue().toArray(new Method[e.getValue().size()]));
+		}
+
+		this.getters = Collections.unmodifiableMap(gets);
+		this.setters = Collections.unmodifiableMap(s);
+	}
+
+	/**
+	 * Return the accessors of this class, creating them the first time.
+	 *
+	 * @param klass
+	 * @return the accessors of the class
+	 */
+	public static PropertyAccessors of(Class<?> klass) {
+
+		return accessors.get(klass);
+	}
+
+	/**
+	 * Return the getter of the property, or null if there is none.
+	 *
+	 * @param name
+	 * @return the getter or null
+	 */
+	public Method getter(String name) {
+
+		return getters.get(name);
+	}
+
+	/**
+	 * Return the setter of the property that accepts a value of the given type, or null if there is none.
+	 *
+	 * @param name
+	 * @param source
+	 *            the type of the value to inject
+	 * @return the setter or null
+	 */
+	@SuppressWarnings("unchecked")
+	public Method setter(String name, Class<?> source) {
+
+		Method[] methods = setters.get(name);
+
+		if (methods == null) {
+			return null;
+		}
+
+		if (methods.length == 1 && source != null) {
+
+			Class<?> param = methods[0].getParameterTypes()[0];
+
+			if (param.isAssignableFrom(source) || param.equals(InjectionUtils.getPrimitiveFrom((Class<? extends Object>) source))) {
+				return methods[0];
+			}
+
+			return null;
+		}
+
+		// overloaded setter, let the most specific one be found...
+		return InjectionUtils.findMethodToInject((Class<? extends Object>) klass, name, (Class<? extends Object>) source);
+	}
+
+	/**
+	 * The names that reach a method with this suffix, as the accessor name is the property name with the first letter in upper case (ex: name and Name for
+	 * getName, URL for getURL).
+	 */
+	private static String[] propertyNames(String suffix) {
+
+		String first = suffix.substring(0, 1);
+
+		if (first.equals(first.toUpperCase())) {
+			return new String[] { first.toLowerCase() + suffix.substring(1), suffix };
+		}
+
+		return new String[] { suffix };
+	}
+
+	private static void put(Map<String, Method> map, String suffix, Method m) {
+
+		for (String prop : propertyNames(suffix)) {
+			map.put(prop, m);
+		}
+	}
+
+	private static Method accessible(Method m) {
+
+		try {
+			m.setAccessible(true);
+		} catch (SecurityException e) {
+			// keep it as is...
+		}
+
+		return m;
+	}
+}
@@ -11,6 +11,7 @@ import java.sql.SQLException;
 import java.sql.Statement;
 
 import org.mentabean.BeanException;
+import org.mentabean.DBType;
 
 public class SQLUtils {
 	
@@ -198,6 +199,40 @@ public class SQLUtils {
 		}
 	}
 	
+	/**
+	 * Fill the given {@code PreparedStatement} object with the specified parameters, binding each one with its {@code DBType}, like the session does
+	 * for the bean fields. A parameter without a type (null) or with a value the type cannot bind is set with {@code setObject}.
+	 * 
+	 * @param stmt - The {@code PreparedStatement} object
+	 * @param types - The types of the parameters, in the same order (can be shorter or contain nulls)
+	 * @param params - Values that will be added in statement
+	 * @return The last index added plus 1.
+	 * @see DBType#bindToStmt(PreparedStatement, int, Object)
+	 */
+	@SuppressWarnings("unchecked")
+	public static int fillStatement(PreparedStatement stmt, DBType<?>[] types, Object[] params) {
+		
+		int indx = 1;
+		
+		try {
+			for (int i = 0; i < params.length; i++) {
+				
+				DBType<Object> type = i < types.length ? (DBType<Object>) types[i] : null;
+				
+				if (type != null && type.getTypeClass().isInstance(params[i])) {
+					type.bindToStmt(stmt, indx++, params[i]);
+				} else {
+					stmt.setObject(indx++, params[i]);
+				}
+			}
+			
+			return indx;
+			
+		}catch (Exception e) {
+			throw new BeanException("Error setting values for statement", e);
+		}
+	}
+	
 	/**
 	 * Prepare a statement (PreparedStatement) with the query and set the parameters.
 	 * 
@@ -213,6 +248,23 @@ public class SQLUtils {
 		return stmt;
 	}
 	
+	/**
+	 * Prepare a statement (PreparedStatement) with the query and set the parameters with their types.
+	 * 
+	 * @param conn the connection
+	 * @param query the query to prepare
+	 * @param types the types of the parameters
+	 * @param params the parameters to set in the query
+	 * @return the statement ready to be executed
+	 * @throws SQLException
+	 * @see #fillStatement(PreparedStatement, DBType[], Object[])
+	 */
+	public static PreparedStatement prepare(Connection conn, String query, DBType<?>[] types, Object[] params) throws SQLException {
+		PreparedStatement stmt = conn.prepareStatement(query);
+		fillStatement(stmt, types, params);
+		return stmt;
+	}
+	
 	public static OrderBy orderByAsc(Object field) {
 		OrderBy orderBy = new OrderBy();
 		if (field instanceof String) {
@@ -0,0 +1,208 @@
+package org.mentabean.jdbc;
+
+import static org.junit.Assert.*;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mentabean.BeanManager;
+import org.mentabean.DBTypes;
+import org.mentabean.jdbc.QueryBuilder.Alias;
+import org.mentabean.sql.conditions.GreaterThan;
+import org.mentabean.type.StringType;
+import org.mentabean.util.ColumnarResult;
+import org.mentabean.util.OrderBy;
+import org.mentabean.util.PropertiesProxy;
+import org.mentabean.util.SQLUtils;
+
+public class ColumnarResultTest extends AbstractBeanSessionTest {
+
+	public static class Sale {
+
+		private long id;
+		private String region;
+		private int quantity;
+		private double amount;
+
+		public Sale() { }
+
+		public Sale(String region, int quantity, double amount) {
+			this.region = region;
+			this.quantity = quantity;
+			this.amount = amount;
+		}
+
+		public void setId(long id) { this.id = id; }
+		public long getId() { return id; }
+
+		public void setRegion(String region) { this.region = region; }
+		public String getRegion() { return region; }
+
+		public void setQuantity(int quantity) { this.quantity = quantity; }
+		public int getQuantity() { return quantity; }
+
+		public void setAmount(double amount) { this.amount = amount; }
+		public double getAmount() { return amount; }
+	}
+
+	private BeanManager beanManager;
+
+	private AnsiSQLBeanSession session;
+
+	@Before
+	public void setUp() {
+
+		AnsiSQLBeanSession.debugSql(false);
+		AnsiSQLBeanSession.debugNativeSql(false);
+
+		beanManager = configure();
+
+		session = new H2BeanSession(beanManager, getConnection());
+		session.createTables();
+
+		session.insert(new Sale("north", 3, 10.5));
+		session.insert(new Sale("south", 1, 20));
+		session.insert(new Sale("north", 7, 5.25));
+		session.insert(new Sale(null, 2, 1));
+	}
+
+	@After
+	public void tearDown() {
+		SQLUtils.close(session.getConnection());
+	}
+
+	private BeanManager configure() {
+
+		BeanManager beanManager = new BeanManager();
+
+		Sale sale = PropertiesProxy.create(Sale.class);
+
+		beanManager.bean(Sale.class, "sales")
+			.pk(sale.getId(), DBTypes.AUTOINCREMENT)
+			.field(sale.getRegion(), DBTypes.STRING)
+			.field(sale.getQuantity(), DBTypes.INTEGER)
+			.field(sale.getAmount(), DBTypes.DOUBLE);
+
+		return beanManager;
+	}
+
+	@Test
+	public void testLoadColumns() {
+
+		Sale sale = PropertiesProxy.create(Sale.class);
+
+		ColumnarResult result = session.loadColumns(new Sale(), new OrderBy().orderByAsc("id"), null, sale.getQuantity(), sale.getRegion());
+
+		assertEquals(4, result.size());
+		assertEquals(2, result.getColumnNames().size());
+
+		assertArrayEquals(new int[] { 3, 1, 7, 2 }, result.getInts("quantity"));
+
+		assertArrayEquals(new int[] { 0, 1, 0, -1 }, result.getCodes("region"));
+		assertArrayEquals(new String[] { "north", "south" }, result.getDictionary("region"));
+		assertTrue(result.isNull("region", 3));
+		assertNull(result.get("region", 3));
+		assertEquals("north", result.get("region", 2));
+	}
+
+	@Test
+	public void testLoadColumnsWithWhere() {
+
+		Sale sale = PropertiesProxy.create(Sale.class);
+
+		Sale where = new Sale();
+		where.setRegion("north");
+
+		ColumnarResult result = session.loadColumns(where, sale.getAmount());
+
+		assertEquals(2, result.size());
+
+		double total = 0;
+
+		for (double d : result.getDoubles("amount")) {
+			total += d;
+		}
+
+		assertEquals(15.75, total, 0.0001);
+	}
+
+	@Test
+	public void testLoadColumnsWithOptions() {
+
+		Sale sale = PropertiesProxy.create(Sale.class);
+
+		ColumnarResult result = session.loadColumns(new Sale(), new OrderBy().orderByAsc("id"), null, new QueryOptions().maxRows(2), sale.getQuantity());
+
+		assertEquals(2, result.size());
+		assertArrayEquals(new int[] { 3, 1 }, result.getInts("quantity"));
+
+		// same shape, the SQL is built only once...
+		int cached = beanManager.getBeanConfig(Sale.class).getCachedQueryCount();
+
+		session.loadColumns(new Sale(), new OrderBy().orderByAsc("id"), null, sale.getQuantity());
+
+		assertEquals(cached, beanManager.getBeanConfig(Sale.class).getCachedQueryCount());
+	}
+
+	@Test
+	public void testQueryBuilderColumnar() {
+
+		QueryBuilder builder = session.buildQuery();
+		Alias<Sale> s = builder.aliasTo(Sale.class, "s");
+		s.setReturns(s.proxy().getId(), s.proxy().getQuantity());
+
+		ColumnarResult result = builder
+				.select(s)
+				.from(s)
+				.where()
+				.clause(s.proxy().getQuantity())
+				.condition(new GreaterThan(1))
+				.orderBy().asc(s, s.proxy().getId())
+				.executeColumnar();
+
+		assertEquals(3, result.size());
+		assertEquals(2, result.getColumnNames().size());
+		assertArrayEquals(new int[] { 3, 7, 2 }, result.getInts("s.quantity"));
+		assertArrayEquals(new long[] { 1, 3, 4 }, result.getLongs("s.id"));
+
+		// through the proxy, with and without the alias...
+		assertArrayEquals(new int[] { 3, 7, 2 }, ((ColumnarResult.IntColumn) result.getColumn(s.proxy().getQuantity())).getValues());
+		assertArrayEquals(new long[] { 1, 3, 4 }, ((ColumnarResult.LongColumn) result.getColumn("s", s.proxy().getId())).getValues());
+	}
+
+	public static class UpperCaseType extends StringType {
+
+		@Override
+		public String getFromResultSet(ResultSet rset, int index) throws SQLException {
+
+			String s = super.getFromResultSet(rset, index);
+
+			return s != null ? s.toUpperCase() : null;
+		}
+	}
+
+	@Test
+	public void testConvertingType() {
+
+		BeanManager beanManager = new BeanManager();
+
+		Sale sale = PropertiesProxy.create(Sale.class);
+
+		beanManager.bean(Sale.class, "sales")
+			.pk(sale.getId(), DBTypes.AUTOINCREMENT)
+			.field(sale.getRegion(), new UpperCaseType());
+
+		AnsiSQLBeanSession upper = new H2BeanSession(beanManager, session.getConnection());
+
+		ColumnarResult result = upper.loadColumns(new Sale(), new OrderBy().orderByAsc("id"), null, sale.getRegion());
+
+		// read by the type, not straight from the result set...
+		assertTrue(result.getColumn(sale.getRegion()) instanceof ColumnarResult.ObjectColumn);
+		assertEquals("NORTH", result.get("region", 0));
+		assertEquals("SOUTH", result.get("region", 1));
+		assertNull(result.get("region", 3));
+	}
+}
@@ -0,0 +1,228 @@
+package org.mentabean.jdbc;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mentabean.BeanManager;
+import org.mentabean.DBTypes;
+import org.mentabean.util.DirtyTracked;
+import org.mentabean.util.DirtyTracking;
+import org.mentabean.util.PropertiesProxy;
+import org.mentabean.util.SQLUtils;
+
+public class DirtyTrackingTest extends AbstractBeanSessionTest {
+	
+	public static class User {
+		
+		private int id;
+		private String name;
+		private int age;
+		
+		public User() { }
+		
+		public User(int id) { this.id = id; }
+		
+		public void setId(int id) { this.id = id; }
+		public int getId() { return id; }
+		
+		public void setName(String name) { this.name = name; }
+		public String getName() { return name; }
+		
+		public void setAge(int age) { this.age = age; }
+		public int getAge() { return age; }
+	}
+	
+	public static class Engine {
+		
+		private int id;
+		
+		public Engine() { }
+		
+		public Engine(int id) { this.id = id; }
+		
+		public void setId(int id) { this.id = id; }
+		public int getId() { return id; }
+	}
+	
+	public static class Car {
+		
+		private int id;
+		private String name;
+		private Engine engine;
+		
+		public void setId(int id) { this.id = id; }
+		public int getId() { return id; }
+		
+		public void setName(String name) { this.name = name; }
+		public String getName() { return name; }
+		
+		public void setEngine(Engine engine) { this.engine = engine; }
+		public Engine getEngine() { return engine; }
+	}
+	
+	private AnsiSQLBeanSession session;
+	
+	@Before
+	public void setUp() {
+		
+		AnsiSQLBeanSession.debugSql(false);
+		AnsiSQLBeanSession.debugNativeSql(false);
+		
+		session = new H2BeanSession(configure(), getConnection());
+		session.createTables();
+	}
+	
+	@After
+	public void tearDown() {
+		SQLUtils.close(session.getConnection());
+	}
+	
+	private BeanManager configure() {
+		
+		BeanManager beanManager = new BeanManager();
+		
+		User user = PropertiesProxy.create(User.class);
+		
+		beanManager.bean(User.class, "users")
+			.pk(user.getId(), DBTypes.AUTOINCREMENT)
+			.field(user.getName(), DBTypes.STRING)
+			.field(user.getAge(), DBTypes.INTEGER)
+			.dirtyTracking(true);
+		
+		return beanManager;
+	}
+	
+	@Test
+	public void testLoadListReturnsTrackedBeans() {
+		
+		User u = new User();
+		u.setName("Sergio");
+		u.setAge(33);
+		session.insert(u);
+		
+		List<User> list = session.loadList(new User());
+		
+		assertEquals(1, list.size());
+		
+		User loaded = list.get(0);
+		
+		assertTrue(loaded instanceof DirtyTracked);
+		assertTrue(DirtyTracking.isTracked(loaded));
+		assertTrue(DirtyTracking.getDirtyFields(loaded).isEmpty());
+		assertEquals("Sergio", loaded.getName());
+		assertEquals(33, loaded.getAge());
+		
+		// tracked beans do not need a snapshot...
+		assertEquals(1, session.getSnapshotCount()); // only the inserted one
+	}
+	
+	@Test
+	public void testUpdateOnlyDirtyFields() {
+		
+		User u = new User();
+		u.setName("Sergio");
+		u.setAge(33);
+		session.insert(u);
+		
+		User loaded = session.loadUnique(new User(u.getId()));
+		
+		assertTrue(DirtyTracking.isTracked(loaded));
+		
+		assertFalse(session.update(loaded)); // nothing was set...
+		
+		loaded.setAge(0); // would not be "set" for a bean that was not loaded
+		
+		assertEquals(1, DirtyTracking.getDirtyFields(loaded).cardinality());
+		
+		// change the name behind the bean's back, it must not be overwritten...
+		User other = new User(u.getId());
+		other.setName("Julia");
+		assertTrue(session.update(other));
+		
+		assertTrue(session.update(loaded));
+		
+		assertTrue(DirtyTracking.getDirtyFields(loaded).isEmpty());
+		
+		User check = new User(u.getId());
+		assertTrue(session.load(check));
+		
+		assertEquals("Julia", check.getName());
+		assertEquals(0, check.getAge());
+		
+		assertFalse(session.update(loaded)); // clean again
+	}
+	
+	@Test
+	public void testUpdateDiffKeepsDirtyFields() {
+		
+		User u = new User();
+		u.setName("Sergio");
+		u.setAge(33);
+		session.insert(u);
+		
+		User loaded = session.loadUnique(new User(u.getId()));
+		
+		User old = new User(u.getId());
+		old.setName("Sergio");
+		old.setAge(33);
+		
+		loaded.setName("Julia");
+		assertEquals(1, DirtyTracking.getDirtyFields(loaded).cardinality());
+		
+		assertTrue(session.updateDiff(loaded, old));
+		
+		// the new bean is left as it is...
+		assertEquals(1, DirtyTracking.getDirtyFields(loaded).cardinality());
+		
+		User check = new User(u.getId());
+		assertTrue(session.load(check));
+		assertEquals("Julia", check.getName());
+	}
+	
+	@Test
+	public void testNestedProperty() {
+		
+		BeanManager beanManager = new BeanManager();
+		
+		Car car = PropertiesProxy.create(Car.class);
+		
+		beanManager.bean(Car.class, "cars")
+			.pk(car.getId(), DBTypes.AUTOINCREMENT)
+			.field(car.getName(), DBTypes.STRING)
+			.field(car.getEngine().getId(), "engine_id", DBTypes.INTEGER)
+			.dirtyTracking(true);
+		
+		AnsiSQLBeanSession cars = new H2BeanSession(beanManager, session.getConnection());
+		cars.createTables();
+		
+		Car c = new Car();
+		c.setName("Beetle");
+		c.setEngine(new Engine(1));
+		cars.insert(c);
+		
+		Car loaded = new Car();
+		loaded.setId(c.getId());
+		loaded = cars.loadUnique(loaded);
+		
+		assertTrue(DirtyTracking.isTracked(loaded));
+		assertFalse(cars.update(loaded));
+		
+		// the setter of the car is not called, the nested value is compared with the loaded one...
+		loaded.getEngine().setId(2);
+		
+		assertTrue(DirtyTracking.getDirtyFields(loaded).isEmpty());
+		assertTrue(cars.update(loaded));
+		assertFalse(cars.update(loaded));
+		
+		Car check = new Car();
+		check.setId(c.getId());
+		check = cars.loadUnique(check);
+		
+		assertEquals(2, check.getEngine().getId());
+		assertEquals("Beetle", check.getName());
+	}
+}
@@ -0,0 +1,249 @@
+package org.mentabean.jdbc;
+
+import static org.junit.Assert.*;
+
+import java.sql.Connection;
+import java.util.Date;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mentabean.BeanManager;
+import org.mentabean.DBTypes;
+import org.mentabean.util.PropertiesProxy;
+import org.mentabean.util.SQLUtils;
+
+public class EntityCacheTest extends AbstractBeanSessionTest {
+
+	public static class City {
+
+		private int id;
+		private String name;
+		private Date founded;
+
+		public City() { }
+
+		public City(int id) { this.id = id; }
+
+		public void setId(int id) { this.id = id; }
+		public int getId() { return id; }
+
+		public void setName(String name) { this.name = name; }
+		public String getName() { return name; }
+
+		public void setFounded(Date founded) { this.founded = founded; }
+		public Date getFounded() { return founded; }
+	}
+
+	private BeanManager beanManager;
+
+	private AnsiSQLBeanSession session;
+
+	@Before
+	public void setUp() {
+
+		AnsiSQLBeanSession.debugSql(false);
+		AnsiSQLBeanSession.debugNativeSql(false);
+
+		beanManager = configure();
+
+		session = new H2BeanSession(beanManager, getConnection());
+		session.createTables();
+	}
+
+	@After
+	public void tearDown() {
+		SQLUtils.close(session.getConnection());
+	}
+
+	private BeanManager configure() {
+
+		BeanManager beanManager = new BeanManager();
+
+		City city = PropertiesProxy.create(City.class);
+
+		beanManager.bean(City.class, "cities")
+			.pk(city.getId(), DBTypes.AUTOINCREMENT)
+			.field(city.getName(), DBTypes.STRING)
+			.field(city.getFounded(), DBTypes.TIMESTAMP)
+			.cache(100);
+
+		return beanManager;
+	}
+
+	@Test
+	public void testLoadFromCache() {
+
+		EntityCache cache = beanManager.getBeanConfig(City.class).getCache();
+
+		City c = new City();
+		c.setName("Rio");
+		session.insert(c);
+
+		City c1 = new City(c.getId());
+		assertTrue(session.load(c1));
+		assertEquals(0, cache.getHits());
+		assertEquals(1, cache.size());
+
+		City c2 = new City(c.getId());
+		assertTrue(session.load(c2));
+		assertEquals(1, cache.getHits());
+		assertEquals("Rio", c2.getName());
+
+		City c3 = session.loadUnique(new City(c.getId()));
+		assertNotNull(c3);
+		assertEquals(2, cache.getHits());
+		assertEquals("Rio", c3.getName());
+
+		// loaded from the cache but still attached for dynamic update...
+		c3.setName("Sao Paulo");
+		assertTrue(session.update(c3));
+		assertEquals(0, cache.size());
+
+		City c4 = new City(c.getId());
+		assertTrue(session.load(c4));
+		assertEquals("Sao Paulo", c4.getName());
+	}
+
+	@Test
+	public void testDeleteEvicts() {
+
+		EntityCache cache = beanManager.getBeanConfig(City.class).getCache();
+
+		City c = new City();
+		c.setName("Rio");
+		session.insert(c);
+
+		assertTrue(session.load(new City(c.getId())));
+		assertEquals(1, cache.size());
+
+		assertTrue(session.delete(new City(c.getId())));
+		assertEquals(0, cache.size());
+
+		assertFalse(session.load(new City(c.getId())));
+	}
+
+	@Test
+	public void testEvictedWhileLoading() {
+
+		EntityCache cache = beanManager.getBeanConfig(City.class).getCache();
+
+		long stamp = cache.stamp(1);
+
+		// updated by another session while this one was loading the old row...
+		cache.remove(1);
+
+		assertFalse(cache.put(1, new Object[] { 1, "Rio", null }, stamp));
+		assertEquals(0, cache.size());
+
+		stamp = cache.stamp(1);
+
+		cache.clear();
+
+		assertFalse(cache.put(1, new Object[] { 1, "Rio", null }, stamp));
+
+		assertTrue(cache.put(1, new Object[] { 1, "Rio", null }, cache.stamp(1)));
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testEvictNegativeKey() {
+
+		EntityCache cache = beanManager.getBeanConfig(City.class).getCache();
+
+		cache.put(-5, new Object[] { -5, "Rio", null });
+		cache.put(7, new Object[] { 7, "Recife", null });
+
+		// a key like any other, not the whole cache...
+		session.evict(new City(-5));
+		assertEquals(1, cache.size());
+		assertNotNull(cache.get(7));
+
+		// not set, so any row...
+		session.evict(new City());
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testPartialLoadIsNotCached() {
+
+		EntityCache cache = beanManager.getBeanConfig(City.class).getCache();
+
+		City c = new City();
+		c.setName("Rio");
+		session.insert(c);
+
+		City proxy = PropertiesProxy.create(City.class);
+
+		assertTrue(session.load(new City(c.getId()), proxy.getId()));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testMutableValuesAreCopied() {
+
+		City c = new City();
+		c.setName("Rio");
+		c.setFounded(new Date(1000000));
+		session.insert(c);
+
+		City c1 = new City(c.getId());
+		assertTrue(session.load(c1)); // from the database, to the cache...
+
+		c1.getFounded().setTime(0);
+
+		City c2 = new City(c.getId());
+		assertTrue(session.load(c2)); // from the cache...
+		assertEquals(1000000, c2.getFounded().getTime());
+
+		c2.getFounded().setTime(0);
+
+		City c3 = new City(c.getId());
+		assertTrue(session.load(c3));
+		assertEquals(1000000, c3.getFounded().getTime());
+		assertEquals(2, beanManager.getBeanConfig(City.class).getCache().getHits());
+	}
+
+	@Test
+	public void testEvictedAgainOnCommit() throws Exception {
+
+		EntityCache cache = beanManager.getBeanConfig(City.class).getCache();
+
+		City c = new City();
+		c.setName("Rio");
+		session.insert(c);
+
+		Connection conn = session.getConnection();
+
+		conn.setAutoCommit(false);
+
+		try {
+
+			City loaded = session.loadUnique(new City(c.getId()));
+			assertEquals(1, cache.size());
+
+			loaded.setName("Sao Paulo");
+			assertTrue(session.update(loaded));
+			assertEquals(0, cache.size());
+
+			// not committed, so it does not go to the cache shared with the other sessions...
+			assertTrue(session.load(new City(c.getId())));
+			assertEquals(0, cache.size());
+
+			// another session caches the old row before the commit...
+			cache.put(c.getId(), new Object[] { c.getId(), "Rio", null });
+
+			session.commit();
+
+			assertEquals(0, cache.size());
+
+		} finally {
+
+			conn.setAutoCommit(true);
+		}
+
+		City check = new City(c.getId());
+		assertTrue(session.load(check));
+		assertEquals("Sao Paulo", check.getName());
+	}
+}
@@ -0,0 +1,216 @@
+package org.mentabean.jdbc;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Field;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mentabean.DBType;
+import org.mentabean.type.EnumIdType;
+import org.mentabean.type.EnumValueType;
+import org.mentabean.util.SQLUtils;
+
+public class EnumTypeTest extends AbstractBeanSessionTest {
+
+	public static enum Dense {
+
+		ONE(1), TWO(2), THREE(3);
+
+		private final int id;
+
+		private Dense(int id) { this.id = id; }
+
+		public int getId() { return id; }
+
+		public static Dense fromId(int id) {
+			for (Dense d : values()) {
+				if (d.id == id) {
+					return d;
+				}
+			}
+			return null;
+		}
+	}
+
+	public static enum Sparse {
+
+		SMALL(1), BIG(1000), HUGE(100000);
+
+		private final int id;
+
+		private Sparse(int id) { this.id = id; }
+
+		public int getId() { return id; }
+
+		public static Sparse fromId(int id) {
+			for (Sparse s : values()) {
+				if (s.id == id) {
+					return s;
+				}
+			}
+			return null;
+		}
+	}
+
+	public static enum Negative {
+
+		MINUS_FIVE(-5), MINUS_ONE(-1), ZERO(0);
+
+		private final int id;
+
+		private Negative(int id) { this.id = id; }
+
+		public int getId() { return id; }
+
+		public static Negative fromId(int id) {
+			for (Negative n : values()) {
+				if (n.id == id) {
+					return n;
+				}
+			}
+			return null;
+		}
+	}
+
+	private Connection conn;
+
+	@Before
+	public void setUp() {
+		conn = getConnection();
+	}
+
+	@After
+	public void tearDown() {
+		SQLUtils.close(conn);
+	}
+
+	/**
+	 * Bind the value to a select and read it back with the type, by index and by name.
+	 */
+	private <E> E roundTrip(DBType<E> type, E value) throws SQLException {
+
+		PreparedStatement stmt = conn.prepareStatement("select ? as v");
+
+		try {
+
+			type.bindToStmt(stmt, 1, value);
+
+			ResultSet rset = stmt.executeQuery();
+
+			assertTrue(rset.next());
+
+			E byIndex = type.getFromResultSet(rset, 1);
+
+			assertEquals(byIndex, type.getFromResultSet(rset, "v"));
+
+			return byIndex;
+
+		} finally {
+
+			SQLUtils.close(stmt);
+		}
+	}
+
+	private Object read(DBType<?> type, String literal) throws SQLException {
+
+		PreparedStatement stmt = conn.prepareStatement("select " + literal);
+
+		try {
+
+			ResultSet rset = stmt.executeQuery();
+
+			assertTrue(rset.next());
+
+			return type.getFromResultSet(rset, 1);
+
+		} finally {
+
+			SQLUtils.close(stmt);
+		}
+	}
+
+	private static Object field(Object type, String name) throws Exception {
+
+		Field f = EnumIdType.class.getDeclaredField(name);
+		f.setAccessible(true);
+		return f.get(type);
+	}
+
+	@Test
+	public void testDenseIds() throws Exception {
+
+		EnumIdType type = new EnumIdType(Dense.class);
+
+		assertNotNull(field(type, "byId"));
+		assertNull(field(type, "hashKeys"));
+
+		for (Dense d : Dense.values()) {
+			assertSame(d, roundTrip(type, d));
+		}
+
+		assertNull(roundTrip(type, null));
+	}
+
+	@Test
+	public void testSparseIds() throws Exception {
+
+		EnumIdType type = new EnumIdType(Sparse.class);
+
+		// far more slots than constants, so a hash...
+		assertNull(field(type, "byId"));
+		assertNotNull(field(type, "hashKeys"));
+
+		for (Sparse s : Sparse.values()) {
+			assertSame(s, roundTrip(type, s));
+		}
+	}
+
+	@Test
+	public void testNegativeIds() throws Exception {
+
+		EnumIdType type = new EnumIdType(Negative.class);
+
+		assertNotNull(field(type, "byId"));
+		assertEquals(-5, field(type, "minId"));
+
+		for (Negative n : Negative.values()) {
+			assertSame(n, roundTrip(type, n));
+		}
+	}
+
+	@Test
+	public void testUnknownId() throws Exception {
+
+		// not the id of any constant, so whatever fromId returns...
+		assertNull(read(new EnumIdType(Dense.class), "7"));
+		assertNull(read(new EnumIdType(Dense.class), "-1"));
+		assertNull(read(new EnumIdType(Sparse.class), "500"));
+		assertNull(read(new EnumIdType(Negative.class), "-3"));
+	}
+
+	@Test
+	public void testNames() throws Exception {
+
+		EnumValueType type = new EnumValueType(Sparse.class);
+
+		for (Sparse s : Sparse.values()) {
+			assertSame(s, roundTrip(type, s));
+		}
+
+		assertNull(roundTrip(type, null));
+
+		assertEquals(5, type.getSize());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownName() throws Exception {
+
+		read(new EnumValueType(Sparse.class), "'MEDIUM'");
+	}
+}
@@ -0,0 +1,224 @@
+package org.mentabean.jdbc;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mentabean.BeanManager;
+import org.mentabean.DBTypes;
+import org.mentabean.jdbc.QueryBuilder.Alias;
+import org.mentabean.util.OrderBy;
+import org.mentabean.util.PropertiesProxy;
+import org.mentabean.util.SQLUtils;
+
+public class FetchTest extends AbstractBeanSessionTest {
+
+	public static class User {
+
+		private int id;
+		private String name;
+
+		public User() { }
+
+		public User(int id) { this.id = id; }
+
+		public void setId(int id) { this.id = id; }
+		public int getId() { return id; }
+
+		public void setName(String name) { this.name = name; }
+		public String getName() { return name; }
+	}
+
+	public static class Post {
+
+		private int id;
+		private String title;
+		private User user;
+
+		public Post() { }
+
+		public Post(String title, User user) {
+			this.title = title;
+			this.user = user;
+		}
+
+		public void setId(int id) { this.id = id; }
+		public int getId() { return id; }
+
+		public void setTitle(String title) { this.title = title; }
+		public String getTitle() { return title; }
+
+		public void setUser(User user) { this.user = user; }
+		public User getUser() { return user; }
+	}
+
+	private AnsiSQLBeanSession session;
+
+	/* the statements prepared through the connection of the session */
+	private int statements;
+
+	@Before
+	public void setUp() {
+
+		AnsiSQLBeanSession.debugSql(false);
+		AnsiSQLBeanSession.debugNativeSql(false);
+
+		session = new H2BeanSession(configure(), counting(getConnection()));
+		session.createTables();
+
+		User sergio = new User();
+		sergio.setName("Sergio");
+		session.insert(sergio);
+
+		User erico = new User();
+		erico.setName("Erico");
+		session.insert(erico);
+
+		session.insert(new Post("first", sergio));
+		session.insert(new Post("second", erico));
+		session.insert(new Post("third", sergio));
+		session.insert(new Post("no user", null));
+	}
+
+	@After
+	public void tearDown() {
+		SQLUtils.close(session.getConnection());
+	}
+
+	private Connection counting(final Connection conn) {
+
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, new InvocationHandler() {
+
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+				if (method.getName().equals("prepareStatement") || method.getName().equals("createStatement")) {
+					statements++;
+				}
+
+				try {
+
+					return method.invoke(conn, args);
+
+				} catch (InvocationTargetException e) {
+
+					throw e.getCause();
+				}
+			}
+		});
+	}
+
+	private BeanManager configure() {
+
+		BeanManager beanManager = new BeanManager();
+
+		User user = PropertiesProxy.create(User.class);
+
+		beanManager.bean(User.class, "users")
+			.pk(user.getId(), DBTypes.AUTOINCREMENT)
+			.field(user.getName(), DBTypes.STRING);
+
+		Post post = PropertiesProxy.create(Post.class);
+
+		beanManager.bean(Post.class, "posts")
+			.pk(post.getId(), DBTypes.AUTOINCREMENT)
+			.field(post.getTitle(), DBTypes.STRING)
+			.field(post.getUser().getId(), "user_id", DBTypes.INTEGER);
+
+		return beanManager;
+	}
+
+	@Test
+	public void testFetchLoadList() {
+
+		List<Post> posts = session.loadList(new Post(), new OrderBy().orderByAsc("id"));
+		assertEquals(4, posts.size());
+
+		// only the id...
+		assertNull(posts.get(0).getUser().getName());
+
+		Post post = PropertiesProxy.create(Post.class);
+
+		statements = 0;
+
+		assertSame(posts, session.fetch(posts, post.getUser()));
+
+		// one query for the two users, not one per post...
+		assertEquals(1, statements);
+
+		assertEquals("Sergio", posts.get(0).getUser().getName());
+		assertEquals("Erico", posts.get(1).getUser().getName());
+		assertEquals("Sergio", posts.get(2).getUser().getName());
+		assertNull(posts.get(3).getUser());
+
+		// the same user for the same id...
+		assertSame(posts.get(0).getUser(), posts.get(2).getUser());
+	}
+
+	@Test
+	public void testFetchQueryBuilder() {
+
+		QueryBuilder builder = session.buildQuery();
+		Alias<Post> p = builder.aliasTo(Post.class, "p");
+
+		statements = 0;
+
+		List<Post> posts = builder
+				.select(p)
+				.from(p)
+				.orderBy().asc(p, p.proxy().getId())
+				.fetch(p.proxy().getUser())
+				.executeQuery();
+
+		// the query and one for the users...
+		assertEquals(2, statements);
+
+		assertEquals(4, posts.size());
+		assertEquals("Sergio", posts.get(0).getUser().getName());
+		assertEquals("Erico", posts.get(1).getUser().getName());
+	}
+
+	@Test
+	public void testFetchIterate() {
+
+		QueryBuilder builder = session.buildQuery();
+		Alias<Post> p = builder.aliasTo(Post.class, "p");
+
+		statements = 0;
+
+		QueryIterator<Post> it = builder
+				.select(p)
+				.from(p)
+				.orderBy().asc(p, p.proxy().getId())
+				.fetch(p.proxy().getUser())
+				.iterate(2);
+
+		List<Post> posts = new ArrayList<Post>();
+
+		try {
+			for (Post post : it) {
+				posts.add(post);
+			}
+		} finally {
+			it.close();
+		}
+
+		// the query and one for the users of each window of 2 posts, not one per post...
+		assertEquals(3, statements);
+
+		assertEquals(4, posts.size());
+		assertEquals("Sergio", posts.get(0).getUser().getName());
+		assertEquals("Erico", posts.get(1).getUser().getName());
+		assertEquals("Sergio", posts.get(2).getUser().getName());
+		assertNull(posts.get(3).getUser());
+	}
+}
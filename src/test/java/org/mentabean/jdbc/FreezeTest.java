@@ -0,0 +1,185 @@
+package org.mentabean.jdbc;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mentabean.BeanConfig;
+import org.mentabean.BeanManager;
+import org.mentabean.DBTypes;
+import org.mentabean.util.DirtyTracking;
+import org.mentabean.util.Limit;
+import org.mentabean.util.PropertiesProxy;
+import org.mentabean.util.SQLUtils;
+
+public class FreezeTest extends AbstractBeanSessionTest {
+
+	public static class Item {
+
+		private long id;
+		private String name;
+		private boolean active;
+
+		public Item() { }
+
+		public Item(String name, boolean active) {
+			this.name = name;
+			this.active = active;
+		}
+
+		public void setId(long id) { this.id = id; }
+		public long getId() { return id; }
+
+		public void setName(String name) { this.name = name; }
+		public String getName() { return name; }
+
+		public void setActive(boolean active) { this.active = active; }
+		public boolean isActive() { return active; }
+	}
+
+	public static class SpecialItem extends Item { }
+
+	private BeanManager beanManager;
+
+	private AnsiSQLBeanSession session;
+
+	@Before
+	public void setUp() {
+
+		AnsiSQLBeanSession.debugSql(false);
+		AnsiSQLBeanSession.debugNativeSql(false);
+
+		beanManager = new BeanManager();
+
+		Item item = PropertiesProxy.create(Item.class);
+
+		beanManager.bean(Item.class, "items")
+			.pk(item.getId(), DBTypes.AUTOINCREMENT)
+			.field(item.getName(), DBTypes.STRING)
+			.field(item.isActive(), DBTypes.BOOLEAN);
+
+		beanManager.freeze();
+
+		session = new H2BeanSession(beanManager, getConnection());
+		session.createTables();
+	}
+
+	@After
+	public void tearDown() {
+		SQLUtils.close(session.getConnection());
+	}
+
+	@Test
+	public void testCrud() {
+
+		Item item = new Item("one", true);
+		session.insert(item);
+
+		Item loaded = new Item();
+		loaded.setId(item.getId());
+
+		assertTrue(session.load(loaded));
+		assertEquals("one", loaded.getName());
+		assertTrue(loaded.isActive());
+
+		loaded.setName("two");
+		session.update(loaded);
+
+		List<Item> list = session.loadList(new Item());
+
+		assertEquals(1, list.size());
+		assertEquals("two", list.get(0).getName());
+
+		assertEquals("id,name,active", session.buildSelect(Item.class));
+	}
+
+	@Test
+	public void testSubclass() {
+
+		assertTrue(beanManager.isFrozen());
+
+		BeanConfig bc = beanManager.getBeanConfig(Item.class);
+
+		assertTrue(bc.isFrozen());
+		assertNull(beanManager.getBeanConfig(String.class));
+
+		// the same as before freezing: only the classes generated by the session find the config of their superclass...
+		BeanManager notFrozen = new BeanManager();
+		notFrozen.bean(Item.class, "items");
+
+		assertNull(notFrozen.getBeanConfig(SpecialItem.class));
+		assertNull(beanManager.getBeanConfig(SpecialItem.class));
+
+		Class<?> tracked = DirtyTracking.newInstance(bc).getClass();
+
+		assertSame(bc, beanManager.getBeanConfig(tracked));
+	}
+
+	@Test
+	public void testListShapes() {
+
+		session.insert(new Item("one", true));
+		session.insert(new Item("two", false));
+		session.insert(new Item("one", false));
+
+		BeanConfig bc = beanManager.getBeanConfig(Item.class);
+
+		Item byName = new Item("one", false);
+
+		assertEquals(2, session.loadList(byName).size());
+		assertEquals(2, session.countList(byName));
+
+		// same shape, other values...
+		assertEquals(1, session.loadList(new Item("two", false)).size());
+
+		// other shapes...
+		assertEquals(1, session.loadList(new Item("one", true)).size());
+		assertEquals(1, session.loadList(new Item(null, true)).size());
+		assertEquals(3, session.loadList(new Item()).size());
+
+		assertEquals(1, session.countList(new Item("two", false)));
+		assertEquals(3, session.countList(new Item()));
+
+		assertEquals(1, session.loadList(new Item("one", false), null, new Limit(1)).size());
+		assertEquals(2, session.loadList(new Item("one", false), null, new Limit(5)).size());
+
+		// 4 shapes of loadList and 2 of countList, the limit is not part of them...
+		assertEquals(6, bc.getCachedQueryCount());
+	}
+
+	@Test
+	public void testCachedQueriesEvicted() {
+
+		BeanConfig bc = beanManager.getBeanConfig(Item.class);
+
+		bc.cacheQuery("first", "SELECT 1");
+
+		for (int i = 0; i < 600; i++) {
+
+			bc.cacheQuery(i, "SELECT " + i);
+
+			// keep it used...
+			assertEquals("SELECT 1", bc.getCachedQuery("first"));
+		}
+
+		assertEquals(512, bc.getCachedQueryCount());
+
+		assertEquals("SELECT 599", bc.getCachedQuery(599));
+		assertNull(bc.getCachedQuery(0));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testAddAfterFreeze() {
+
+		beanManager.bean(SpecialItem.class, "special_items");
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testChangeAfterFreeze() {
+
+		beanManager.getBeanConfig(Item.class).field("other", DBTypes.STRING);
+	}
+}
@@ -0,0 +1,161 @@
+package org.mentabean.jdbc;
+
+import static org.junit.Assert.*;
+
+import java.sql.PreparedStatement;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mentabean.BeanManager;
+import org.mentabean.DBTypes;
+import org.mentabean.util.PropertiesProxy;
+import org.mentabean.util.SQLUtils;
+
+public class IdentityMapTest extends AbstractBeanSessionTest {
+
+	public static class User {
+
+		private int id;
+		private String name;
+		private Date since;
+
+		public User() { }
+
+		public User(int id) { this.id = id; }
+
+		public void setId(int id) { this.id = id; }
+		public int getId() { return id; }
+
+		public void setName(String name) { this.name = name; }
+		public String getName() { return name; }
+
+		public void setSince(Date since) { this.since = since; }
+		public Date getSince() { return since; }
+	}
+
+	private AnsiSQLBeanSession session;
+
+	@Before
+	public void setUp() {
+
+		AnsiSQLBeanSession.debugSql(false);
+		AnsiSQLBeanSession.debugNativeSql(false);
+
+		session = new H2BeanSession(configure(), getConnection());
+		session.createTables();
+		session.setIdentityMap(true);
+	}
+
+	@After
+	public void tearDown() {
+		SQLUtils.close(session.getConnection());
+	}
+
+	private BeanManager configure() {
+
+		BeanManager beanManager = new BeanManager();
+
+		User user = PropertiesProxy.create(User.class);
+
+		beanManager.bean(User.class, "users")
+			.pk(user.getId(), DBTypes.AUTOINCREMENT)
+			.field(user.getName(), DBTypes.STRING)
+			.field(user.getSince(), DBTypes.TIMESTAMP);
+
+		return beanManager;
+	}
+
+	private void renameInDatabase(int id, String name) throws Exception {
+
+		PreparedStatement stmt = session.getConnection().prepareStatement("update users set name = ? where id = ?");
+		stmt.setString(1, name);
+		stmt.setInt(2, id);
+		stmt.executeUpdate();
+		stmt.close();
+	}
+
+	@Test
+	public void testSameInstance() throws Exception {
+
+		User u = new User();
+		u.setName("Sergio");
+		session.insert(u);
+
+		User u1 = session.loadUnique(new User(u.getId()));
+		assertNotNull(u1);
+
+		// not going to the database anymore...
+		renameInDatabase(u.getId(), "Erico");
+
+		User u2 = session.loadUnique(new User(u.getId()));
+		assertSame(u1, u2);
+		assertEquals("Sergio", u2.getName());
+
+		List<User> list = session.loadList(new User());
+		assertEquals(1, list.size());
+		assertSame(u1, list.get(0));
+
+		User u3 = new User(u.getId());
+		assertTrue(session.load(u3));
+		assertEquals("Sergio", u3.getName());
+	}
+
+	@Test
+	public void testLoadListIsMapped() {
+
+		User u = new User();
+		u.setName("Sergio");
+		session.insert(u);
+
+		session.detach(u);
+
+		List<User> list = session.loadList(new User());
+		assertEquals(1, list.size());
+
+		User loaded = session.loadUnique(new User(u.getId()));
+		assertSame(list.get(0), loaded);
+	}
+
+	@Test
+	public void testDeleteAndClear() throws Exception {
+
+		User u = new User();
+		u.setName("Sergio");
+		session.insert(u);
+
+		User u1 = session.loadUnique(new User(u.getId()));
+
+		session.clearSnapshots();
+
+		renameInDatabase(u.getId(), "Erico");
+
+		User u2 = session.loadUnique(new User(u.getId()));
+		assertNotSame(u1, u2);
+		assertEquals("Erico", u2.getName());
+
+		assertTrue(session.delete(u2));
+		assertNull(session.loadUnique(new User(u.getId())));
+	}
+
+	@Test
+	public void testLoadCopiesValues() {
+
+		User u = new User();
+		u.setName("Sergio");
+		u.setSince(new Date(1000000));
+		session.insert(u);
+
+		User u1 = session.loadUnique(new User(u.getId()));
+
+		// filled from the instance in the session...
+		User u2 = new User(u.getId());
+		assertTrue(session.load(u2));
+		assertNotSame(u1.getSince(), u2.getSince());
+
+		u2.getSince().setTime(0);
+		assertEquals(1000000, u1.getSince().getTime());
+	}
+}
@@ -0,0 +1,238 @@
+package org.mentabean.jdbc;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mentabean.BeanException;
+import org.mentabean.BeanManager;
+import org.mentabean.DBTypes;
+import org.mentabean.util.LazyLoaded;
+import org.mentabean.util.OrderBy;
+import org.mentabean.util.PropertiesProxy;
+import org.mentabean.util.SQLUtils;
+
+public class LazyLoadingTest extends AbstractBeanSessionTest {
+
+	public static class User {
+
+		private int id;
+		private String name;
+
+		public User() { }
+
+		public User(int id) { this.id = id; }
+
+		public void setId(int id) { this.id = id; }
+		public int getId() { return id; }
+
+		public void setName(String name) { this.name = name; }
+		public String getName() { return name; }
+	}
+
+	public static class Post {
+
+		private int id;
+		private String title;
+		private User user;
+
+		public Post() { }
+
+		public Post(int id) { this.id = id; }
+
+		public Post(String title, User user) {
+			this.title = title;
+			this.user = user;
+		}
+
+		public void setId(int id) { this.id = id; }
+		public int getId() { return id; }
+
+		public void setTitle(String title) { this.title = title; }
+		public String getTitle() { return title; }
+
+		public void setUser(User user) { this.user = user; }
+		public User getUser() { return user; }
+	}
+
+	private AnsiSQLBeanSession session;
+
+	private void setUp(boolean batch) {
+
+		AnsiSQLBeanSession.debugSql(false);
+		AnsiSQLBeanSession.debugNativeSql(false);
+
+		session = new H2BeanSession(configure(batch), getConnection());
+		session.createTables();
+
+		User sergio = new User();
+		sergio.setName("Sergio");
+		session.insert(sergio);
+
+		User erico = new User();
+		erico.setName("Erico");
+		session.insert(erico);
+
+		session.insert(new Post("first", sergio));
+		session.insert(new Post("second", erico));
+		session.insert(new Post("third", sergio));
+	}
+
+	@After
+	public void tearDown() {
+		SQLUtils.close(session.getConnection());
+	}
+
+	private BeanManager configure(boolean batch) {
+
+		BeanManager beanManager = new BeanManager();
+
+		User user = PropertiesProxy.create(User.class);
+
+		beanManager.bean(User.class, "users")
+			.pk(user.getId(), DBTypes.AUTOINCREMENT)
+			.field(user.getName(), DBTypes.STRING);
+
+		Post post = PropertiesProxy.create(Post.class);
+
+		beanManager.bean(Post.class, "posts")
+			.pk(post.getId(), DBTypes.AUTOINCREMENT)
+			.field(post.getTitle(), DBTypes.STRING)
+			.field(post.getUser().getId(), "user_id", DBTypes.INTEGER)
+			.lazy(post.getUser(), batch);
+
+		return beanManager;
+	}
+
+	@Test
+	public void testLoadOnFirstGetter() {
+
+		setUp(false);
+
+		Post p = new Post(1);
+		assertTrue(session.load(p));
+
+		User u = p.getUser();
+		assertTrue(u instanceof LazyLoaded);
+		assertFalse(LazyLoading.isLoaded(u));
+
+		// the id does not load...
+		assertEquals(1, u.getId());
+		assertFalse(LazyLoading.isLoaded(u));
+
+		assertEquals("Sergio", u.getName());
+		assertTrue(LazyLoading.isLoaded(u));
+
+		// and it is a bean like any other...
+		u.setName("Sergio Oliveira");
+		assertTrue(session.update(u));
+
+		User loaded = new User(1);
+		assertTrue(session.load(loaded));
+		assertEquals("Sergio Oliveira", loaded.getName());
+	}
+
+	@Test
+	public void testBatch() {
+
+		setUp(true);
+
+		List<Post> posts = session.loadList(new Post(), new OrderBy().orderByAsc("id"));
+		assertEquals(3, posts.size());
+
+		for (Post p : posts) {
+			assertFalse(LazyLoading.isLoaded(p.getUser()));
+		}
+
+		assertEquals("Erico", posts.get(1).getUser().getName());
+
+		// all loaded together...
+		for (Post p : posts) {
+			assertTrue(LazyLoading.isLoaded(p.getUser()));
+		}
+
+		assertEquals("Sergio", posts.get(0).getUser().getName());
+		assertEquals("Sergio", posts.get(2).getUser().getName());
+	}
+
+	@Test
+	public void testLargeBatch() {
+
+		setUp(true);
+
+		// more users than the ids of one IN list...
+		for (int i = 0; i < 600; i++) {
+
+			User u = new User();
+			u.setName("user" + i);
+			session.insert(u);
+
+			session.insert(new Post("post" + i, u));
+		}
+
+		List<Post> posts = session.loadList(new Post(), new OrderBy().orderByAsc("id"));
+		assertEquals(603, posts.size());
+
+		assertEquals("user0", posts.get(3).getUser().getName());
+
+		for (Post p : posts) {
+			assertTrue(LazyLoading.isLoaded(p.getUser()));
+		}
+
+		assertEquals("Erico", posts.get(1).getUser().getName());
+		assertEquals("user599", posts.get(602).getUser().getName());
+	}
+
+	@Test
+	public void testDanglingForeignKey() {
+
+		setUp(false);
+
+		Post orphan = new Post("orphan", new User(99));
+		session.insert(orphan);
+
+		Post p = new Post(orphan.getId());
+		assertTrue(session.load(p));
+
+		User u = p.getUser();
+
+		try {
+			u.getName();
+			fail("There is no user 99");
+		} catch (BeanException e) {
+			// ok...
+		}
+
+		assertFalse(LazyLoading.isLoaded(u));
+	}
+
+	@Test
+	public void testDanglingForeignKeyInBatch() {
+
+		setUp(true);
+
+		session.insert(new Post("orphan", new User(99)));
+
+		List<Post> posts = session.loadList(new Post(), new OrderBy().orderByAsc("id"));
+		assertEquals(4, posts.size());
+
+		// the others are loaded...
+		assertEquals("Sergio", posts.get(0).getUser().getName());
+		assertTrue(LazyLoading.isLoaded(posts.get(1).getUser()));
+
+		User u = posts.get(3).getUser();
+		assertFalse(LazyLoading.isLoaded(u));
+
+		try {
+			u.getName();
+			fail("There is no user 99");
+		} catch (BeanException e) {
+			// ok...
+		}
+
+		assertFalse(LazyLoading.isLoaded(u));
+	}
+}
@@ -0,0 +1,120 @@
+package org.mentabean.jdbc;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mentabean.BeanManager;
+import org.mentabean.DBTypes;
+import org.mentabean.type.BlobStreamType.BlobInputStream;
+import org.mentabean.type.ClobStreamType.ClobReader;
+import org.mentabean.util.PropertiesProxy;
+import org.mentabean.util.SQLUtils;
+
+public class LobStreamTest extends AbstractBeanSessionTest {
+
+	public static class Document {
+
+		private int id;
+		private InputStream content;
+		private Reader text;
+
+		public void setId(int id) { this.id = id; }
+		public int getId() { return id; }
+
+		public void setContent(InputStream content) { this.content = content; }
+		public InputStream getContent() { return content; }
+
+		public void setText(Reader text) { this.text = text; }
+		public Reader getText() { return text; }
+	}
+
+	private AnsiSQLBeanSession session;
+
+	@Before
+	public void setUp() {
+
+		AnsiSQLBeanSession.debugSql(false);
+		AnsiSQLBeanSession.debugNativeSql(false);
+
+		session = new H2BeanSession(configure(), getConnection());
+		session.createTables();
+	}
+
+	@After
+	public void tearDown() {
+		SQLUtils.close(session.getConnection());
+	}
+
+	private BeanManager configure() {
+
+		BeanManager beanManager = new BeanManager();
+
+		Document doc = PropertiesProxy.create(Document.class);
+
+		beanManager.bean(Document.class, "documents")
+			.pk(doc.getId(), DBTypes.AUTOINCREMENT)
+			.field(doc.getContent(), DBTypes.BLOB_STREAM)
+			.field(doc.getText(), DBTypes.CLOB_STREAM);
+
+		return beanManager;
+	}
+
+	@Test
+	public void testInsertAndLoad() throws Exception {
+
+		Document doc = new Document();
+		doc.setContent(new ByteArrayInputStream(new byte[] { 1, 2, 3, 4 }));
+		doc.setText(new StringReader("mentabean"));
+		session.insert(doc);
+
+		Document loaded = new Document();
+		loaded.setId(doc.getId());
+		assertTrue(session.load(loaded));
+
+		assertTrue(loaded.getContent() instanceof BlobInputStream);
+		assertFalse(((BlobInputStream) loaded.getContent()).isOpened());
+		assertEquals(4, ((BlobInputStream) loaded.getContent()).length());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		int b;
+		while ((b = loaded.getContent().read()) != -1) {
+			out.write(b);
+		}
+		loaded.getContent().close();
+		assertArrayEquals(new byte[] { 1, 2, 3, 4 }, out.toByteArray());
+
+		assertTrue(loaded.getText() instanceof ClobReader);
+
+		StringWriter writer = new StringWriter();
+		char[] buf = new char[4];
+		int n;
+		while ((n = loaded.getText().read(buf, 0, buf.length)) != -1) {
+			writer.write(buf, 0, n);
+		}
+		loaded.getText().close();
+		assertEquals("mentabean", writer.toString());
+	}
+
+	@Test
+	public void testNull() {
+
+		Document doc = new Document();
+		session.insert(doc);
+
+		Document loaded = new Document();
+		loaded.setId(doc.getId());
+		assertTrue(session.load(loaded));
+
+		assertNull(loaded.getContent());
+		assertNull(loaded.getText());
+	}
+}
@@ -4,8 +4,11 @@ import junit.framework.Assert;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mentabean.BeanException;
 import org.mentabean.util.DefaultProxy;
+import org.mentabean.util.OrderBy;
 import org.mentabean.util.PropertiesProxy;
+import org.mentabean.util.Property;
 
 public class PropertiesProxyTest {
 	
@@ -279,4 +282,86 @@ public class PropertiesProxyTest {
 		Assert.assertEquals("name", properties[3]);
 		Assert.assertEquals(city, instances[3]);
 	}
-}
\ No newline at end of file
+	
+	@Test
+	public void testNestedProxyReused() {
+		
+		User user = PropertiesProxy.create(User.class);
+		
+		Address first = user.getAddress();
+		Address second = user.getAddress();
+		
+		Assert.assertTrue(first == second);
+		Assert.assertFalse(user == PropertiesProxy.create(User.class)); // every create is a new instance...
+		
+		PropertiesProxy.getPropertyNames(); // clear
+		
+		for (int i = 0; i < 20; i++) {
+			user.getAddress().getFoo1();
+		}
+		
+		String properties[] = PropertiesProxy.getPropertyNames();
+		
+		Assert.assertEquals(20, properties.length);
+		Assert.assertEquals("address.foo1", properties[19]);
+		Assert.assertFalse(PropertiesProxy.hasProperties());
+		Assert.assertFalse(PropertiesProxy.hasBeanInstance());
+	}
+	
+	/**
+	 * Stands for what a compiler generates for <code>User::getBlah1</code> (this source level has no method references).
+	 */
+	public static class GetBlah1 implements Property<User, String> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		public static int resolved = 0;
+		
+		@Override
+		public String get(User bean) {
+			return bean.getBlah1();
+		}
+		
+		@SuppressWarnings("unused")
+		private Object writeReplace() {
+			resolved++;
+			return new Serialized("getBlah1");
+		}
+	}
+	
+	public static class Serialized {
+		
+		private final String implMethodName;
+		
+		public Serialized(String implMethodName) {
+			this.implMethodName = implMethodName;
+		}
+		
+		public String getImplMethodName() {
+			return implMethodName;
+		}
+	}
+	
+	@Test
+	public void testMethodReference() {
+		
+		Assert.assertEquals("blah1", PropertiesProxy.getPropertyName(new GetBlah1()));
+		Assert.assertEquals("blah1", PropertiesProxy.getPropertyName(new GetBlah1()));
+		Assert.assertEquals(1, GetBlah1.resolved); // cached by class
+		
+		Assert.assertEquals("blah1 asc", new OrderBy().asc(new GetBlah1()).toString());
+		
+		try {
+			PropertiesProxy.getPropertyName(new Property<User, Object>() {
+				private static final long serialVersionUID = 1L;
+				@Override
+				public Object get(User bean) {
+					return bean.getAddress();
+				}
+			});
+			Assert.fail("Not a method reference");
+		} catch (BeanException e) {
+			// expected
+		}
+	}
+}
@@ -9,6 +9,8 @@ import static org.junit.Assert.assertTrue;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import junit.framework.Assert;
@@ -45,6 +47,7 @@ import org.mentabean.sql.param.ParamFunction;
 import org.mentabean.sql.param.ParamHandler;
 import org.mentabean.sql.param.ParamSubQuery;
 import org.mentabean.sql.param.ParamValue;
+import org.mentabean.sql.param.ParamValues;
 import org.mentabean.util.PropertiesProxy;
 import org.mentabean.util.SQLUtils;
 
@@ -1613,4 +1616,351 @@ public class QueryBuilderTest extends AbstractBeanSessionTest {
 		Assert.assertTrue(found instanceof ParamFunction);	
 	}
 	
+	/**
+	 * Many optional clauses, like in a search screen: only the enabled ones (and their connectors and parenthesis) go to the SQL
+	 */
+	@Test
+	public void queryManyOptionalClauses() {
+		
+		QueryBuilder builder = session.buildQuery();
+		Alias<Company> c = builder.aliasTo(Company.class, "c");
+		
+		QueryBuilder.Where where = builder.select(c).from(c).where();
+		QueryBuilder.EndClauseWhere end = null;
+		
+		for (int i = 0; i < 60; i++) {
+			end = where
+					.openPar()
+					.clauseIf(i % 20 == 0, c.proxy().getName())
+					.condition(new Equals("x" + i))
+					.or()
+					.clauseIf(false, c.proxy().getId())
+					.condition(new Equals(i))
+					.closePar();
+			where = end.and();
+		}
+		
+		String sql = end.getSQL();
+		
+		assertEquals(3, end.getParamValues().size());
+		assertEquals(1, sql.split(" WHERE ").length - 1);
+		assertEquals(2, sql.split(" AND ").length - 1);
+		assertEquals(-1, sql.indexOf(" OR "));
+		assertEquals(-1, sql.indexOf("()"));
+		assertTrue(sql.trim().endsWith(")"));
+		
+		assertEquals(0, end.executeQuery().size());
+		
+		// nothing enabled, no WHERE at all...
+		
+		where = builder.select(c).from(c).where();
+		
+		for (int i = 0; i < 10; i++) {
+			end = where
+					.openPar()
+					.clauseIf(false, c.proxy().getName())
+					.condition(new Equals("x" + i))
+					.closePar();
+			where = end.or();
+		}
+		
+		sql = end.getSQL();
+		
+		assertEquals(-1, sql.indexOf("WHERE"));
+		assertEquals(-1, sql.indexOf("("));
+		assertEquals(0, end.getParamValues().size());
+	}
+	
+	@Test
+	public void queryCompiled() {
+		
+		QueryBuilder builder = session.buildQuery();
+		Alias<Employee> e = builder.aliasTo(Employee.class, "emp");
+		Alias<Company> c = builder.aliasTo(Company.class, "com");
+		Alias<Post> p = builder.aliasTo(Post.class, "p");
+		
+		CompiledQuery query = builder
+				.select(e)
+				.from(e)
+				.join(p).pkOf(e).in(p)
+				.join(c).pkOf(c).in(p)
+				.where()
+				.clause(c.proxy().getName())
+				.condition(new Equals("Google"))
+				.and()
+				.clause(e.proxy().getSalary())
+				.condition(new GreaterThan(15000))
+				.orderBy().asc(e, e.proxy().getName())
+				.compile();
+		
+		assertEquals(2, query.getParamCount());
+		
+		List<Employee> list = query.execute(session);
+		
+		assertEquals(2, list.size());
+		assertEquals("Maile Ohye", list.get(0).getName());
+		assertEquals("Michael Manoochehri", list.get(1).getName());
+		
+		list = query.execute(session, "Oracle", 50000d);
+		
+		assertEquals(1, list.size());
+		assertEquals("Mark V. Hurd", list.get(0).getName());
+		
+		list = query.execute(session, "IBM", 0d);
+		
+		assertEquals(0, list.size());
+		
+		// the builder is free to build another query...
+		assertEquals(7, builder.select(e).from(e).executeQuery().size());
+	}
+	
+	@Test
+	public void queryInList() {
+		
+		QueryBuilder builder = session.buildQuery();
+		Alias<Employee> e = builder.aliasTo(Employee.class, "emp");
+		
+		Query query = builder
+				.select(e)
+				.from(e)
+				.where()
+				.clause(e.proxy().getNumber())
+				.condition(new In(Arrays.asList(19L, 12L, 15L)))
+				.orderBy().asc(e, e.proxy().getName());
+		
+		// padded to 4 parameters...
+		assertEquals(4, query.getParamValues().size());
+		
+		List<Employee> list = query.executeQuery();
+		
+		assertEquals(3, list.size());
+		assertEquals("Ilya Grigorik", list.get(0).getName());
+	}
+	
+	@Test
+	public void queryEmptyInList() {
+		
+		QueryBuilder builder = session.buildQuery();
+		Alias<Employee> e = builder.aliasTo(Employee.class, "emp");
+		
+		Query query = builder
+				.select(e)
+				.from(e)
+				.where()
+				.clause(e.proxy().getSalary())
+				.condition(new GreaterThan(15000))
+				.and()
+				.clause(e.proxy().getNumber())
+				.condition(new NotIn(Collections.emptyList()));
+		
+		// not in nothing, so every row...
+		assertTrue(query.getSQL().endsWith("AND  1 = 1"));
+		assertEquals(1, query.getParamValues().size());
+		
+		assertEquals(4, query.executeQuery().size());
+		
+		builder = session.buildQuery();
+		e = builder.aliasTo(Employee.class, "emp");
+		
+		List<Employee> none = builder
+				.select(e)
+				.from(e)
+				.where()
+				.clause(e.proxy().getNumber())
+				.condition(new In(Collections.emptyList()))
+				.executeQuery();
+		
+		assertEquals(0, none.size());
+	}
+	
+	@Test
+	public void queryPopulateAll() throws Exception {
+		
+		QueryBuilder builder = session.buildQuery();
+		Alias<Post> p = builder.aliasTo(Post.class, "p");
+		Alias<Employee> e = builder.aliasTo(Employee.class, "emp");
+		
+		Query query = builder.select(p, e)
+				.from(p)
+				.join(e).pkOf(e).in(p).inProperty(p.proxy().getEmployee())
+				.orderBy().asc(p, p.proxy().getDescription());
+		
+		PreparedStatement ppst = query.prepare();
+		
+		List<Post> list = new ArrayList<Post>();
+		
+		try {
+			
+			ResultSet rs = ppst.executeQuery();
+			
+			// the same plan for every row...
+			while (rs.next()) {
+				
+				Post post = new Post();
+				p.populateAll(rs, post);
+				list.add(post);
+			}
+			
+		} finally {
+			
+			SQLUtils.close(ppst);
+		}
+		
+		assertTrue(list.size() > 1);
+		
+		for (Post post : list) {
+			assertNotNull(post.getEmployee().getName());
+		}
+		
+		builder.finish();
+		
+		assertEquals(list.size(), builder.select(p).from(p).executeQuery().size());
+	}
+	
+	private List<Long> numbers(long from, int count) {
+		
+		List<Long> list = new ArrayList<Long>(count);
+		
+		for (long i = from; i < from + count; i++) {
+			list.add(i);
+		}
+		
+		return list;
+	}
+	
+	@Test
+	public void queryLargeInList() {
+		
+		QueryBuilder builder = session.buildQuery();
+		Alias<Employee> e = builder.aliasTo(Employee.class, "emp");
+		
+		Query query = builder
+				.select(e)
+				.from(e)
+				.where()
+				.clause(e.proxy().getNumber())
+				.condition(new In(numbers(2, 3000)));
+		
+		// bound as a single array...
+		assertEquals(1, query.getParamValues().size());
+		assertEquals(6, query.executeQuery().size());
+		
+		builder = session.buildQuery();
+		e = builder.aliasTo(Employee.class, "emp");
+		
+		// all but the number 1...
+		assertEquals(1, builder.select(e).from(e).where().clause(e.proxy().getNumber()).condition(new NotIn(numbers(2, 3000))).executeQuery().size());
+	}
+	
+	@Test
+	public void queryLargeInListInChunks() {
+		
+		// a dialect without arrays...
+		AnsiSQLBeanSession noArrays = new H2BeanSession(configure(), session.getConnection()) {
+			
+			@Override
+			protected String getArrayInCondition(String column, String elementType) {
+				return null;
+			}
+		};
+		
+		QueryBuilder builder = noArrays.buildQuery();
+		Alias<Employee> e = builder.aliasTo(Employee.class, "emp");
+		
+		Query query = builder
+				.select(e)
+				.from(e)
+				.where()
+				.clause(e.proxy().getNumber())
+				.condition(new In(numbers(2, 3000)));
+		
+		// 1024 + 1024 + 952 padded to 1024...
+		assertEquals(3072, query.getParamValues().size());
+		assertTrue(query.getSQL().contains(" OR emp.idemployee IN ("));
+		assertEquals(6, query.executeQuery().size());
+		
+		builder = noArrays.buildQuery();
+		e = builder.aliasTo(Employee.class, "emp");
+		
+		query = builder.select(e).from(e).where().clause(e.proxy().getNumber()).condition(new NotIn(numbers(2, 3000)));
+		
+		assertTrue(query.getSQL().contains(" AND emp.idemployee NOT IN ("));
+		assertEquals(1, query.executeQuery().size());
+	}
+	
+	@Test
+	public void paddedInList() {
+		
+		assertEquals(1, ParamValues.paddedSize(1));
+		assertEquals(4, ParamValues.paddedSize(3));
+		assertEquals(1024, ParamValues.paddedSize(1000));
+		assertEquals(1024, ParamValues.paddedSize(1024));
+		
+		// a multiple of 1024, not the next power of two...
+		assertEquals(2048, ParamValues.paddedSize(1025));
+		assertEquals(50176, ParamValues.paddedSize(50000));
+	}
+	
+	@Test
+	public void queryIterate() {
+		
+		QueryBuilder builder = session.buildQuery();
+		Alias<Employee> e = builder.aliasTo(Employee.class, "emp");
+		
+		QueryIterator<Employee> it = builder
+				.select(e)
+				.from(e)
+				.where()
+				.clause(e.proxy().getSalary())
+				.condition(new GreaterThan(15000))
+				.orderBy().asc(e, e.proxy().getName())
+				.iterate(2);
+		
+		List<String> names = new ArrayList<String>();
+		
+		try {
+			
+			// the builder is free while iterating...
+			assertEquals(7, builder.select(e).from(e).executeQuery().size());
+			
+			for (Employee emp : it) {
+				names.add(emp.getName());
+			}
+			
+		} finally {
+			
+			it.close();
+		}
+		
+		assertTrue(it.isClosed());
+		assertEquals(4, names.size());
+		assertEquals("Lawrence J. Ellison", names.get(0));
+		assertEquals("Michael Manoochehri", names.get(3));
+	}
+	
+	@Test
+	public void queryExplain() {
+		
+		QueryBuilder builder = session.buildQuery();
+		Alias<Employee> e = builder.aliasTo(Employee.class, "emp");
+		
+		QueryPlan plan = builder
+				.select(e)
+				.from(e)
+				.where()
+				.clause(e.proxy().getName())
+				.condition(new Equals("Mark V. Hurd"))
+				.explain();
+		
+		assertEquals(1, plan.getParams().size());
+		assertEquals(1, plan.getRows().size());
+		assertTrue(plan.getText().toUpperCase().contains("EMPLOYEE"));
+		
+		// by example...
+		plan = session.explainList(new Employee(1, null, 0), null, null);
+		
+		assertEquals(1, plan.getParams().size());
+		assertTrue(plan.getText().toUpperCase().contains("EMPLOYEE"));
+	}
+	
 }
@@ -0,0 +1,230 @@
+package org.mentabean.jdbc;
+
+import static org.junit.Assert.*;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mentabean.BeanManager;
+import org.mentabean.DBTypes;
+import org.mentabean.jdbc.QueryBuilder.Alias;
+import org.mentabean.sql.conditions.GreaterThan;
+import org.mentabean.type.StringType;
+import org.mentabean.util.PropertiesProxy;
+import org.mentabean.util.SQLUtils;
+
+public class QueryCacheTest extends AbstractBeanSessionTest {
+
+	public static class Product {
+
+		private int id;
+		private String name;
+		private double price;
+
+		public Product() { }
+
+		public Product(String name, double price) {
+			this.name = name;
+			this.price = price;
+		}
+
+		public void setId(int id) { this.id = id; }
+		public int getId() { return id; }
+
+		public void setName(String name) { this.name = name; }
+		public String getName() { return name; }
+
+		public void setPrice(double price) { this.price = price; }
+		public double getPrice() { return price; }
+	}
+
+	private AnsiSQLBeanSession session;
+
+	private QueryCache cache;
+
+	@Before
+	public void setUp() {
+
+		AnsiSQLBeanSession.debugSql(false);
+		AnsiSQLBeanSession.debugNativeSql(false);
+
+		session = new H2BeanSession(configure(), getConnection());
+		session.createTables();
+
+		session.insert(new Product("pen", 2));
+		session.insert(new Product("book", 30));
+		session.insert(new Product("lamp", 45));
+
+		cache = new QueryCache(10, 0);
+		session.setQueryCache(cache);
+	}
+
+	@After
+	public void tearDown() {
+		SQLUtils.close(session.getConnection());
+	}
+
+	private BeanManager configure() {
+
+		return configure(DBTypes.STRING);
+	}
+
+	private BeanManager configure(StringType nameType) {
+
+		BeanManager beanManager = new BeanManager();
+
+		Product product = PropertiesProxy.create(Product.class);
+
+		beanManager.bean(Product.class, "products")
+			.pk(product.getId(), DBTypes.AUTOINCREMENT)
+			.field(product.getName(), nameType)
+			.field(product.getPrice(), DBTypes.DOUBLE);
+
+		return beanManager;
+	}
+
+	/**
+	 * Reads the name with getObject instead of getString.
+	 */
+	private static class ObjectStringType extends StringType {
+
+		@Override
+		public String getFromResultSet(ResultSet rset, int index) throws SQLException {
+			return (String) rset.getObject(index);
+		}
+	}
+
+	@Test
+	public void testLoadList() {
+
+		List<Product> list = session.loadList(new Product());
+		assertEquals(3, list.size());
+		assertEquals(0, cache.getHits());
+		assertEquals(1, cache.size());
+
+		List<Product> cached = session.loadList(new Product());
+		assertEquals(3, cached.size());
+		assertEquals(1, cache.getHits());
+
+		// new beans every time...
+		assertNotSame(list.get(0), cached.get(0));
+		assertEquals(list.get(0).getName(), cached.get(0).getName());
+		assertEquals(list.get(2).getPrice(), cached.get(2).getPrice(), 0.001);
+
+		// different parameters, different result...
+		Product example = new Product();
+		example.setName("pen");
+		assertEquals(1, session.loadList(example).size());
+		assertEquals(2, cache.size());
+
+		session.insert(new Product("mug", 8));
+		assertEquals(0, cache.size());
+
+		assertEquals(4, session.loadList(new Product()).size());
+	}
+
+	@Test
+	public void testQueryBuilder() {
+
+		List<Product> list = expensive();
+		assertEquals(2, list.size());
+		assertEquals(0, cache.getHits());
+
+		list = expensive();
+		assertEquals(2, list.size());
+		assertEquals(1, cache.getHits());
+		assertEquals("book", list.get(0).getName());
+
+		Product p = list.get(0);
+		p.setPrice(5);
+		session.update(p);
+		assertEquals(0, cache.size());
+
+		assertEquals(1, expensive().size());
+	}
+
+	@Test
+	public void testCachedValues() {
+
+		assertEquals(3, session.loadList(new Product()).size());
+		assertEquals(1, cache.size());
+
+		// same SQL, read with another method, so the values come from the rows cached...
+		AnsiSQLBeanSession other = new H2BeanSession(configure(new ObjectStringType()), session.getConnection());
+		other.setQueryCache(cache);
+
+		List<Product> list = other.loadList(new Product());
+		assertEquals(3, list.size());
+		assertEquals("pen", list.get(0).getName());
+		assertEquals("book", list.get(1).getName());
+		assertEquals(1, cache.getHits());
+
+		// new beans from the same rows...
+		list.get(0).setName("pencil");
+		assertEquals("pen", session.loadList(new Product()).get(0).getName());
+		assertEquals(2, cache.getHits());
+	}
+
+	@Test
+	public void testInvalidatedAgainOnCommit() throws Exception {
+
+		assertEquals(2, expensive().size());
+		assertEquals(1, cache.size());
+
+		Connection conn = session.getConnection();
+
+		conn.setAutoCommit(false);
+
+		try {
+
+			Product p = new Product();
+			p.setId(1);
+			assertTrue(session.load(p));
+			p.setPrice(50);
+			session.update(p);
+			assertEquals(0, cache.size());
+
+			// not committed, so it does not go to the cache shared with the other sessions...
+			assertEquals(3, expensive().size());
+			assertEquals(0, cache.size());
+
+			// another session caches the old result before the commit...
+			AnsiSQLBeanSession other = new H2BeanSession(configure(), conn);
+			other.setQueryCache(cache);
+			other.loadList(new Product());
+			assertEquals(1, cache.size());
+
+			session.commit();
+
+			assertEquals(0, cache.size());
+
+		} finally {
+
+			conn.setAutoCommit(true);
+		}
+
+		assertEquals(3, expensive().size());
+		assertEquals(1, cache.size());
+	}
+
+	private List<Product> expensive() {
+
+		QueryBuilder builder = session.buildQuery();
+		Alias<Product> p = builder.aliasTo(Product.class, "p");
+
+		return builder
+				.select(p)
+				.from(p)
+				.where()
+				.clause(p.proxy().getPrice())
+				.condition(new GreaterThan(10))
+				.orderBy().asc(p, p.proxy().getId())
+				.cached()
+				.executeQuery();
+	}
+}
@@ -0,0 +1,195 @@
+package org.mentabean.jdbc;
+
+import static org.junit.Assert.*;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mentabean.BeanManager;
+import org.mentabean.DBTypes;
+import org.mentabean.jdbc.QueryBuilder.Alias;
+import org.mentabean.util.OrderBy;
+import org.mentabean.util.PropertiesProxy;
+import org.mentabean.util.SQLUtils;
+
+public class QueryOptionsTest extends AbstractBeanSessionTest {
+
+	public static class Item {
+
+		private long id;
+		private String name;
+
+		public Item() { }
+
+		public Item(String name) {
+			this.name = name;
+		}
+
+		public void setId(long id) { this.id = id; }
+		public long getId() { return id; }
+
+		public void setName(String name) { this.name = name; }
+		public String getName() { return name; }
+	}
+
+	private AnsiSQLBeanSession session;
+
+	@Before
+	public void setUp() {
+
+		AnsiSQLBeanSession.debugSql(false);
+		AnsiSQLBeanSession.debugNativeSql(false);
+
+		BeanManager beanManager = new BeanManager();
+
+		Item item = PropertiesProxy.create(Item.class);
+
+		beanManager.bean(Item.class, "items")
+			.pk(item.getId(), DBTypes.AUTOINCREMENT)
+			.field(item.getName(), DBTypes.STRING);
+
+		session = new H2BeanSession(beanManager, getConnection());
+		session.createTables();
+
+		for (int i = 0; i < 10; i++) {
+			session.insert(new Item("item" + i));
+		}
+	}
+
+	@After
+	public void tearDown() {
+		SQLUtils.close(session.getConnection());
+	}
+
+	@Test
+	public void testLoadList() {
+
+		QueryOptions options = new QueryOptions().maxRows(3).fetchSize(2).timeout(10);
+
+		List<Item> list = session.loadList(new Item(), new OrderBy().orderByAsc("id"), null, options);
+
+		assertEquals(3, list.size());
+		assertEquals("item0", list.get(0).getName());
+
+		assertEquals(10, session.countList(new Item(), options));
+
+		// nothing running...
+		assertEquals(0, options.cancel());
+	}
+
+	@Test
+	public void testSessionDefaults() {
+
+		session.setQueryOptions(new QueryOptions().maxRows(5));
+
+		assertEquals(5, session.loadList(new Item()).size());
+
+		// the options of the query take precedence...
+		assertEquals(2, session.loadList(new Item(), null, null, new QueryOptions().maxRows(2)).size());
+
+		QueryBuilder builder = session.buildQuery();
+		Alias<Item> i = builder.aliasTo(Item.class, "i");
+
+		assertEquals(5, builder.select(i).from(i).executeQuery().size());
+		assertEquals(4, builder.select(i).from(i).options(new QueryOptions().maxRows(4)).executeQuery().size());
+
+		session.setQueryOptions(null);
+
+		assertEquals(10, builder.select(i).from(i).executeQuery().size());
+	}
+
+	@Test
+	public void testCancel() throws Exception {
+
+		final QueryOptions options = new QueryOptions().timeout(60);
+
+		// far too many rows to count...
+		final PreparedStatement stmt = session.prepareStatement("select count(*) from system_range(1, 100000) a, system_range(1, 100000) b", options);
+
+		final SQLException[] error = new SQLException[1];
+
+		Thread t = new Thread() {
+
+			@Override
+			public void run() {
+				try {
+					stmt.executeQuery();
+				} catch (SQLException e) {
+					error[0] = e;
+				}
+			}
+		};
+
+		t.start();
+
+		try {
+
+			// until it is running...
+			for (int i = 0; i < 200 && t.isAlive(); i++) {
+				options.cancel();
+				t.join(50);
+			}
+
+			assertFalse(t.isAlive());
+			assertNotNull(error[0]);
+
+		} finally {
+
+			SQLUtils.close(stmt);
+		}
+	}
+
+	@Test
+	public void testSessionOptionsNotKept() throws Exception {
+
+		QueryOptions defaults = new QueryOptions().fetchSize(5);
+
+		session.setQueryOptions(defaults);
+
+		PreparedStatement stmt = session.prepareStatement("select * from items", null);
+
+		try {
+
+			// shared by the queries of every thread, so nothing to cancel...
+			assertEquals(0, defaults.cancel());
+
+		} finally {
+
+			SQLUtils.close(stmt);
+		}
+	}
+
+	@Test
+	public void testMaxRowsNotCached() {
+
+		QueryCache cache = new QueryCache(10, 0);
+
+		session.setQueryCache(cache);
+
+		assertEquals(3, session.loadList(new Item(), null, null, new QueryOptions().maxRows(3)).size());
+		assertEquals(0, cache.size());
+
+		assertEquals(10, session.loadList(new Item()).size());
+		assertEquals(1, cache.size());
+
+		session.setQueryOptions(new QueryOptions().maxRows(5));
+
+		assertEquals(5, session.loadList(new Item()).size());
+		assertEquals(0, cache.getHits());
+
+		session.setQueryOptions(null);
+
+		assertEquals(10, session.loadList(new Item()).size());
+		assertEquals(1, cache.getHits());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegative() {
+
+		new QueryOptions().fetchSize(-1);
+	}
+}
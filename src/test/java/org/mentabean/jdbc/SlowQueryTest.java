@@ -0,0 +1,108 @@
+package org.mentabean.jdbc;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mentabean.BeanManager;
+import org.mentabean.DBTypes;
+import org.mentabean.util.PropertiesProxy;
+import org.mentabean.util.SQLUtils;
+
+public class SlowQueryTest extends AbstractBeanSessionTest {
+
+	public static class Slow {
+
+		private long id;
+
+		public Slow() { }
+
+		public void setId(long id) { this.id = id; }
+		public long getId() { return id; }
+	}
+
+	private AnsiSQLBeanSession session;
+
+	@Before
+	public void setUp() throws Exception {
+
+		AnsiSQLBeanSession.debugSql(false);
+		AnsiSQLBeanSession.debugNativeSql(false);
+
+		BeanManager beanManager = new BeanManager();
+
+		Slow slow = PropertiesProxy.create(Slow.class);
+
+		beanManager.bean(Slow.class, "slow_rows")
+			.pk(slow.getId(), DBTypes.LONG);
+
+		session = new H2BeanSession(beanManager, getConnection());
+
+		// 3 rows, sleeping 5 ms for each one...
+		execUpdate(session.getConnection(), "create alias if not exists sleep for \"java.lang.Thread.sleep\"");
+		execUpdate(session.getConnection(), "create or replace view slow_rows as select x as id from system_range(1, 3) where sleep(5) is null");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		execUpdate(session.getConnection(), "drop view if exists slow_rows");
+		SQLUtils.close(session.getConnection());
+	}
+
+	/**
+	 * Load the rows, returning what was logged.
+	 */
+	private String loadLogged() {
+
+		PrintStream out = System.out;
+
+		ByteArrayOutputStream log = new ByteArrayOutputStream();
+
+		System.setOut(new PrintStream(log, true));
+
+		try {
+
+			List<Slow> list = session.loadList(new Slow());
+
+			assertEquals(3, list.size());
+
+		} finally {
+
+			System.setOut(out);
+		}
+
+		return log.toString();
+	}
+
+	@Test
+	public void testSlowQuery() {
+
+		session.setSlowQueryThreshold(1);
+
+		String log = loadLogged();
+
+		assertTrue(log, log.startsWith("SLOW QUERY ("));
+		assertTrue(log, log.contains("slow_rows"));
+
+		// with the plan...
+		assertTrue(log, log.toUpperCase().contains("SELECT"));
+		assertFalse(log, log.contains("(no plan:"));
+	}
+
+	@Test
+	public void testFastEnough() {
+
+		session.setSlowQueryThreshold(60000);
+
+		assertEquals("", loadLogged());
+
+		session.setSlowQueryThreshold(0);
+
+		assertEquals("", loadLogged());
+	}
+}
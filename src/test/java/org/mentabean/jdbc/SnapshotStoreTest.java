@@ -0,0 +1,166 @@
+package org.mentabean.jdbc;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mentabean.BeanManager;
+import org.mentabean.DBTypes;
+import org.mentabean.util.PropertiesProxy;
+import org.mentabean.util.SQLUtils;
+
+public class SnapshotStoreTest extends AbstractBeanSessionTest {
+	
+	public static class User {
+		
+		private int id;
+		private String name;
+		private int age;
+		
+		public User() { }
+		
+		public User(int id) { this.id = id; }
+		
+		public void setId(int id) { this.id = id; }
+		public int getId() { return id; }
+		
+		public void setName(String name) { this.name = name; }
+		public String getName() { return name; }
+		
+		public void setAge(int age) { this.age = age; }
+		public int getAge() { return age; }
+	}
+	
+	private AnsiSQLBeanSession session;
+	
+	@Before
+	public void setUp() {
+		
+		AnsiSQLBeanSession.debugSql(false);
+		AnsiSQLBeanSession.debugNativeSql(false);
+		
+		session = new H2BeanSession(configure(), getConnection());
+		session.createTables();
+	}
+	
+	@After
+	public void tearDown() {
+		SQLUtils.close(session.getConnection());
+	}
+	
+	private BeanManager configure() {
+		
+		BeanManager beanManager = new BeanManager();
+		
+		User user = PropertiesProxy.create(User.class);
+		
+		beanManager.bean(User.class, "users")
+			.pk(user.getId(), DBTypes.AUTOINCREMENT)
+			.field(user.getName(), DBTypes.STRING)
+			.field(user.getAge(), DBTypes.INTEGER);
+		
+		return beanManager;
+	}
+	
+	private User insert(String name, int age) {
+		User u = new User();
+		u.setName(name);
+		u.setAge(age);
+		session.insert(u);
+		return u;
+	}
+	
+	@Test
+	public void testInsertAndLoadAttach() {
+		
+		User u = insert("Sergio", 33);
+		
+		assertEquals(1, session.getSnapshotCount());
+		
+		User u2 = new User(u.getId());
+		assertTrue(session.load(u2));
+		
+		assertEquals(2, session.getSnapshotCount());
+		assertTrue(session.getSnapshotBytes() > 0);
+		
+		// nothing changed...
+		assertFalse(session.update(u2));
+	}
+	
+	@Test
+	public void testDetach() {
+		
+		User u = insert("Sergio", 33);
+		
+		User loaded = new User(u.getId());
+		assertTrue(session.load(loaded));
+		
+		session.detach(loaded);
+		
+		assertEquals(1, session.getSnapshotCount());
+		
+		// not attached anymore, so age = 0 is considered "not set" and will not be updated...
+		loaded.setAge(0);
+		loaded.setName("Julia");
+		assertTrue(session.update(loaded));
+		
+		User check = new User(u.getId());
+		assertTrue(session.load(check));
+		assertEquals("Julia", check.getName());
+		assertEquals(33, check.getAge());
+	}
+	
+	@Test
+	public void testClearSnapshots() {
+		
+		insert("Sergio", 33);
+		insert("Julia", 32);
+		
+		assertEquals(2, session.getSnapshotCount());
+		
+		session.clearSnapshots();
+		
+		assertEquals(0, session.getSnapshotCount());
+		assertEquals(0, session.getSnapshotBytes());
+	}
+	
+	@Test
+	public void testBoundedStore() {
+		
+		session.setSnapshotStore(new BoundedSnapshotStore<Object[]>(2));
+		
+		User u1 = insert("Sergio", 33);
+		User u2 = insert("Julia", 32);
+		User u3 = insert("Bruno", 12);
+		
+		assertEquals(2, session.getSnapshotCount());
+		
+		// u2 and u3 are still attached, so nothing to update...
+		assertFalse(session.update(u3));
+		assertFalse(session.update(u2));
+		
+		// u1 was evicted, so it is updated blindly with whatever is set...
+		assertTrue(session.update(u1));
+		
+		assertEquals(2, session.getSnapshotCount());
+	}
+	
+	@Test
+	public void testWeakRelease() throws InterruptedException {
+		
+		User kept = insert("Sergio", 33);
+		
+		insert("Julia", 32); // not referenced anymore...
+		
+		for (int i = 0; i < 100 && session.getSnapshotCount() > 1; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		
+		assertEquals(1, session.getSnapshotCount());
+		
+		// the one still referenced keeps its snapshot...
+		assertFalse(session.update(kept));
+	}
+}
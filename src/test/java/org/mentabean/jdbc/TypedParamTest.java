@@ -0,0 +1,144 @@
+package org.mentabean.jdbc;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mentabean.BeanManager;
+import org.mentabean.DBTypes;
+import org.mentabean.jdbc.QueryBuilder.Alias;
+import org.mentabean.sql.conditions.Equals;
+import org.mentabean.sql.conditions.NotEquals;
+import org.mentabean.type.EnumIdType;
+import org.mentabean.util.PropertiesProxy;
+import org.mentabean.util.SQLUtils;
+
+public class TypedParamTest extends AbstractBeanSessionTest {
+
+	public static enum Status {
+
+		BASIC(1), PREMIUM(2), GOLD(3);
+
+		private final int id;
+
+		private Status(int id) {
+			this.id = id;
+		}
+
+		public int getId() {
+			return id;
+		}
+
+		public static Status fromId(int id) {
+			for (Status s : Status.values()) {
+				if (s.getId() == id) {
+					return s;
+				}
+			}
+			return null;
+		}
+	}
+
+	public static class Task {
+
+		private long id;
+		private String name;
+		private Status status;
+		private boolean done;
+
+		public Task() { }
+
+		public Task(String name, Status status, boolean done) {
+			this.name = name;
+			this.status = status;
+			this.done = done;
+		}
+
+		public void setId(long id) { this.id = id; }
+		public long getId() { return id; }
+
+		public void setName(String name) { this.name = name; }
+		public String getName() { return name; }
+
+		public void setStatus(Status status) { this.status = status; }
+		public Status getStatus() { return status; }
+
+		public void setDone(boolean done) { this.done = done; }
+		public boolean isDone() { return done; }
+	}
+
+	private AnsiSQLBeanSession session;
+
+	@Before
+	public void setUp() {
+
+		AnsiSQLBeanSession.debugSql(false);
+		AnsiSQLBeanSession.debugNativeSql(false);
+
+		BeanManager beanManager = new BeanManager();
+
+		Task task = PropertiesProxy.create(Task.class);
+
+		beanManager.bean(Task.class, "tasks")
+			.pk(task.getId(), DBTypes.AUTOINCREMENT)
+			.field(task.getName(), DBTypes.STRING)
+			.field(task.getStatus(), new EnumIdType(Status.class))
+			.field(task.isDone(), DBTypes.BOOLEANSTRING);
+
+		session = new H2BeanSession(beanManager, getConnection());
+		session.createTables();
+
+		session.insert(new Task("one", Status.BASIC, false));
+		session.insert(new Task("two", Status.GOLD, true));
+		session.insert(new Task("three", Status.GOLD, false));
+	}
+
+	@After
+	public void tearDown() {
+		SQLUtils.close(session.getConnection());
+	}
+
+	@Test
+	public void testBindWithFieldType() {
+
+		QueryBuilder builder = session.buildQuery();
+		Alias<Task> t = builder.aliasTo(Task.class, "t");
+
+		List<Task> list = builder
+				.select(t)
+				.from(t)
+				.where()
+				.clause(t.proxy().getStatus())
+				.condition(new Equals(Status.GOLD))
+				.and()
+				.clause(t.proxy().isDone())
+				.condition(new NotEquals(true))
+				.executeQuery();
+
+		assertEquals(1, list.size());
+		assertEquals("three", list.get(0).getName());
+		assertEquals(Status.GOLD, list.get(0).getStatus());
+	}
+
+	@Test
+	public void testCompiled() {
+
+		QueryBuilder builder = session.buildQuery();
+		Alias<Task> t = builder.aliasTo(Task.class, "t");
+
+		CompiledQuery query = builder
+				.select(t)
+				.from(t)
+				.where()
+				.clause(t.proxy().getStatus())
+				.condition(new Equals(Status.GOLD))
+				.compile();
+
+		assertEquals(2, query.execute(session).size());
+		assertEquals(1, query.execute(session, Status.BASIC).size());
+		assertEquals(0, query.execute(session, Status.PREMIUM).size());
+	}
+}
@@ -13,6 +13,8 @@ import org.mentabean.BeanConfig;
 import org.mentabean.BeanManager;
 import org.mentabean.BeanSession;
 import org.mentabean.DBTypes;
+import org.mentabean.event.TriggerAdapter;
+import org.mentabean.event.TriggerEvent;
 import org.mentabean.util.PropertiesProxy;
 import org.mentabean.util.SQLUtils;
 
@@ -414,4 +416,96 @@ public class UpdateDiffTest extends AbstractBeanSessionTest {
 		}
 	}
 
+	@Test
+	public void testNestedNotCreated() throws Exception {
+
+		Connection conn = getConnection();
+
+		try {
+
+			BeanSession session = new H2BeanSession(configureManager2(), conn);
+			session.createTables();
+
+			TypeTest newObj = new TypeTest().setId(1).setString("new");
+			TypeTest oldObj = new TypeTest().setId(1).setString("old");
+
+			List<String> diffs = new LinkedList<String>();
+			TypeTest diff = session.compareDifferences(newObj, oldObj, diffs);
+			Assert.assertNotNull(diff);
+			Assert.assertEquals("new", diff.getString());
+			Assert.assertEquals(1, diff.getId());
+			Assert.assertEquals(0, diffs.size());
+
+			// only compared, the null group is not created...
+			Assert.assertNull(newObj.getGroup());
+			Assert.assertNull(oldObj.getGroup());
+
+			TypeTest saved = new TypeTest().setString("old");
+			session.insert(saved);
+
+			TypeTest changed = new TypeTest().setId(saved.getId()).setString("new").setGroup(new Group(2));
+			Assert.assertTrue(session.updateDiff(changed, saved));
+			Assert.assertNull(saved.getGroup());
+
+			TypeTest loaded = new TypeTest().setId(saved.getId());
+			session.load(loaded);
+			Assert.assertEquals("new", loaded.getString());
+			Assert.assertEquals(2, loaded.getGroup().getId());
+
+			Assert.assertFalse(session.updateDiff(loaded, loaded));
+
+		} finally {
+
+			SQLUtils.close(conn);
+		}
+	}
+
+	@Test
+	public void testTriggersReceiveDiff() throws Exception {
+
+		Connection conn = getConnection();
+
+		try {
+
+			BeanSession session = new H2BeanSession(configureManager2(), conn);
+			session.createTables();
+
+			final List<TypeTest> before = new LinkedList<TypeTest>();
+			final List<TypeTest> after = new LinkedList<TypeTest>();
+
+			session.addTrigger(new TriggerAdapter() {
+
+				@Override
+				public void beforeUpdate(TriggerEvent evt) {
+					before.add(evt.<TypeTest>getBean());
+				}
+
+				@Override
+				public void afterUpdate(TriggerEvent evt) {
+					after.add(evt.<TypeTest>getBean());
+				}
+			});
+
+			TypeTest saved = new TypeTest().setString("old").setGroup(new Group(2));
+			session.insert(saved);
+
+			TypeTest changed = new TypeTest().setId(saved.getId()).setString("new").setGroup(new Group(2));
+			Assert.assertTrue(session.updateDiff(changed, saved));
+
+			Assert.assertEquals(1, before.size());
+			Assert.assertSame(before.get(0), after.get(0));
+
+			// only the PK and what changed...
+			TypeTest diff = before.get(0);
+			Assert.assertNotSame(changed, diff);
+			Assert.assertEquals(saved.getId(), diff.getId());
+			Assert.assertEquals("new", diff.getString());
+			Assert.assertNull(diff.getGroup());
+
+		} finally {
+
+			SQLUtils.close(conn);
+		}
+	}
+
 }
@@ -2,6 +2,8 @@ package org.mentabean.jdbc.one_to_many;
 
 import static org.junit.Assert.*;
 
+import java.util.List;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -12,6 +14,9 @@ import org.mentabean.DBTypes;
 import org.mentabean.jdbc.AbstractBeanSessionTest;
 import org.mentabean.jdbc.AnsiSQLBeanSession;
 import org.mentabean.jdbc.H2BeanSession;
+import org.mentabean.jdbc.QueryBuilder;
+import org.mentabean.jdbc.QueryIterator;
+import org.mentabean.jdbc.QueryBuilder.Alias;
 import org.mentabean.util.OrderBy;
 import org.mentabean.util.PropertiesProxy;
 import org.mentabean.util.SQLUtils;
@@ -138,4 +143,87 @@ public class OneToManyTest extends AbstractBeanSessionTest {
 		assertEquals("blah", e.getParts().get(1).getName());
 		assertEquals("foo", e.getParts().get(2).getName());
 	}
+	
+	@Test
+	public void testJoinIntoCollection() {
+		
+		Engine e1 = new Engine();
+		e1.setName("e1");
+		session.insert(e1);
+		
+		Engine e2 = new Engine();
+		e2.setName("e2");
+		session.insert(e2);
+		
+		Engine e3 = new Engine();
+		e3.setName("e3"); // no parts
+		session.insert(e3);
+		
+		String[] names = { "p1", "p2", "p3" };
+		
+		for (String name : names) {
+			Part p = new Part();
+			p.setName(name);
+			p.setEngine(e1);
+			session.insert(p);
+		}
+		
+		Part p4 = new Part();
+		p4.setName("p4");
+		p4.setEngine(e2);
+		session.insert(p4);
+		
+		QueryBuilder builder = ((AnsiSQLBeanSession) session).buildQuery();
+		Alias<Engine> e = builder.aliasTo(Engine.class, "e");
+		Alias<Part> p = builder.aliasTo(Part.class, "p");
+		
+		// one row per part, but each engine is returned only once with all its parts...
+		List<Engine> engines = builder
+				.select(e, p)
+				.from(e)
+				.leftJoin(p)
+				.on(p.proxy().getEngine().getId())
+				.eq(e.proxy().getId())
+				.intoCollection(e.proxy().getParts())
+				.orderBy().asc(e, e.proxy().getId()).asc(p, p.proxy().getId())
+				.executeQuery();
+		
+		assertEquals(3, engines.size());
+		
+		assertEquals("e1", engines.get(0).getName());
+		assertEquals(3, engines.get(0).getParts().size());
+		assertEquals("p1", engines.get(0).getParts().get(0).getName());
+		assertEquals("p3", engines.get(0).getParts().get(2).getName());
+		assertEquals(e1.getId(), engines.get(0).getParts().get(1).getEngine().getId());
+		
+		assertEquals("e2", engines.get(1).getName());
+		assertEquals(1, engines.get(1).getParts().size());
+		assertEquals("p4", engines.get(1).getParts().get(0).getName());
+		
+		assertEquals("e3", engines.get(2).getName());
+		assertNull(engines.get(2).getParts()); // outer join without parts
+		
+		// the same, one engine at a time...
+		QueryIterator<Engine> it = builder
+				.select(e, p)
+				.from(e)
+				.leftJoin(p)
+				.on(p.proxy().getEngine().getId())
+				.eq(e.proxy().getId())
+				.intoCollection(e.proxy().getParts())
+				.orderBy().asc(e, e.proxy().getId()).asc(p, p.proxy().getId())
+				.iterate();
+		
+		try {
+			
+			assertEquals(3, it.next().getParts().size());
+			assertEquals("p4", it.next().getParts().get(0).getName());
+			assertEquals("e3", it.next().getName());
+			assertFalse(it.hasNext());
+			
+		} finally {
+			
+			it.close();
+		}
+	}
 }	